@@ -20,7 +20,8 @@ public class CorsConfig {
 		corsConfiguration.setAllowedOriginPatterns(List.of("http://localhost:8080", "http://localhost:57596", "http://10.0.2.2:8080", "*"));
 		corsConfiguration.setAllowedHeaders(List.of(
 				"Origin", "Content-Type", "Accept", "Authorization",
-				"X-Requested-With", "Access-Control-Request-Method", "Access-Control-Request-Headers"
+				"X-Requested-With", "Access-Control-Request-Method", "Access-Control-Request-Headers",
+				"Idempotency-Key"
 		));
 		corsConfiguration.setExposedHeaders(List.of(
 				"Origin", "Content-Type", "Accept", "Authorization",
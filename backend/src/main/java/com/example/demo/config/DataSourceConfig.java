@@ -0,0 +1,29 @@
+package com.example.demo.config;
+
+import com.example.demo.util.RoundTripCountingDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class DataSourceConfig {
+
+	// wraps the pool so services can report the round trips their work really took;
+	// off unless asked for, since every JDBC call then goes through a reflective proxy
+	@Bean
+	@ConditionalOnProperty(name = "jdbc.round-trip-counting.enabled", havingValue = "true")
+	public static BeanPostProcessor roundTripCountingPostProcessor() {
+		return new BeanPostProcessor() {
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				if (bean instanceof DataSource dataSource && !(bean instanceof RoundTripCountingDataSource)) {
+					return new RoundTripCountingDataSource(dataSource);
+				}
+				return bean;
+			}
+		};
+	}
+}
@@ -2,6 +2,7 @@ package com.example.demo.config;
 
 import com.example.demo.filter.JwtRequestFilter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -25,9 +26,13 @@ public class SecurityConfig {
 	@Autowired
 	private JwtRequestFilter jwtRequestFilter;
 
+	// BCrypt work factor; existing hashes are upgraded on the next successful login
+	@Value("${security.bcrypt.strength:10}")
+	private int bcryptStrength;
+
 	@Bean
 	public PasswordEncoder passwordEncoder() {
-		return new BCryptPasswordEncoder();
+		return new BCryptPasswordEncoder(bcryptStrength);
 	}
 
 	@Bean
@@ -45,6 +50,7 @@ public class SecurityConfig {
 						.requestMatchers("/api/auth/**").permitAll()
 						// public product reads
 						.requestMatchers(HttpMethod.GET, "/api/products/**").permitAll()
+						.requestMatchers(HttpMethod.GET, "/api/images/**").permitAll()
 						// admin area - guarded
 						.requestMatchers("/api/admin/**").hasRole("ADMIN")
 						.requestMatchers(HttpMethod.POST, "/api/products").hasRole("ADMIN")
@@ -55,6 +61,7 @@ public class SecurityConfig {
 						.requestMatchers(HttpMethod.GET, "/api/orders/my-orders").hasAnyRole("USER", "ADMIN")
 						// admin order endpoints (if used)
 						.requestMatchers(HttpMethod.GET, "/api/orders/admin/**").hasRole("ADMIN")
+						.requestMatchers(HttpMethod.PUT, "/api/orders/*/status").hasRole("ADMIN")
 						// everything else must be authenticated
 						.anyRequest().authenticated()
 				)
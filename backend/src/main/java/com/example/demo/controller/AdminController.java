@@ -1,15 +1,46 @@
 package com.example.demo.controller;
 
-import com.example.demo.model.Order;
+import com.example.demo.dto.BulkStatusRequest;
+import com.example.demo.dto.CursorPage;
+import com.example.demo.dto.OrderDTO;
+import com.example.demo.dto.StatusChangeResult;
+import com.example.demo.model.OrderStatus;
 import com.example.demo.model.Product;
+import com.example.demo.service.CustomUserDetailsService;
+import com.example.demo.service.IdempotencyService;
+import com.example.demo.service.ImageStore;
+import com.example.demo.service.InventoryLedger;
+import com.example.demo.service.LowStockMonitor;
+import com.example.demo.service.CatalogService;
+import com.example.demo.service.OrderExportService;
+import com.example.demo.service.ProductImportService;
+import com.example.demo.service.ProductSearchIndex;
+import com.example.demo.service.OrderIngestionService;
 import com.example.demo.service.OrderService;
+import com.example.demo.service.PasswordHashingService;
+import com.example.demo.service.ProductChangeLog;
+import com.example.demo.service.TokenRevocationService;
 import com.example.demo.service.ProductService;
+import com.example.demo.service.SalesAnalyticsService;
+import com.example.demo.util.JwtTokenUtil;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/admin")
@@ -17,16 +48,163 @@ import java.util.List;
 @CrossOrigin
 public class AdminController {
 
+	private static final int MAX_BULK_STATUS_IDS = 10_000;
+
 	@Autowired
 	private OrderService orderService;
 
 	@Autowired
 	private ProductService productService;
 
+	@Autowired
+	private JwtTokenUtil jwtTokenUtil;
+
+	@Autowired
+	private CustomUserDetailsService userDetailsService;
+
+	@Autowired
+	private PasswordHashingService passwordHashingService;
+
+	@Autowired
+	private TokenRevocationService tokenRevocationService;
+
+	@Autowired
+	private InventoryLedger inventoryLedger;
+
+	@Autowired
+	private IdempotencyService idempotencyService;
+
+	@Autowired
+	private OrderIngestionService orderIngestionService;
+
+	@Autowired
+	private OrderExportService orderExportService;
+
+	@Autowired
+	private CatalogService catalogService;
+
+	@Autowired
+	private ProductSearchIndex productSearchIndex;
+
+	@Autowired
+	private ProductImportService productImportService;
+
+	@Autowired
+	private SalesAnalyticsService salesAnalyticsService;
+
+	@Autowired
+	private LowStockMonitor lowStockMonitor;
+
+	@Autowired
+	private ImageStore imageStore;
+
+	@Autowired
+	private ProductChangeLog productChangeLog;
+
+	// All orders, newest first, one page at a time (follow nextCursor for more)
 	@GetMapping("/orders")
-	public ResponseEntity<List<Order>> getAllOrders() {
-		List<Order> orders = orderService.getAllOrders();
-		return ResponseEntity.ok(orders);
+	public ResponseEntity<?> getAllOrders(
+			@RequestParam(required = false) String cursor,
+			@RequestParam(defaultValue = "50") int limit,
+			@RequestParam(required = false) String status,
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+		try {
+			CursorPage<OrderDTO> page = orderService.findOrders(null, status, from, to, cursor, limit);
+			return ResponseEntity.ok(page);
+		} catch (RuntimeException e) {
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+	}
+
+	// Applies one status transition to many orders in batched updates and reports
+	// the outcome per id (UPDATED, UNCHANGED, NOT_FOUND, ILLEGAL_TRANSITION, CONFLICT)
+	@PutMapping("/orders/status")
+	public ResponseEntity<?> bulkUpdateOrderStatus(@RequestBody BulkStatusRequest request) {
+		if (request.getOrderIds() == null || request.getOrderIds().isEmpty()) {
+			return ResponseEntity.badRequest().body("No order ids");
+		}
+		if (request.getOrderIds().size() > MAX_BULK_STATUS_IDS) {
+			return ResponseEntity.badRequest().body("At most " + MAX_BULK_STATUS_IDS + " orders per request");
+		}
+		try {
+			OrderStatus target = OrderStatus.parse(request.getStatus());
+			List<StatusChangeResult> results = orderService.changeStatus(request.getOrderIds(), target);
+
+			Map<String, Object> body = new LinkedHashMap<>();
+			body.put("status", target);
+			body.put("updated", results.stream().filter(r -> r.getOutcome() == StatusChangeResult.Outcome.UPDATED).count());
+			body.put("results", results);
+			return ResponseEntity.ok(body);
+		} catch (RuntimeException e) {
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+	}
+
+	// Every order in [from, to) as NDJSON (one order per line) or CSV (one row per
+	// order line), written while the query runs instead of being built in memory
+	@GetMapping("/orders/export")
+	public ResponseEntity<?> exportOrders(
+			@RequestParam(defaultValue = "ndjson") String format,
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+		OrderExportService.Format exportFormat;
+		try {
+			exportFormat = OrderExportService.parseFormat(format);
+		} catch (RuntimeException e) {
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+
+		boolean csv = exportFormat == OrderExportService.Format.CSV;
+		StreamingResponseBody body = out -> orderExportService.export(exportFormat, from, to, out);
+		return ResponseEntity.ok()
+				.contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8) : new MediaType("application", "x-ndjson"))
+				.header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"orders." + (csv ? "csv" : "ndjson") + "\"")
+				.body(body);
+	}
+
+	// Bulk product upsert from a CSV (header: name,price,stock[,id][,image_url]) or
+	// JSON-array body, read as it streams in; reports rejected rows instead of failing
+	@PostMapping("/products/import")
+	public ResponseEntity<?> importProducts(@RequestParam(required = false) String format, HttpServletRequest request)
+			throws IOException {
+		try {
+			ProductImportService.Format importFormat;
+			if (format != null) {
+				importFormat = ProductImportService.parseFormat(format);
+			} else {
+				String contentType = request.getContentType();
+				importFormat = contentType != null && contentType.contains("csv")
+						? ProductImportService.Format.CSV : ProductImportService.Format.JSON;
+			}
+			return ResponseEntity.ok(productImportService.importProducts(importFormat, request.getInputStream()));
+		} catch (RuntimeException e) {
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+	}
+
+	// Dashboard aggregates, all answered from memory
+	@GetMapping("/stats")
+	public ResponseEntity<Map<String, Object>> getStats() {
+		return ResponseEntity.ok(salesAnalyticsService.getSummary());
+	}
+
+	@GetMapping("/stats/daily")
+	public ResponseEntity<?> getDailyStats(
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+		LocalDate end = to == null ? LocalDate.now() : to;
+		LocalDate start = from == null ? end.minusDays(29) : from;
+		try {
+			return ResponseEntity.ok(salesAnalyticsService.getDaily(start, end));
+		} catch (RuntimeException e) {
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+	}
+
+	@GetMapping("/stats/top-products")
+	public ResponseEntity<List<Map<String, Object>>> getTopProducts(@RequestParam(defaultValue = "10") int limit) {
+		return ResponseEntity.ok(salesAnalyticsService.getTopProducts(limit));
 	}
 
 	@GetMapping("/low-stock")
@@ -34,4 +212,64 @@ public class AdminController {
 		List<Product> lowStockProducts = productService.getLowStockProducts(threshold);
 		return ResponseEntity.ok(lowStockProducts);
 	}
+
+	// Raw JPEG, PNG or GIF body; the product's imageUrl becomes the image's content-hash URL
+	@PostMapping("/products/{id}/image")
+	public ResponseEntity<?> uploadProductImage(@PathVariable Long id, HttpServletRequest request) throws IOException {
+		if (productService.getProductById(id).isEmpty()) {
+			return ResponseEntity.notFound().build();
+		}
+		try {
+			String name = imageStore.store(request.getInputStream());
+			return ResponseEntity.ok(productService.setImageUrl(id, "/api/images/" + name));
+		} catch (RuntimeException e) {
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+	}
+
+	// Server-Sent Events: a "snapshot" of the low products, then an "alert" per threshold crossing
+	@GetMapping(value = "/low-stock/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public SseEmitter streamLowStock() {
+		return lowStockMonitor.subscribe();
+	}
+
+	// mark a product as hot so its stock is reserved in memory (inventory.ledger.enabled)
+	@PutMapping("/inventory/hot/{productId}")
+	public ResponseEntity<?> markHot(@PathVariable Long productId) {
+		return setHot(productId, true);
+	}
+
+	@DeleteMapping("/inventory/hot/{productId}")
+	public ResponseEntity<?> unmarkHot(@PathVariable Long productId) {
+		return setHot(productId, false);
+	}
+
+	private ResponseEntity<?> setHot(Long productId, boolean hot) {
+		try {
+			return ResponseEntity.ok(productService.setHot(productId, hot));
+		} catch (RuntimeException e) {
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+	}
+
+	@GetMapping("/metrics")
+	public ResponseEntity<Map<String, Object>> getMetrics() {
+		Map<String, Object> metrics = new LinkedHashMap<>();
+		metrics.put("jwtCache", jwtTokenUtil.getCacheStats());
+		metrics.put("userDetailsCache", userDetailsService.getCacheStats());
+		metrics.put("passwordHashing", passwordHashingService.getStats());
+		metrics.put("tokenRevocation", tokenRevocationService.getStats());
+		metrics.put("orders", orderService.getStats());
+		metrics.put("inventoryLedger", inventoryLedger.getStats());
+		metrics.put("idempotency", idempotencyService.getStats());
+		metrics.put("orderIngestion", orderIngestionService.getStats());
+		metrics.put("orderExport", orderExportService.getStats());
+		metrics.put("catalog", catalogService.getStats());
+		metrics.put("productSearch", productSearchIndex.getStats());
+		metrics.put("productImport", productImportService.getStats());
+		metrics.put("lowStock", lowStockMonitor.getStats());
+		metrics.put("images", imageStore.getStats());
+		metrics.put("productChanges", productChangeLog.getStats());
+		return ResponseEntity.ok(metrics);
+	}
 }
@@ -1,10 +1,16 @@
 package com.example.demo.controller;
 
 import com.example.demo.model.User;
+import com.example.demo.service.PasswordHashingBusyException;
+import com.example.demo.service.TokenRevocationService;
+import com.example.demo.service.TokenVersionRegistry;
 import com.example.demo.service.UserService;
 import com.example.demo.util.JwtTokenUtil;
 import com.example.demo.service.CustomUserDetailsService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -27,6 +33,12 @@ public class AuthController {
 	@Autowired
 	private CustomUserDetailsService customUserDetailsService;
 
+	@Autowired
+	private TokenVersionRegistry tokenVersionRegistry;
+
+	@Autowired
+	private TokenRevocationService tokenRevocationService;
+
 	@PostMapping("/register")
 	public ResponseEntity<?> registerUser(@RequestBody User user) {
 		try {
@@ -37,6 +49,8 @@ public class AuthController {
 			response.put("userId", savedUser.getId());
 
 			return ResponseEntity.status(HttpStatus.CREATED).body(response);
+		} catch (PasswordHashingBusyException e) {
+			return busy(e);
 		} catch (RuntimeException e) {
 			return ResponseEntity.status(HttpStatus.BAD_REQUEST)
 					.body("Registration failed: " + e.getMessage());
@@ -48,22 +62,88 @@ public class AuthController {
 		try {
 			User user = userService.loginUser(loginRequest.getEmail(), loginRequest.getPassword());
 
-			UserDetails userDetails = customUserDetailsService.loadUserByUsername(user.getEmail());
+			// built from the user loginUser already loaded: no second lookup
+			UserDetails userDetails = customUserDetailsService.toUserDetails(user);
 
-			String token = jwtTokenUtil.generateToken(userDetails);
+			String token = jwtTokenUtil.generateToken(userDetails, user.getId(), user.getTokenVersion());
+			String refreshToken = jwtTokenUtil.generateRefreshToken(user.getEmail(), user.getId(), user.getTokenVersion());
 
 			Map<String, Object> response = new HashMap<>();
 			response.put("message", "Login successful");
 			response.put("token", token);
+			response.put("refreshToken", refreshToken);
+			response.put("expiresIn", jwtTokenUtil.getAccessTokenValidity());
 			response.put("user", user);
 
 			return ResponseEntity.ok(response);
+		} catch (PasswordHashingBusyException e) {
+			return busy(e);
 		} catch (RuntimeException e) {
 			return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
 					.body("Invalid credentials: " + e.getMessage());
 		}
 	}
 
+	// Exchanges a refresh token for a new access/refresh pair. Each refresh token
+	// can be redeemed once: it is revoked as part of the exchange.
+	@PostMapping("/refresh")
+	public ResponseEntity<?> refreshToken(@RequestBody RefreshRequest refreshRequest) {
+		try {
+			Claims claims = jwtTokenUtil.getVerifiedClaims(refreshRequest.getRefreshToken());
+			Long userId = jwtTokenUtil.getUserIdFromClaims(claims);
+			if (!jwtTokenUtil.isRefreshToken(claims) || userId == null) {
+				return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Not a refresh token");
+			}
+			int tokenVersion = jwtTokenUtil.getTokenVersionFromClaims(claims);
+			if (!tokenVersionRegistry.isCurrent(userId, tokenVersion)
+					|| !tokenRevocationService.revoke(claims.getId(), claims.getExpiration().toInstant())) {
+				return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Refresh token is no longer valid");
+			}
+
+			UserDetails userDetails = customUserDetailsService.loadUserByUsername(claims.getSubject());
+
+			Map<String, Object> response = new HashMap<>();
+			response.put("token", jwtTokenUtil.generateToken(userDetails, userId, tokenVersion));
+			response.put("refreshToken", jwtTokenUtil.generateRefreshToken(claims.getSubject(), userId, tokenVersion));
+			response.put("expiresIn", jwtTokenUtil.getAccessTokenValidity());
+			return ResponseEntity.ok(response);
+		} catch (JwtException | IllegalArgumentException e) {
+			return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid refresh token");
+		} catch (RuntimeException e) {
+			return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+					.body("Refresh failed: " + e.getMessage());
+		}
+	}
+
+	// Revokes the caller's access token and, if given, their refresh token
+	@PostMapping("/logout")
+	public ResponseEntity<?> logout(
+			@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+			@RequestBody(required = false) RefreshRequest refreshRequest) {
+		if (authorization != null && authorization.startsWith("Bearer ")) {
+			revokeQuietly(authorization.substring(7));
+		}
+		if (refreshRequest != null && refreshRequest.getRefreshToken() != null) {
+			revokeQuietly(refreshRequest.getRefreshToken());
+		}
+		return ResponseEntity.noContent().build();
+	}
+
+	private void revokeQuietly(String token) {
+		try {
+			Claims claims = jwtTokenUtil.getVerifiedClaims(token);
+			tokenRevocationService.revoke(claims.getId(), claims.getExpiration().toInstant());
+		} catch (JwtException | IllegalArgumentException e) {
+			// invalid or expired: nothing to revoke
+		}
+	}
+
+	private ResponseEntity<?> busy(PasswordHashingBusyException e) {
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+				.header(HttpHeaders.RETRY_AFTER, "1")
+				.body(e.getMessage());
+	}
+
 	public static class LoginRequest {
 		private String email;
 		private String password;
@@ -86,4 +166,18 @@ public class AuthController {
 			this.password = password;
 		}
 	}
+
+	public static class RefreshRequest {
+		private String refreshToken;
+
+		public RefreshRequest() {}
+
+		public String getRefreshToken() {
+			return refreshToken;
+		}
+
+		public void setRefreshToken(String refreshToken) {
+			this.refreshToken = refreshToken;
+		}
+	}
 }
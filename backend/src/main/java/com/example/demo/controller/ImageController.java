@@ -0,0 +1,75 @@
+package com.example.demo.controller;
+
+import com.example.demo.service.ImageStore;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.NoSuchFileException;
+
+@RestController
+@RequestMapping("/api/images")
+@CrossOrigin
+public class ImageController {
+
+	// names are content hashes, so a response never goes stale
+	private static final String CACHE_FOREVER = "public, max-age=31536000, immutable";
+
+	@Autowired
+	private ImageStore imageStore;
+
+	/**
+	 * An uploaded image, or with {@code w} its JPEG thumbnail at the next
+	 * configured width up. Originals on disk go out through Tomcat's sendfile
+	 * when the connector offers it. Thumbnails on disk never do, as the disk LRU
+	 * may delete the file before Tomcat opens it, after the headers went out;
+	 * they, and originals without sendfile, are copied with {@code FileChannel.transferTo}.
+	 */
+	@GetMapping("/{name}")
+	public void getImage(@PathVariable String name, @RequestParam(required = false) Integer w,
+	                     HttpServletRequest request, HttpServletResponse response) throws IOException {
+		if (w != null && w <= 0) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, "w must be positive");
+			return;
+		}
+		ImageStore.Image image = imageStore.open(name, w);
+		if (image == null) {
+			response.sendError(HttpServletResponse.SC_NOT_FOUND);
+			return;
+		}
+		response.setHeader(HttpHeaders.ETAG, image.getEtag());
+		response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_FOREVER);
+		String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+		if (ifNoneMatch != null && (ifNoneMatch.equals("*") || ifNoneMatch.contains(image.getEtag()))) {
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return;
+		}
+		response.setContentType(image.getContentType());
+		response.setContentLengthLong(image.getLength());
+		if ("HEAD".equals(request.getMethod())) {
+			return;
+		}
+		if (image.getBytes() != null) {
+			response.getOutputStream().write(image.getBytes());
+			return;
+		}
+		if (image.isOriginal() && Boolean.TRUE.equals(request.getAttribute("org.apache.tomcat.sendfile.support"))) {
+			request.setAttribute("org.apache.tomcat.sendfile.filename", image.getFile().toAbsolutePath().toString());
+			request.setAttribute("org.apache.tomcat.sendfile.start", 0L);
+			request.setAttribute("org.apache.tomcat.sendfile.end", image.getLength());
+			imageStore.sentWithSendfile();
+			return;
+		}
+		try {
+			imageStore.transferTo(image, Channels.newChannel(response.getOutputStream()));
+		} catch (NoSuchFileException e) {
+			// a thumbnail evicted since open(); nothing was written yet, so the client can simply retry
+			response.reset();
+			response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+		}
+	}
+}
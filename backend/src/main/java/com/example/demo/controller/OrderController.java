@@ -1,5 +1,6 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.CursorPage;
 import com.example.demo.dto.OrderDTO;
 import com.example.demo.dto.OrderItemDTO;
 import com.example.demo.dto.OrderItemRequest;
@@ -7,17 +8,32 @@ import com.example.demo.model.Order;
 import com.example.demo.model.OrderItem;
 import com.example.demo.model.User;
 import com.example.demo.repository.UserRepository;
+import com.example.demo.service.IdempotencyService;
+import com.example.demo.service.IllegalStatusTransitionException;
+import com.example.demo.service.OrderIngestionService;
+import com.example.demo.service.OrderNotFoundException;
+import com.example.demo.service.OrderQueueFullException;
 import com.example.demo.service.OrderService;
+import com.example.demo.service.OrderTicket;
+import com.example.demo.util.JwtUserDetails;
+import com.example.demo.util.Money;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
-import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @RestController
@@ -31,85 +47,186 @@ public class OrderController {
 	@Autowired
 	private UserRepository userRepository;
 
-	// Place an order (authenticated users)
+	@Autowired
+	private IdempotencyService idempotencyService;
+
+	@Autowired
+	private OrderIngestionService orderIngestionService;
+
+	private static final long MAX_TICKET_WAIT_MS = 30_000;
+
+	// Place an order (authenticated users). Retries that send the same
+	// Idempotency-Key get the original order back instead of a new one.
+	// With async checkout enabled, keyless orders are queued and answered with
+	// 202 and a ticket to poll.
 	@PostMapping
 	public ResponseEntity<?> createOrder(
 			@AuthenticationPrincipal UserDetails userDetails,
+			@RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
 			@RequestBody List<OrderItemRequest> orderItemRequests) {
 		try {
 			if (userDetails == null) {
 				return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("User not authenticated");
 			}
 
-			User user = userRepository.findByEmail(userDetails.getUsername())
-					.orElseThrow(() -> new RuntimeException("User not found"));
-			Long userId = user.getId();
+			Long userId = resolveUserId(userDetails);
+			boolean keyless = idempotencyKey == null || idempotencyKey.isBlank();
+
+			if (keyless && orderIngestionService.isEnabled()) {
+				OrderTicket ticket = orderIngestionService.submit(userId, orderItemRequests);
+				return ResponseEntity.status(HttpStatus.ACCEPTED)
+						.header(HttpHeaders.LOCATION, "/api/orders/tickets/" + ticket.getId())
+						.body(ticketBody(ticket, userDetails.getUsername()));
+			}
 
-			Order order = orderService.createOrder(userId, orderItemRequests);
-			OrderDTO orderDTO = convertToDTO(order);
+			OrderDTO orderDTO;
+			if (keyless) {
+				orderDTO = placeOrder(userId, userDetails.getUsername(), orderItemRequests);
+			} else {
+				orderDTO = idempotencyService.execute(userId, idempotencyKey,
+						() -> placeOrder(userId, userDetails.getUsername(), orderItemRequests));
+			}
 
 			return ResponseEntity.status(HttpStatus.CREATED).body(orderDTO);
+		} catch (OrderQueueFullException e) {
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+					.header(HttpHeaders.RETRY_AFTER, "1")
+					.body(e.getMessage());
 		} catch (RuntimeException e) {
 			return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
 		}
 	}
 
-	// User order history
+	// Outcome of an async order. With waitMs the request is held (without
+	// tying up a servlet thread) until the order is written or the wait ends.
+	@GetMapping("/tickets/{ticketId}")
+	public DeferredResult<ResponseEntity<?>> getTicket(
+			@AuthenticationPrincipal UserDetails userDetails,
+			@PathVariable String ticketId,
+			@RequestParam(defaultValue = "0") long waitMs) {
+		DeferredResult<ResponseEntity<?>> result = new DeferredResult<>();
+		if (userDetails == null) {
+			result.setResult(ResponseEntity.status(HttpStatus.UNAUTHORIZED).build());
+			return result;
+		}
+
+		OrderTicket ticket = orderIngestionService.getTicket(ticketId);
+		// someone else's ticket looks the same as a missing one
+		if (ticket == null || !ticket.getUserId().equals(resolveUserId(userDetails))) {
+			result.setResult(ResponseEntity.notFound().build());
+			return result;
+		}
+
+		String email = userDetails.getUsername();
+		long wait = Math.min(Math.max(waitMs, 0), MAX_TICKET_WAIT_MS);
+		if (wait == 0 || ticket.getStatus() != OrderTicket.Status.QUEUED) {
+			result.setResult(ResponseEntity.ok(ticketBody(ticket, email)));
+			return result;
+		}
+		// copy() so the timeout only ends this request's wait, not the ticket
+		ticket.getCompletion().copy()
+				.completeOnTimeout(ticket, wait, TimeUnit.MILLISECONDS)
+				.thenAccept(t -> result.setResult(ResponseEntity.ok(ticketBody(t, email))));
+		return result;
+	}
+
+	// User order history, newest first, one page at a time
 	@GetMapping("/my-orders")
-	public ResponseEntity<List<Order>> getUserOrders(@AuthenticationPrincipal UserDetails userDetails) {
+	public ResponseEntity<?> getUserOrders(
+			@AuthenticationPrincipal UserDetails userDetails,
+			@RequestParam(required = false) String cursor,
+			@RequestParam(defaultValue = "20") int limit,
+			@RequestParam(required = false) String status,
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
 		try {
 			if (userDetails == null) {
 				return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
 			}
 
-			User user = userRepository.findByEmail(userDetails.getUsername())
-					.orElseThrow(() -> new RuntimeException("User not found"));
-			Long userId = user.getId();
+			Long userId = resolveUserId(userDetails);
 
-			List<Order> orders = orderService.getUserOrders(userId);
-			return ResponseEntity.ok(orders);
+			CursorPage<OrderDTO> page = orderService.findOrders(userId, status, from, to, cursor, limit);
+			return ResponseEntity.ok(page);
 		} catch (RuntimeException e) {
-			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+			return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
 		}
 	}
 
 	@GetMapping("/{id}")
-	public ResponseEntity<Order> getOrderById(@PathVariable Long id) {
+	public ResponseEntity<OrderDTO> getOrderById(@PathVariable Long id) {
 		Optional<Order> order = orderService.getOrderById(id);
-		return order.map(ResponseEntity::ok)
+		return order.map(o -> ResponseEntity.ok(convertToDTO(o, o.getUser().getEmail())))
 				.orElse(ResponseEntity.notFound().build());
 	}
 
+	// Moves an order along its lifecycle (PENDING -> PAID -> SHIPPED -> DELIVERED,
+	// or CANCELLED before shipping, which gives the stock back). Admins only:
+	// a status change moves stock and the sales figures.
 	@PutMapping("/{id}/status")
-	public ResponseEntity<Order> updateOrderStatus(
+	@PreAuthorize("hasRole('ADMIN')")
+	public ResponseEntity<?> updateOrderStatus(
 			@PathVariable Long id,
 			@RequestParam String status) {
 		try {
 			Order order = orderService.updateOrderStatus(id, status);
-			return ResponseEntity.ok(order);
-		} catch (RuntimeException e) {
+			return ResponseEntity.ok(convertToDTO(order, order.getUser().getEmail()));
+		} catch (IllegalStatusTransitionException e) {
+			return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+		} catch (OrderNotFoundException e) {
 			return ResponseEntity.notFound().build();
+		} catch (RuntimeException e) {
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+	}
+
+	private OrderDTO placeOrder(Long userId, String userEmail, List<OrderItemRequest> orderItemRequests) {
+		Order order = orderService.createOrder(userId, orderItemRequests);
+		// the order only holds a user reference: take the email from the principal
+		return convertToDTO(order, userEmail);
+	}
+
+	private Map<String, Object> ticketBody(OrderTicket ticket, String userEmail) {
+		Map<String, Object> body = new LinkedHashMap<>();
+		body.put("ticketId", ticket.getId());
+		body.put("status", ticket.getStatus());
+		if (ticket.getOrder() != null) {
+			body.put("order", convertToDTO(ticket.getOrder(), userEmail));
+		}
+		if (ticket.getError() != null) {
+			body.put("error", ticket.getError());
+		}
+		return body;
+	}
+
+	private Long resolveUserId(UserDetails userDetails) {
+		// stateless principals already carry the id from the token
+		if (userDetails instanceof JwtUserDetails jwtUser) {
+			return jwtUser.getUserId();
 		}
+		User user = userRepository.findByEmail(userDetails.getUsername())
+				.orElseThrow(() -> new RuntimeException("User not found"));
+		return user.getId();
 	}
 
-	private OrderDTO convertToDTO(Order order) {
+	private OrderDTO convertToDTO(Order order, String userEmail) {
 		List<OrderItemDTO> itemDTOs = order.getItems().stream()
 				.map(item -> new OrderItemDTO(
 						item.getId(),
 						item.getProduct().getId(),
 						item.getProduct().getName(),
 						item.getQuantity(),
-						item.getPrice(),
-						item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity()))
+						item.getPrice().toBigDecimal(),
+						Money.toBigDecimal(item.getSubtotalMinorUnits(), item.getPrice().getCurrency())
 				))
 				.collect(Collectors.toList());
 
 		return new OrderDTO(
 				order.getId(),
 				order.getUser().getId(),
-				order.getUser().getEmail(),
+				userEmail,
 				order.getOrderDate(),
-				order.getTotalAmount(),
+				order.getTotalAmount().toBigDecimal(),
 				order.getStatus(),
 				itemDTOs
 		);
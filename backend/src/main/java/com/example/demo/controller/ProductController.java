@@ -1,13 +1,24 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.CursorPage;
+import com.example.demo.dto.ProductChanges;
+import com.example.demo.dto.ProductFilter;
 import com.example.demo.model.Product;
+import com.example.demo.service.CatalogService;
+import com.example.demo.service.ChangeVersionExpiredException;
+import com.example.demo.service.ProductChangeLog;
 import com.example.demo.service.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,14 +30,123 @@ public class ProductController {
 	@Autowired
 	private ProductService productService;
 
+	@Autowired
+	private CatalogService catalogService;
+
+	@Autowired
+	private ProductChangeLog productChangeLog;
 
+
+	/**
+	 * Without parameters: the whole catalog from the in-memory snapshot, gzipped
+	 * ahead of time for clients that accept it. Clients revalidate every time
+	 * (no-cache); a matching If-None-Match gets 304 and no body.
+	 * With any paging, filter or sort parameter: one page from the database,
+	 * the next page's cursor in {@code nextCursor}. Sort is name, price or stock.
+	 */
 	@GetMapping
-	public ResponseEntity<List<Product>> getAllProducts() {
-		List<Product> products = productService.getAllProducts();
-		return ResponseEntity.ok(products);
+	public ResponseEntity<?> getAllProducts(
+			@RequestParam(required = false) String cursor,
+			@RequestParam(required = false) Integer limit,
+			@RequestParam(required = false) BigDecimal minPrice,
+			@RequestParam(required = false) BigDecimal maxPrice,
+			@RequestParam(required = false) Boolean inStock,
+			@RequestParam(required = false) String namePrefix,
+			@RequestParam(required = false) String sort,
+			@RequestParam(required = false) String direction,
+			@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+			WebRequest request) {
+		boolean paged = cursor != null || limit != null || minPrice != null || maxPrice != null
+				|| inStock != null || namePrefix != null || sort != null || direction != null;
+		if (!paged) {
+			CatalogService.Snapshot snapshot = catalogService.getSnapshot();
+			boolean gzip = acceptsGzip(acceptEncoding);
+			String etag = gzip ? snapshot.getGzipEtag() : snapshot.getEtag();
+			// answered here so a 304 goes out without a Content-Encoding for a body it does not have
+			if (request.checkNotModified(etag)) {
+				return null;
+			}
+			ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+					.eTag(etag)
+					.cacheControl(CacheControl.noCache())
+					.varyBy(HttpHeaders.ACCEPT_ENCODING)
+					.header("X-Catalog-Version", String.valueOf(snapshot.getVersion()))
+					.header("X-Catalog-Change-Version", String.valueOf(snapshot.getChangeVersion()))
+					.contentType(MediaType.APPLICATION_JSON);
+			if (gzip) {
+				response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+			}
+			return response.body(gzip ? snapshot.getGzipBody() : snapshot.getBody());
+		}
+
+		try {
+			boolean descending = direction != null && direction.equalsIgnoreCase("desc");
+			if (direction != null && !descending && !direction.equalsIgnoreCase("asc")) {
+				throw new RuntimeException("direction must be asc or desc");
+			}
+			ProductFilter filter = new ProductFilter(minPrice, maxPrice, Boolean.TRUE.equals(inStock), namePrefix);
+			CursorPage<Product> page = productService.findProducts(filter, sort, descending, cursor, limit == null ? 20 : limit);
+			return ResponseEntity.ok(page);
+		} catch (RuntimeException e) {
+			return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+		}
 	}
 
 
+	// "gzip" listed without q=0 (or "*" with a non-zero q)
+	private static boolean acceptsGzip(String acceptEncoding) {
+		if (acceptEncoding == null) {
+			return false;
+		}
+		for (String part : acceptEncoding.split(",")) {
+			String[] params = part.split(";");
+			String coding = params[0].trim();
+			if (!coding.equalsIgnoreCase("gzip") && !coding.equals("*")) {
+				continue;
+			}
+			boolean refused = false;
+			for (int i = 1; i < params.length; i++) {
+				String param = params[i].trim();
+				if (param.startsWith("q=")) {
+					try {
+						refused = Double.parseDouble(param.substring(2)) <= 0;
+					} catch (NumberFormatException e) {
+						refused = true;
+					}
+				}
+			}
+			if (coding.equalsIgnoreCase("gzip") || !refused) {
+				return !refused;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Delta sync: products created or changed after {@code since}, in their
+	 * current state, and the ids of products deleted since. Start from the
+	 * X-Catalog-Change-Version header of the full catalog and pass each answer's
+	 * {@code version} back; while {@code hasMore} is set, ask again straight away.
+	 * 410 Gone means the version is unknown here and the catalog must be reloaded.
+	 */
+	@GetMapping("/changes")
+	public ResponseEntity<?> getChanges(@RequestParam long since,
+	                                    @RequestParam(defaultValue = "500") int limit) {
+		try {
+			ProductChanges changes = productChangeLog.getChangesSince(since, limit);
+			return ResponseEntity.ok().cacheControl(CacheControl.noStore()).body(changes);
+		} catch (ChangeVersionExpiredException e) {
+			return ResponseEntity.status(HttpStatus.GONE).body(e.getMessage());
+		}
+	}
+
+	// type-ahead search over product names, best match first
+	@GetMapping("/search")
+	public ResponseEntity<List<Product>> searchProducts(@RequestParam String q,
+	                                                    @RequestParam(defaultValue = "20") int limit) {
+		return ResponseEntity.ok(productService.searchProducts(q, limit));
+	}
+
 	@GetMapping("/{id}")
 	public ResponseEntity<Product> getProductById(@PathVariable Long id) {
 		Optional<Product> product = productService.getProductById(id);
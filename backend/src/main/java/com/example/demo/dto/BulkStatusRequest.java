@@ -0,0 +1,14 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+public class BulkStatusRequest {
+	private List<Long> orderIds;
+	private String status;
+
+	public List<Long> getOrderIds() { return orderIds; }
+	public void setOrderIds(List<Long> orderIds) { this.orderIds = orderIds; }
+
+	public String getStatus() { return status; }
+	public void setStatus(String status) { this.status = status; }
+}
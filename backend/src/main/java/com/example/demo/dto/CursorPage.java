@@ -0,0 +1,24 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+public class CursorPage<T> {
+	private List<T> items;
+	private String nextCursor;
+
+	public CursorPage() {}
+
+	public CursorPage(List<T> items, String nextCursor) {
+		this.items = items;
+		this.nextCursor = nextCursor;
+	}
+
+	public List<T> getItems() { return items; }
+	public void setItems(List<T> items) { this.items = items; }
+
+	// null on the last page
+	public String getNextCursor() { return nextCursor; }
+	public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+
+	public boolean isHasMore() { return nextCursor != null; }
+}
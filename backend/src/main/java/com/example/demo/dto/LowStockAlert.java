@@ -0,0 +1,43 @@
+package com.example.demo.dto;
+
+import java.time.LocalDateTime;
+
+public class LowStockAlert {
+	public enum Level { LOW, OUT_OF_STOCK, RESTOCKED, REMOVED }
+
+	private Long productId;
+	private String name;
+	private int stock;
+	private int threshold;
+	private Level level;
+	private LocalDateTime at;
+
+	public LowStockAlert() {}
+
+	public LowStockAlert(Long productId, String name, int stock, int threshold, Level level) {
+		this.productId = productId;
+		this.name = name;
+		this.stock = stock;
+		this.threshold = threshold;
+		this.level = level;
+		this.at = LocalDateTime.now();
+	}
+
+	public Long getProductId() { return productId; }
+	public void setProductId(Long productId) { this.productId = productId; }
+
+	public String getName() { return name; }
+	public void setName(String name) { this.name = name; }
+
+	public int getStock() { return stock; }
+	public void setStock(int stock) { this.stock = stock; }
+
+	public int getThreshold() { return threshold; }
+	public void setThreshold(int threshold) { this.threshold = threshold; }
+
+	public Level getLevel() { return level; }
+	public void setLevel(Level level) { this.level = level; }
+
+	public LocalDateTime getAt() { return at; }
+	public void setAt(LocalDateTime at) { this.at = at; }
+}
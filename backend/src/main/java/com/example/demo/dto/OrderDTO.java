@@ -1,7 +1,9 @@
 package com.example.demo.dto;
 
+import com.example.demo.util.Money;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 public class OrderDTO {
@@ -27,6 +29,18 @@ public class OrderDTO {
 		this.items = items;
 	}
 
+	// items are filled in afterwards
+	public OrderDTO(Long id, Long userId, String userEmail, LocalDateTime orderDate,
+	                BigDecimal totalAmount, String status) {
+		this(id, userId, userEmail, orderDate, totalAmount, status, new ArrayList<>());
+	}
+
+	// used by JPQL projections; items are filled in by a second query
+	public OrderDTO(Long id, Long userId, String userEmail, LocalDateTime orderDate,
+	                Money totalAmount, String status) {
+		this(id, userId, userEmail, orderDate, totalAmount.toBigDecimal(), status);
+	}
+
 	// Getters and setters for all fields
 	public Long getId() { return id; }
 	public void setId(Long id) { this.id = id; }
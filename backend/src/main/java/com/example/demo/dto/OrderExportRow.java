@@ -0,0 +1,48 @@
+package com.example.demo.dto;
+
+import com.example.demo.util.Money;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// One order line as read by the export query; item fields are null for an order without items
+public class OrderExportRow {
+	private final Long orderId;
+	private final Long userId;
+	private final String userEmail;
+	private final LocalDateTime orderDate;
+	private final BigDecimal totalAmount;
+	private final String status;
+	private final Long itemId;
+	private final Long productId;
+	private final String productName;
+	private final Integer quantity;
+	private final BigDecimal price;
+
+	public OrderExportRow(Long orderId, Long userId, String userEmail, LocalDateTime orderDate,
+	                      Money totalAmount, String status, Long itemId, Long productId,
+	                      String productName, Integer quantity, Money price) {
+		this.orderId = orderId;
+		this.userId = userId;
+		this.userEmail = userEmail;
+		this.orderDate = orderDate;
+		this.totalAmount = totalAmount.toBigDecimal();
+		this.status = status;
+		this.itemId = itemId;
+		this.productId = productId;
+		this.productName = productName;
+		this.quantity = quantity;
+		this.price = price == null ? null : price.toBigDecimal();
+	}
+
+	public Long getOrderId() { return orderId; }
+	public Long getUserId() { return userId; }
+	public String getUserEmail() { return userEmail; }
+	public LocalDateTime getOrderDate() { return orderDate; }
+	public BigDecimal getTotalAmount() { return totalAmount; }
+	public String getStatus() { return status; }
+	public Long getItemId() { return itemId; }
+	public Long getProductId() { return productId; }
+	public String getProductName() { return productName; }
+	public Integer getQuantity() { return quantity; }
+	public BigDecimal getPrice() { return price; }
+}
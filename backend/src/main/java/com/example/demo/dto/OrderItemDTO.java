@@ -1,5 +1,6 @@
 package com.example.demo.dto;
 
+import com.example.demo.util.Money;
 import java.math.BigDecimal;
 
 public class OrderItemDTO {
@@ -23,6 +24,16 @@ public class OrderItemDTO {
 		this.subtotal = subtotal;
 	}
 
+	public OrderItemDTO(Long id, Long productId, String productName, Integer quantity, BigDecimal price) {
+		this(id, productId, productName, quantity, price, price.multiply(BigDecimal.valueOf(quantity)));
+	}
+
+	// used by JPQL projections
+	public OrderItemDTO(Long id, Long productId, String productName, Integer quantity, Money price) {
+		this(id, productId, productName, quantity, price.toBigDecimal(),
+				Money.toBigDecimal(Money.times(price.getMinorUnits(), quantity), price.getCurrency()));
+	}
+
 	// Getters and setters for all fields
 	public Long getId() { return id; }
 	public void setId(Long id) { this.id = id; }
@@ -0,0 +1,34 @@
+package com.example.demo.dto;
+
+import com.example.demo.model.Product;
+
+import java.util.List;
+
+public class ProductChanges {
+	private long version;
+	private List<Product> changed;
+	private List<Long> deleted;
+	private boolean hasMore;
+
+	public ProductChanges() {}
+
+	public ProductChanges(long version, List<Product> changed, List<Long> deleted, boolean hasMore) {
+		this.version = version;
+		this.changed = changed;
+		this.deleted = deleted;
+		this.hasMore = hasMore;
+	}
+
+	/** Pass as {@code since} next time. */
+	public long getVersion() { return version; }
+	public void setVersion(long version) { this.version = version; }
+
+	public List<Product> getChanged() { return changed; }
+	public void setChanged(List<Product> changed) { this.changed = changed; }
+
+	public List<Long> getDeleted() { return deleted; }
+	public void setDeleted(List<Long> deleted) { this.deleted = deleted; }
+
+	public boolean isHasMore() { return hasMore; }
+	public void setHasMore(boolean hasMore) { this.hasMore = hasMore; }
+}
@@ -0,0 +1,33 @@
+package com.example.demo.dto;
+
+import java.math.BigDecimal;
+
+// Optional restrictions for the paged product listing; null means no restriction
+public class ProductFilter {
+	private BigDecimal minPrice;
+	private BigDecimal maxPrice;
+	private boolean inStockOnly;
+	private String namePrefix;
+
+	public ProductFilter() {}
+
+	public ProductFilter(BigDecimal minPrice, BigDecimal maxPrice, boolean inStockOnly, String namePrefix) {
+		this.minPrice = minPrice;
+		this.maxPrice = maxPrice;
+		this.inStockOnly = inStockOnly;
+		this.namePrefix = namePrefix;
+	}
+
+	public BigDecimal getMinPrice() { return minPrice; }
+	public void setMinPrice(BigDecimal minPrice) { this.minPrice = minPrice; }
+
+	public BigDecimal getMaxPrice() { return maxPrice; }
+	public void setMaxPrice(BigDecimal maxPrice) { this.maxPrice = maxPrice; }
+
+	public boolean isInStockOnly() { return inStockOnly; }
+	public void setInStockOnly(boolean inStockOnly) { this.inStockOnly = inStockOnly; }
+
+	// case-sensitive, so the name index can serve it
+	public String getNamePrefix() { return namePrefix; }
+	public void setNamePrefix(String namePrefix) { this.namePrefix = namePrefix; }
+}
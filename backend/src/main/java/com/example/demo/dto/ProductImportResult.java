@@ -0,0 +1,64 @@
+package com.example.demo.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ProductImportResult {
+	private long rows;
+	private long inserted;
+	private long updated;
+	private long failed;
+	private List<RowError> errors = new ArrayList<>();
+	private boolean completed = true;
+	private String error;
+	private long durationMillis;
+	private double rowsPerSecond;
+
+	public long getRows() { return rows; }
+	public void setRows(long rows) { this.rows = rows; }
+
+	public long getInserted() { return inserted; }
+	public void setInserted(long inserted) { this.inserted = inserted; }
+
+	public long getUpdated() { return updated; }
+	public void setUpdated(long updated) { this.updated = updated; }
+
+	public long getFailed() { return failed; }
+	public void setFailed(long failed) { this.failed = failed; }
+
+	// the first rejected rows only; failed holds the full count
+	public List<RowError> getErrors() { return errors; }
+	public void setErrors(List<RowError> errors) { this.errors = errors; }
+
+	// false when the upload could not be read to the end; batches before that point are kept
+	public boolean isCompleted() { return completed; }
+	public void setCompleted(boolean completed) { this.completed = completed; }
+
+	public String getError() { return error; }
+	public void setError(String error) { this.error = error; }
+
+	public long getDurationMillis() { return durationMillis; }
+	public void setDurationMillis(long durationMillis) { this.durationMillis = durationMillis; }
+
+	public double getRowsPerSecond() { return rowsPerSecond; }
+	public void setRowsPerSecond(double rowsPerSecond) { this.rowsPerSecond = rowsPerSecond; }
+
+	public static class RowError {
+		private long row;
+		private String message;
+
+		public RowError() {}
+
+		public RowError(long row, String message) {
+			this.row = row;
+			this.message = message;
+		}
+
+		// CSV: line number of the record; JSON: 1-based position in the array
+		public long getRow() { return row; }
+		public void setRow(long row) { this.row = row; }
+
+		public String getMessage() { return message; }
+		public void setMessage(String message) { this.message = message; }
+	}
+}
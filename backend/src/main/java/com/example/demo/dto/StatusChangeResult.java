@@ -0,0 +1,31 @@
+package com.example.demo.dto;
+
+public class StatusChangeResult {
+	public enum Outcome { UPDATED, UNCHANGED, NOT_FOUND, ILLEGAL_TRANSITION, CONFLICT }
+
+	private Long orderId;
+	private Outcome outcome;
+	private String previousStatus;
+	private String message;
+
+	public StatusChangeResult() {}
+
+	public StatusChangeResult(Long orderId, Outcome outcome, String previousStatus, String message) {
+		this.orderId = orderId;
+		this.outcome = outcome;
+		this.previousStatus = previousStatus;
+		this.message = message;
+	}
+
+	public Long getOrderId() { return orderId; }
+	public void setOrderId(Long orderId) { this.orderId = orderId; }
+
+	public Outcome getOutcome() { return outcome; }
+	public void setOutcome(Outcome outcome) { this.outcome = outcome; }
+
+	public String getPreviousStatus() { return previousStatus; }
+	public void setPreviousStatus(String previousStatus) { this.previousStatus = previousStatus; }
+
+	public String getMessage() { return message; }
+	public void setMessage(String message) { this.message = message; }
+}
@@ -1,9 +1,13 @@
 package com.example.demo.filter;
 
 import com.example.demo.service.CustomUserDetailsService;
+import com.example.demo.service.TokenRevocationService;
+import com.example.demo.service.TokenVersionRegistry;
 import com.example.demo.util.JwtTokenUtil;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -28,6 +32,16 @@ public class JwtRequestFilter extends OncePerRequestFilter {
 	@Autowired
 	private JwtTokenUtil jwtTokenUtil;
 
+	@Autowired
+	private TokenVersionRegistry tokenVersionRegistry;
+
+	@Autowired
+	private TokenRevocationService tokenRevocationService;
+
+	// when enabled, the principal comes from the token claims instead of a users table lookup
+	@Value("${jwt.stateless:false}")
+	private boolean stateless;
+
 	@Override
 	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
 			throws ServletException, IOException {
@@ -35,13 +49,21 @@ public class JwtRequestFilter extends OncePerRequestFilter {
 		final String requestTokenHeader = request.getHeader("Authorization");
 
 		String username = null;
-		String jwtToken = null;
+		Claims claims = null;
 
 		// Only attempt to read token if Authorization header starts with Bearer
 		if (requestTokenHeader != null && requestTokenHeader.startsWith("Bearer ")) {
-			jwtToken = requestTokenHeader.substring(7);
+			String jwtToken = requestTokenHeader.substring(7);
 			try {
-				username = jwtTokenUtil.getUsernameFromToken(jwtToken);
+				// parsed and signature-checked once; reused for validation below
+				claims = jwtTokenUtil.getVerifiedClaims(jwtToken);
+				if (jwtTokenUtil.isRefreshToken(claims)) {
+					logger.debug("Refresh token presented as access token");
+				} else if (tokenRevocationService.isRevoked(claims.getId())) {
+					logger.debug("JWT Token has been revoked");
+				} else {
+					username = claims.getSubject();
+				}
 			} catch (IllegalArgumentException e) {
 				logger.debug("Unable to get JWT Token: " + e.getMessage());
 			} catch (ExpiredJwtException e) {
@@ -57,9 +79,20 @@ public class JwtRequestFilter extends OncePerRequestFilter {
 		// Once we get the token validate it and set authentication
 		if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
 
-			UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+			UserDetails userDetails = null;
+			if (isRevoked(claims)) {
+				logger.debug("JWT token version is no longer current");
+			} else {
+				if (stateless) {
+					// null for tokens issued without a user id: fall back to the lookup
+					userDetails = jwtTokenUtil.getUserDetailsFromClaims(claims);
+				}
+				if (userDetails == null) {
+					userDetails = this.userDetailsService.loadUserByUsername(username);
+				}
+			}
 
-			if (userDetails != null && jwtTokenUtil.validateToken(jwtToken, userDetails)) {
+			if (userDetails != null && jwtTokenUtil.validateToken(claims, userDetails)) {
 
 				UsernamePasswordAuthenticationToken usernamePasswordAuthenticationToken =
 						new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
@@ -74,4 +107,10 @@ public class JwtRequestFilter extends OncePerRequestFilter {
 
 		chain.doFilter(request, response);
 	}
+
+	private boolean isRevoked(Claims claims) {
+		Long userId = jwtTokenUtil.getUserIdFromClaims(claims);
+		return userId != null
+				&& !tokenVersionRegistry.isCurrent(userId, jwtTokenUtil.getTokenVersionFromClaims(claims));
+	}
 }
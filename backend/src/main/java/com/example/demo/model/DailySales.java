@@ -0,0 +1,46 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Revenue, order count and units sold per calendar day, excluding cancelled
+ * orders. Maintained by the sales analytics flush; rebuilt from orders on startup.
+ */
+@Entity
+@Table(name = "sales_daily")
+public class DailySales {
+	@Id
+	@Column(name = "sales_day")
+	private LocalDate day;
+
+	@Column(nullable = false)
+	private long orders;
+
+	@Column(nullable = false)
+	private long units;
+
+	@Column(nullable = false)
+	private BigDecimal revenue;
+
+	public DailySales () {
+	}
+
+	public LocalDate getDay () {
+		return day;
+	}
+
+	public long getOrders () {
+		return orders;
+	}
+
+	public long getUnits () {
+		return units;
+	}
+
+	public BigDecimal getRevenue () {
+		return revenue;
+	}
+}
@@ -0,0 +1,48 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Response of a POST /api/orders made with an Idempotency-Key, so retries of
+ * the same request get the original order back instead of placing a new one.
+ */
+@Entity
+@Table(name = "idempotency_keys", indexes = @Index(name = "idx_idempotency_keys_expires_at", columnList = "expiresAt"))
+public class IdempotencyRecord {
+	// "<userId>:<client key>", so keys never collide across users
+	@Id
+	@Column(length = 150)
+	private String idempotencyKey;
+
+	@Column(nullable = false)
+	private Long orderId;
+
+	// serialized OrderDTO
+	@Lob
+	@Column(nullable = false)
+	private String response;
+
+	@Column(nullable = false)
+	private LocalDateTime expiresAt;
+
+	public IdempotencyRecord () {
+	}
+
+	public String getIdempotencyKey () {
+		return idempotencyKey;
+	}
+
+	public Long getOrderId () {
+		return orderId;
+	}
+
+	public String getResponse () {
+		return response;
+	}
+
+	public LocalDateTime getExpiresAt () {
+		return expiresAt;
+	}
+}
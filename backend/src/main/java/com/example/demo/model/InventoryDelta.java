@@ -0,0 +1,46 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Stock taken from a hot product by a committed order but not yet applied to
+ * products.stock. Written in the order's transaction, folded into the product
+ * row by the inventory ledger flush and replayed on startup after a crash.
+ */
+@Entity
+@Table(name = "inventory_deltas")
+public class InventoryDelta {
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+
+	@Column(nullable = false)
+	private Long productId;
+
+	@Column(nullable = false)
+	private int quantity;
+
+	@Column(nullable = false)
+	private LocalDateTime createdAt;
+
+	public InventoryDelta () {
+	}
+
+	public Long getId () {
+		return id;
+	}
+
+	public Long getProductId () {
+		return productId;
+	}
+
+	public int getQuantity () {
+		return quantity;
+	}
+
+	public LocalDateTime getCreatedAt () {
+		return createdAt;
+	}
+}
@@ -1,29 +1,38 @@
 package com.example.demo.model;
 
+import com.example.demo.util.Money;
+import com.example.demo.util.MoneyConverter;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Currency;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+		// keyset pagination walks (order_date, id) descending, optionally within a user or status
+		@Index(name = "idx_orders_date_id", columnList = "order_date, id"),
+		@Index(name = "idx_orders_user_date_id", columnList = "user_id, order_date, id"),
+		@Index(name = "idx_orders_status_date_id", columnList = "status, order_date, id")
+})
 public class Order {
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+	@SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 50)
 	private Long id;
 
-	@ManyToOne
+	@ManyToOne(fetch = FetchType.LAZY)
 	@JoinColumn(name = "user_id", nullable = false)
 	private User user;
 
 	@Column(nullable = false)
 	private LocalDateTime orderDate;
 
-	@Column(nullable = false)
-	private BigDecimal totalAmount;
+	@Column(nullable = false, precision = 38, scale = 2)
+	@Convert(converter = MoneyConverter.class)
+	private Money totalAmount;
 
 	@Column(nullable = false)
 	private String status;
@@ -34,7 +43,7 @@ public class Order {
 
 	public Order () {
 		this.orderDate = LocalDateTime.now();
-		this.status = "PENDING";
+		this.status = OrderStatus.PENDING.name();
 	}
 
 	public Order (User user) {
@@ -47,10 +56,18 @@ public class Order {
 		item.setOrder(this);
 	}
 
+	// sums minor units; the only allocation is the resulting Money
 	public void calculateTotalAmount() {
-		this.totalAmount = items.stream()
-				.map(item -> item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
-				.reduce(BigDecimal.ZERO, BigDecimal::add);
+		Currency currency = items.isEmpty() ? Money.DEFAULT_CURRENCY : items.get(0).getPrice().getCurrency();
+		long total = 0;
+		for (int i = 0; i < items.size(); i++) {
+			OrderItem item = items.get(i);
+			if (!item.getPrice().getCurrency().equals(currency)) {
+				throw new IllegalArgumentException("Order items are priced in different currencies");
+			}
+			total = Money.plus(total, item.getSubtotalMinorUnits());
+		}
+		this.totalAmount = Money.ofMinor(total, currency);
 	}
 
 	public Long getId () {
@@ -77,12 +94,12 @@ public class Order {
 		this.orderDate = orderDate;
 	}
 
-	public BigDecimal getTotalAmount () {
+	public Money getTotalAmount () {
 		return totalAmount;
 	}
 
-	public void setTotalAmount (Double totalAmount) {
-		this.totalAmount = BigDecimal.valueOf(totalAmount);
+	public void setTotalAmount (Money totalAmount) {
+		this.totalAmount = totalAmount;
 	}
 
 	public String getStatus () {
@@ -1,28 +1,30 @@
 package com.example.demo.model;
 
+import com.example.demo.util.Money;
+import com.example.demo.util.MoneyConverter;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 
-import java.math.BigDecimal;
-
 @Entity
 @Table(name = "order_items")
 public class OrderItem {
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_items_seq")
+	@SequenceGenerator(name = "order_items_seq", sequenceName = "order_items_seq", allocationSize = 50)
 	private Long id;
 
-	@ManyToOne
+	@ManyToOne(fetch = FetchType.LAZY)
 	@JoinColumn(name = "product_id", nullable = false)
 	private Product product;
 
 	@Column(nullable = false)
 	private Integer quantity;
 
-	@Column(nullable = false)
-	private BigDecimal price;
+	@Column(nullable = false, precision = 38, scale = 2)
+	@Convert(converter = MoneyConverter.class)
+	private Money price;
 
-	@ManyToOne
+	@ManyToOne(fetch = FetchType.LAZY)
 	@JoinColumn(name = "order_id", nullable = false)
 	@JsonIgnore
 	private Order order;
@@ -32,7 +34,7 @@ public class OrderItem {
 	}
 
 
-	public OrderItem (Product product, Integer quantity, BigDecimal price) {
+	public OrderItem (Product product, Integer quantity, Money price) {
 		this.product = product;
 		this.quantity = quantity;
 		this.price = price;
@@ -63,12 +65,18 @@ public class OrderItem {
 		this.quantity = quantity;
 	}
 
-	public BigDecimal getPrice() {
+	public Money getPrice() {
 		return price;
 	}
 
-	public void setPrice(Double price) {
-		this.price = BigDecimal.valueOf(price);
+	public void setPrice(Money price) {
+		this.price = price;
+	}
+
+	/** Price times quantity in minor units of the price's currency. */
+	@JsonIgnore
+	public long getSubtotalMinorUnits() {
+		return Money.times(price.getMinorUnits(), quantity);
 	}
 
 	public Order getOrder() {
@@ -0,0 +1,42 @@
+package com.example.demo.model;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Order lifecycle: PENDING -> PAID -> SHIPPED -> DELIVERED, with CANCELLED
+ * reachable until the order ships. DELIVERED and CANCELLED are final.
+ * Stored in orders.status by name.
+ */
+public enum OrderStatus {
+	PENDING,
+	PAID,
+	SHIPPED,
+	DELIVERED,
+	CANCELLED;
+
+	public Set<OrderStatus> next() {
+		return switch (this) {
+			case PENDING -> EnumSet.of(PAID, CANCELLED);
+			case PAID -> EnumSet.of(SHIPPED, CANCELLED);
+			case SHIPPED -> EnumSet.of(DELIVERED);
+			case DELIVERED, CANCELLED -> EnumSet.noneOf(OrderStatus.class);
+		};
+	}
+
+	public boolean canTransitionTo(OrderStatus target) {
+		return next().contains(target);
+	}
+
+	/** Parses a status name case-insensitively; unknown names are rejected. */
+	public static OrderStatus parse(String status) {
+		if (status != null) {
+			for (OrderStatus value : values()) {
+				if (value.name().equalsIgnoreCase(status.trim())) {
+					return value;
+				}
+			}
+		}
+		throw new RuntimeException("Unknown order status: " + status);
+	}
+}
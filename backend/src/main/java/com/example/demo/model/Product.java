@@ -1,14 +1,23 @@
 package com.example.demo.model;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 
 import java.math.BigDecimal;
 
 @Entity
-@Table(name="products")
+@Table(name="products", indexes = {
+		// keyset pagination of the product listing: one index per sort key, id as tie-breaker
+		@Index(name = "idx_products_name_id", columnList = "name, id"),
+		@Index(name = "idx_products_price_id", columnList = "price, id"),
+		@Index(name = "idx_products_stock_id", columnList = "stock, id"),
+		// GET /api/products/changes reads rows by the version of their last write
+		@Index(name = "idx_products_modified_version", columnList = "modified_version")
+})
 public class Product {
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "products_seq")
+	@SequenceGenerator(name = "products_seq", sequenceName = "products_seq", allocationSize = 50)
 	private Long id;
 	@Column(nullable = false)
 	private String name;
@@ -26,6 +35,14 @@ public class Product {
 	@Column(nullable = false)
 	private int stock;
 	private String imageUrl;
+	// hot products keep their available stock in the in-memory inventory ledger
+	@Column(nullable = false, columnDefinition = "boolean default false")
+	@JsonProperty(access = JsonProperty.Access.READ_ONLY)
+	private boolean hot;
+	// catalog change version of the last write to this row, see ProductChangeLog
+	@Column(nullable = false, columnDefinition = "bigint default 0")
+	@JsonProperty(access = JsonProperty.Access.READ_ONLY)
+	private long modifiedVersion;
 	public Product () {
 	}
 
@@ -59,6 +76,22 @@ public class Product {
 		this.stock = stock;
 	}
 
+	public boolean isHot () {
+		return hot;
+	}
+
+	public void setHot (boolean hot) {
+		this.hot = hot;
+	}
+
+	public long getModifiedVersion () {
+		return modifiedVersion;
+	}
+
+	public void setModifiedVersion (long modifiedVersion) {
+		this.modifiedVersion = modifiedVersion;
+	}
+
 	public Long getId () {
 		return id;
 	}
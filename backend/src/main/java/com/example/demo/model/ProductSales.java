@@ -0,0 +1,43 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+
+/**
+ * Units sold and revenue per product, excluding cancelled orders.
+ * Maintained by the sales analytics flush; rebuilt from orders on startup.
+ */
+@Entity
+@Table(name = "sales_product")
+public class ProductSales {
+	@Id
+	private Long productId;
+
+	private String productName;
+
+	@Column(nullable = false)
+	private long units;
+
+	@Column(nullable = false)
+	private BigDecimal revenue;
+
+	public ProductSales () {
+	}
+
+	public Long getProductId () {
+		return productId;
+	}
+
+	public String getProductName () {
+		return productName;
+	}
+
+	public long getUnits () {
+		return units;
+	}
+
+	public BigDecimal getRevenue () {
+		return revenue;
+	}
+}
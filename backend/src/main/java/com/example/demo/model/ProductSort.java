@@ -0,0 +1,47 @@
+package com.example.demo.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Sort keys for the paged product listing. Each is paired with the product id
+ * as a tie-breaker and backed by a (column, id) index on products.
+ */
+public enum ProductSort {
+	NAME,
+	PRICE,
+	STOCK;
+
+	/** The sorted property in JPQL, e.g. {@code p.price}. */
+	public String property() {
+		return "p." + name().toLowerCase();
+	}
+
+	public Comparable<?> valueOf(Product product) {
+		return switch (this) {
+			case NAME -> product.getName();
+			case PRICE -> product.getPrice();
+			case STOCK -> product.getStock();
+		};
+	}
+
+	/** Reads a value written by {@link #valueOf(Product)} back from its string form. */
+	public Comparable<?> parseValue(String value) {
+		return switch (this) {
+			case NAME -> value;
+			case PRICE -> new BigDecimal(value);
+			case STOCK -> Integer.valueOf(value);
+		};
+	}
+
+	/** Parses a sort key case-insensitively; unknown keys are rejected. */
+	public static ProductSort parse(String sort) {
+		if (sort != null) {
+			for (ProductSort value : values()) {
+				if (value.name().equalsIgnoreCase(sort.trim())) {
+					return value;
+				}
+			}
+		}
+		throw new RuntimeException("Unknown product sort: " + sort);
+	}
+}
@@ -0,0 +1,45 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A deleted product, kept so clients syncing with GET /api/products/changes
+ * learn to drop it. {@code version} is the catalog change version of the delete.
+ */
+@Entity
+@Table(name = "product_tombstones", indexes = {
+		@Index(name = "idx_product_tombstones_version", columnList = "version")
+})
+public class ProductTombstone {
+	@Id
+	private Long productId;
+
+	@Column(nullable = false)
+	private long version;
+
+	@Column(nullable = false)
+	private LocalDateTime deletedAt;
+
+	public ProductTombstone () {
+	}
+
+	public ProductTombstone (Long productId, long version) {
+		this.productId = productId;
+		this.version = version;
+		this.deletedAt = LocalDateTime.now();
+	}
+
+	public Long getProductId () {
+		return productId;
+	}
+
+	public long getVersion () {
+		return version;
+	}
+
+	public LocalDateTime getDeletedAt () {
+		return deletedAt;
+	}
+}
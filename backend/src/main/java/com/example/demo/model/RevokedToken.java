@@ -0,0 +1,42 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "revoked_tokens", indexes = @Index(name = "idx_revoked_tokens_expires_at", columnList = "expiresAt"))
+public class RevokedToken {
+	// the token's jti claim
+	@Id
+	@Column(length = 64)
+	private String tokenId;
+
+	// rows can be purged once the token would have expired anyway
+	@Column(nullable = false)
+	private LocalDateTime expiresAt;
+
+	public RevokedToken () {
+	}
+
+	public RevokedToken (String tokenId, LocalDateTime expiresAt) {
+		this.tokenId = tokenId;
+		this.expiresAt = expiresAt;
+	}
+
+	public String getTokenId () {
+		return tokenId;
+	}
+
+	public void setTokenId (String tokenId) {
+		this.tokenId = tokenId;
+	}
+
+	public LocalDateTime getExpiresAt () {
+		return expiresAt;
+	}
+
+	public void setExpiresAt (LocalDateTime expiresAt) {
+		this.expiresAt = expiresAt;
+	}
+}
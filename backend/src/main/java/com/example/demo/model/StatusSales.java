@@ -0,0 +1,28 @@
+package com.example.demo.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Number of orders currently in each status.
+ * Maintained by the sales analytics flush; rebuilt from orders on startup.
+ */
+@Entity
+@Table(name = "sales_status")
+public class StatusSales {
+	@Id
+	private String status;
+
+	@Column(nullable = false)
+	private long orders;
+
+	public StatusSales () {
+	}
+
+	public String getStatus () {
+		return status;
+	}
+
+	public long getOrders () {
+		return orders;
+	}
+}
@@ -1,5 +1,6 @@
 package com.example.demo.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 
 
@@ -7,7 +8,8 @@ import jakarta.persistence.*;
 @Table(name = "users")
 public class User {
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+	@SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
 	private Long id;
 	@Column(nullable = false ,unique = true)
 	private String email;
@@ -15,6 +17,10 @@ public class User {
 	private String password;
 	@Column(nullable = false)
 	private String role = "ROLE_USER"; // Default role
+	// bumped whenever previously issued tokens must stop working (e.g. role change)
+	@Column(nullable = false)
+	@JsonIgnore
+	private int tokenVersion = 0;
 
 	public static final String ROLE_USER = "ROLE_USER";
 	public static final String ROLE_ADMIN = "ROLE_ADMIN";
@@ -36,6 +42,14 @@ public class User {
 		this.role = role;
 	}
 
+	public int getTokenVersion () {
+		return tokenVersion;
+	}
+
+	public void setTokenVersion (int tokenVersion) {
+		this.tokenVersion = tokenVersion;
+	}
+
 	public String getEmail () {
 		return email;
 	}
@@ -0,0 +1,34 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+	Optional<IdempotencyRecord> findByIdempotencyKeyAndExpiresAtAfter(String idempotencyKey, LocalDateTime now);
+
+	// plain insert (no merge), so a key stored concurrently elsewhere fails on the primary key
+	@Modifying
+	@Query(value = "insert into idempotency_keys (idempotency_key, order_id, response, expires_at) "
+			+ "values (:key, :orderId, :response, :expiresAt)", nativeQuery = true)
+	int insert(@Param("key") String key, @Param("orderId") Long orderId,
+			@Param("response") String response, @Param("expiresAt") LocalDateTime expiresAt);
+
+	// an expired row the purge has not reached yet would otherwise block the key's insert
+	@Modifying
+	@Query(value = "delete from idempotency_keys where idempotency_key = :key and expires_at <= :now", nativeQuery = true)
+	int deleteIfExpired(@Param("key") String key, @Param("now") LocalDateTime now);
+
+	@Transactional
+	@Modifying
+	@Query("delete from IdempotencyRecord r where r.expiresAt < :now")
+	int deleteExpired(@Param("now") LocalDateTime now);
+}
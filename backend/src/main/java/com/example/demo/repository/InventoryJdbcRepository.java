@@ -0,0 +1,92 @@
+package com.example.demo.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Journal of stock taken from hot products (table inventory_deltas) and the
+ * set-based statements that fold it back into products.stock.
+ */
+@Repository
+public class InventoryJdbcRepository {
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	public void insertDeltas(Map<Long, Integer> quantitiesByProductId) {
+		Long[] ids = quantitiesByProductId.keySet().toArray(new Long[0]);
+		Integer[] quantities = quantitiesByProductId.values().toArray(new Integer[0]);
+		Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+		jdbcTemplate.batchUpdate(
+				"insert into inventory_deltas (product_id, quantity, created_at) values (?, ?, ?)",
+				new BatchPreparedStatementSetter() {
+					@Override
+					public void setValues(PreparedStatement ps, int i) throws SQLException {
+						ps.setLong(1, ids[i]);
+						ps.setInt(2, quantities[i]);
+						ps.setTimestamp(3, now);
+					}
+
+					@Override
+					public int getBatchSize() {
+						return ids.length;
+					}
+				});
+	}
+
+	/**
+	 * Applies up to {@code limit} journaled deltas to the product rows and deletes
+	 * exactly those journal rows: one select and two batches. Must run inside a
+	 * transaction. {@code versions} takes n change versions and returns the first.
+	 * Returns the number of journal rows applied.
+	 */
+	public int applyDeltas(int limit, IntToLongFunction versions) {
+		List<Long> deltaIds = new ArrayList<>();
+		Map<Long, Integer> totals = new TreeMap<>();
+		jdbcTemplate.query("select id, product_id, quantity from inventory_deltas order by id limit ?",
+				rs -> {
+					deltaIds.add(rs.getLong(1));
+					totals.merge(rs.getLong(2), rs.getInt(3), Integer::sum);
+				},
+				limit);
+		if (deltaIds.isEmpty()) {
+			return 0;
+		}
+
+		long version = versions.applyAsLong(totals.size());
+		List<Object[]> stockUpdates = new ArrayList<>();
+		for (Map.Entry<Long, Integer> total : totals.entrySet()) {
+			stockUpdates.add(new Object[] {total.getValue(), version++, total.getKey()});
+		}
+		jdbcTemplate.batchUpdate("update products set stock = stock - ?, modified_version = ? where id = ?", stockUpdates);
+
+		List<Object[]> deletes = new ArrayList<>();
+		deltaIds.forEach(id -> deletes.add(new Object[] {id}));
+		jdbcTemplate.batchUpdate("delete from inventory_deltas where id = ?", deletes);
+		return deltaIds.size();
+	}
+
+	public List<Map<String, Object>> findHotProductStock() {
+		return jdbcTemplate.queryForList("select id, stock from products where hot = true");
+	}
+
+	public Integer findStock(Long productId) {
+		return jdbcTemplate.queryForObject("select stock from products where id = ?", Integer.class, productId);
+	}
+
+	public int setHot(Long productId, boolean hot, long version) {
+		return jdbcTemplate.update("update products set hot = ?, modified_version = ? where id = ?", hot, version, productId);
+	}
+}
@@ -0,0 +1,98 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.Order;
+import com.example.demo.model.OrderItem;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Write path for order creation. Uses plain JDBC batches so an order costs a
+ * fixed number of round trips no matter how many lines it has.
+ * Stock is taken separately through {@link ProductRepository#reserveStock(Map, long)}.
+ */
+@Repository
+public class OrderJdbcRepository {
+
+	private static final int IN_CHUNK = 1000;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private SequenceIdAllocator sequenceIdAllocator;
+
+	/**
+	 * Inserts the order row, then all of its items in a single batch. Ids come
+	 * from the entities' sequences up front, so no generated keys are read back.
+	 */
+	public void insert(Order order) {
+		order.setId(sequenceIdAllocator.next("orders_seq"));
+		jdbcTemplate.update(
+				"insert into orders (id, user_id, order_date, total_amount, status) values (?, ?, ?, ?, ?)",
+				order.getId(),
+				order.getUser().getId(),
+				Timestamp.valueOf(order.getOrderDate()),
+				order.getTotalAmount().toBigDecimal(),
+				order.getStatus());
+
+		List<OrderItem> items = order.getItems();
+		for (OrderItem item : items) {
+			item.setId(sequenceIdAllocator.next("order_items_seq"));
+		}
+		jdbcTemplate.batchUpdate(
+				"insert into order_items (id, order_id, product_id, quantity, price) values (?, ?, ?, ?, ?)",
+				new BatchPreparedStatementSetter() {
+					@Override
+					public void setValues(PreparedStatement ps, int i) throws SQLException {
+						OrderItem item = items.get(i);
+						ps.setLong(1, item.getId());
+						ps.setLong(2, order.getId());
+						ps.setLong(3, item.getProduct().getId());
+						ps.setInt(4, item.getQuantity());
+						ps.setBigDecimal(5, item.getPrice().toBigDecimal());
+					}
+
+					@Override
+					public int getBatchSize() {
+						return items.size();
+					}
+				});
+	}
+
+	/** Current status of each existing order, read in chunks of {@value #IN_CHUNK} ids. */
+	public Map<Long, String> findStatuses(List<Long> orderIds) {
+		Map<Long, String> statuses = new HashMap<>();
+		for (int from = 0; from < orderIds.size(); from += IN_CHUNK) {
+			List<Long> chunk = orderIds.subList(from, Math.min(from + IN_CHUNK, orderIds.size()));
+			String placeholders = String.join(",", Collections.nCopies(chunk.size(), "?"));
+			jdbcTemplate.query("select id, status from orders where id in (" + placeholders + ")",
+					rs -> {
+						statuses.put(rs.getLong(1), rs.getString(2));
+					},
+					chunk.toArray());
+		}
+		return statuses;
+	}
+
+	/**
+	 * Moves each order to {@code status} only if it is still in the status it was
+	 * read with, in one batch. Returns the affected row count (1 or 0) per entry,
+	 * in iteration order of the map.
+	 */
+	public int[] updateStatuses(Map<Long, String> expectedStatusById, String status) {
+		List<Object[]> rows = new ArrayList<>(expectedStatusById.size());
+		expectedStatusById.forEach((id, expected) -> rows.add(new Object[] {status, id, expected}));
+		return jdbcTemplate.batchUpdate("update orders set status = ? where id = ? and status = ?", rows);
+	}
+}
@@ -1,14 +1,43 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.OrderExportRow;
 import com.example.demo.model.Order;
-import com.example.demo.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface OrderRepository extends JpaRepository<Order, Long> {
-	List<Order> findByUser(User user);
-	List<Order> findAllByOrderByOrderDateDesc();
-}
\ No newline at end of file
+public interface OrderRepository extends JpaRepository<Order, Long>, OrderRepositoryCustom {
+	// one query for the order, its user, its items and their products
+	@EntityGraph(attributePaths = {"user", "items", "items.product"})
+	Optional<Order> findWithItemsById(Long id);
+
+	@EntityGraph(attributePaths = {"items", "items.product"})
+	List<Order> findWithItemsByIdIn(Collection<Long> ids);
+
+	/**
+	 * Forward-only read of every order line in [from, to), grouped by order id.
+	 * Must be consumed inside a transaction and closed; rows are projections,
+	 * so nothing accumulates in the persistence context while streaming.
+	 */
+	@QueryHints({
+			@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"),
+			@QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+	})
+	@Query("select new com.example.demo.dto.OrderExportRow(o.id, u.id, u.email, o.orderDate, o.totalAmount, o.status,"
+			+ " i.id, p.id, p.name, i.quantity, i.price)"
+			+ " from Order o join o.user u left join o.items i left join i.product p"
+			+ " where o.orderDate >= :from and o.orderDate < :to order by o.id, i.id")
+	Stream<OrderExportRow> streamExportRows(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+}
@@ -0,0 +1,18 @@
+package com.example.demo.repository;
+
+import com.example.demo.dto.OrderDTO;
+import com.example.demo.util.KeysetCursor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface OrderRepositoryCustom {
+	/**
+	 * Orders newest first, ordered by (orderDate, id) descending and starting strictly
+	 * after {@code after}. Null filters are left out of the query so the matching
+	 * composite index can be used. Read-only projection: two queries per page
+	 * (orders with their user's email, then all of their items) however many rows.
+	 */
+	List<OrderDTO> findPage(Long userId, String status, LocalDateTime from, LocalDateTime to,
+	                        KeysetCursor after, int limit);
+}
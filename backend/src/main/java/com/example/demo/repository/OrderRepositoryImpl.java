@@ -0,0 +1,74 @@
+package com.example.demo.repository;
+
+import com.example.demo.dto.OrderDTO;
+import com.example.demo.dto.OrderItemDTO;
+import com.example.demo.util.KeysetCursor;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class OrderRepositoryImpl implements OrderRepositoryCustom {
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Override
+	public List<OrderDTO> findPage(Long userId, String status, LocalDateTime from, LocalDateTime to,
+	                               KeysetCursor after, int limit) {
+		StringBuilder jpql = new StringBuilder(
+				"select new com.example.demo.dto.OrderDTO(o.id, u.id, u.email, o.orderDate, o.totalAmount, o.status)"
+						+ " from Order o join o.user u where 1 = 1");
+		Map<String, Object> params = new LinkedHashMap<>();
+		if (userId != null) {
+			jpql.append(" and u.id = :userId");
+			params.put("userId", userId);
+		}
+		if (status != null) {
+			jpql.append(" and o.status = :status");
+			params.put("status", status);
+		}
+		if (from != null) {
+			jpql.append(" and o.orderDate >= :from");
+			params.put("from", from);
+		}
+		if (to != null) {
+			jpql.append(" and o.orderDate < :to");
+			params.put("to", to);
+		}
+		if (after != null) {
+			jpql.append(" and (o.orderDate < :afterDate or (o.orderDate = :afterDate and o.id < :afterId))");
+			params.put("afterDate", after.getDate());
+			params.put("afterId", after.getId());
+		}
+		jpql.append(" order by o.orderDate desc, o.id desc");
+
+		TypedQuery<OrderDTO> query = entityManager.createQuery(jpql.toString(), OrderDTO.class);
+		params.forEach(query::setParameter);
+		List<OrderDTO> orders = query.setMaxResults(limit).getResultList();
+		if (!orders.isEmpty()) {
+			fillItems(orders);
+		}
+		return orders;
+	}
+
+	private void fillItems(List<OrderDTO> orders) {
+		Map<Long, OrderDTO> byId = new HashMap<>();
+		orders.forEach(order -> byId.put(order.getId(), order));
+
+		List<Object[]> rows = entityManager.createQuery(
+						"select i.order.id, new com.example.demo.dto.OrderItemDTO(i.id, p.id, p.name, i.quantity, i.price)"
+								+ " from OrderItem i join i.product p where i.order.id in :orderIds order by i.id",
+						Object[].class)
+				.setParameter("orderIds", byId.keySet())
+				.getResultList();
+		for (Object[] row : rows) {
+			byId.get((Long) row[0]).getItems().add((OrderItemDTO) row[1]);
+		}
+	}
+}
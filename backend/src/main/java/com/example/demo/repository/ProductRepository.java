@@ -1,13 +1,30 @@
 package com.example.demo.repository;
 
 import com.example.demo.model.Product;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ProductRepository extends JpaRepository <Product,Long >{
+public interface ProductRepository extends JpaRepository <Product,Long >, ProductRepositoryCustom {
 	List<Product> findByStockLessThan(int stock);
+
+	// id and name only, for building the search index without loading entities
+	@Query("select p.id, p.name from Product p")
+	List<Object[]> findAllNames();
+
+	// id, name, price, stock and image for the low-stock monitor's in-memory mirror
+	@Query("select p.id, p.name, p.price, p.stock, p.imageUrl from Product p")
+	List<Object[]> findStockView();
+
+	@Query("select p from Product p where p.modifiedVersion > :since and p.modifiedVersion <= :until order by p.modifiedVersion")
+	List<Product> findChangedBetween(@Param("since") long since, @Param("until") long until, Limit limit);
+
+	@Query("select max(p.modifiedVersion) from Product p")
+	Long findMaxModifiedVersion();
 }
@@ -0,0 +1,53 @@
+package com.example.demo.repository;
+
+import com.example.demo.dto.ProductFilter;
+import com.example.demo.model.Product;
+import com.example.demo.model.ProductSort;
+import com.example.demo.util.ProductCursor;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public interface ProductRepositoryCustom {
+	/**
+	 * Atomically takes stock for every product in one JDBC batch. Each row is only
+	 * decremented if enough stock remains; the result holds the affected row count
+	 * (1 or 0) per entry, in iteration order of the map. Rows are stamped with
+	 * consecutive change versions starting at {@code firstVersion}.
+	 */
+	int[] reserveStock(Map<Long, Integer> quantitiesByProductId, long firstVersion);
+
+	/** Gives stock back (cancelled orders) in one JDBC batch, stamping versions as {@link #reserveStock} does. */
+	void restoreStock(Map<Long, Integer> quantitiesByProductId, long firstVersion);
+
+	/**
+	 * One page of products matching {@code filter}, ordered by {@code sort} and
+	 * then id in the same direction, starting strictly after {@code after}.
+	 */
+	List<Product> findPage(ProductFilter filter, ProductSort sort, boolean descending, ProductCursor after, int limit);
+
+	/** Which of the given ids exist. */
+	Set<Long> findExistingIds(Collection<Long> ids);
+
+	/** Current stock of each given product that exists. */
+	Map<Long, Integer> findStockByIds(Collection<Long> ids);
+
+	/** Id of the oldest product with each given name; names without a product are absent. */
+	Map<String, Long> findIdsByName(Collection<String> names);
+
+	/**
+	 * Inserts new products in one JDBC batch; ids are drawn from products_seq and
+	 * set on the entities. Each product's modifiedVersion must already be set.
+	 */
+	void insertAll(List<Product> products);
+
+	/**
+	 * Overwrites name, price, image and modifiedVersion of existing products in one
+	 * JDBC batch. Stock moves by the difference between each product's stock and
+	 * the value in {@code stockRead}, so orders committed after that read keep
+	 * their decrements; a product missing from it keeps its stock.
+	 */
+	void updateAll(List<Product> products, Map<Long, Integer> stockRead);
+}
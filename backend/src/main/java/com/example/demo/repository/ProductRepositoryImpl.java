@@ -0,0 +1,202 @@
+package com.example.demo.repository;
+
+import com.example.demo.dto.ProductFilter;
+import com.example.demo.model.Product;
+import com.example.demo.model.ProductSort;
+import com.example.demo.util.ProductCursor;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private SequenceIdAllocator sequenceIdAllocator;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	private static final int IN_CHUNK = 1000;
+
+	@Override
+	public int[] reserveStock(Map<Long, Integer> quantitiesByProductId, long firstVersion) {
+		Long[] ids = quantitiesByProductId.keySet().toArray(new Long[0]);
+		Integer[] quantities = quantitiesByProductId.values().toArray(new Integer[0]);
+		return jdbcTemplate.batchUpdate(
+				"update products set stock = stock - ?, modified_version = ? where id = ? and stock >= ?",
+				new BatchPreparedStatementSetter() {
+					@Override
+					public void setValues(PreparedStatement ps, int i) throws SQLException {
+						ps.setInt(1, quantities[i]);
+						ps.setLong(2, firstVersion + i);
+						ps.setLong(3, ids[i]);
+						ps.setInt(4, quantities[i]);
+					}
+
+					@Override
+					public int getBatchSize() {
+						return ids.length;
+					}
+				});
+	}
+
+	@Override
+	public void restoreStock(Map<Long, Integer> quantitiesByProductId, long firstVersion) {
+		List<Object[]> rows = new ArrayList<>(quantitiesByProductId.size());
+		quantitiesByProductId.forEach((productId, quantity) -> rows.add(new Object[] {quantity, firstVersion + rows.size(), productId}));
+		jdbcTemplate.batchUpdate("update products set stock = stock + ?, modified_version = ? where id = ?", rows);
+	}
+
+	@Override
+	public List<Product> findPage(ProductFilter filter, ProductSort sort, boolean descending, ProductCursor after, int limit) {
+		StringBuilder jpql = new StringBuilder("select p from Product p where 1 = 1");
+		Map<String, Object> params = new LinkedHashMap<>();
+		if (filter.getMinPrice() != null) {
+			jpql.append(" and p.price >= :minPrice");
+			params.put("minPrice", filter.getMinPrice());
+		}
+		if (filter.getMaxPrice() != null) {
+			jpql.append(" and p.price <= :maxPrice");
+			params.put("maxPrice", filter.getMaxPrice());
+		}
+		if (filter.isInStockOnly()) {
+			jpql.append(" and p.stock > 0");
+		}
+		if (filter.getNamePrefix() != null) {
+			jpql.append(" and p.name like :namePrefix escape '\\'");
+			params.put("namePrefix", escapeLike(filter.getNamePrefix()) + "%");
+		}
+
+		String property = sort.property();
+		String direction = descending ? "desc" : "asc";
+		if (after != null) {
+			String beyond = descending ? "<" : ">";
+			jpql.append(" and (").append(property).append(' ').append(beyond).append(" :afterValue or (")
+					.append(property).append(" = :afterValue and p.id ").append(beyond).append(" :afterId))");
+			params.put("afterValue", after.getValue());
+			params.put("afterId", after.getId());
+		}
+		// both keys in one direction so the (column, id) index can be walked either way
+		jpql.append(" order by ").append(property).append(' ').append(direction).append(", p.id ").append(direction);
+
+		TypedQuery<Product> query = entityManager.createQuery(jpql.toString(), Product.class);
+		params.forEach(query::setParameter);
+		return query.setMaxResults(limit).getResultList();
+	}
+
+	@Override
+	public Set<Long> findExistingIds(Collection<Long> ids) {
+		Set<Long> existing = new HashSet<>();
+		forEachChunk(new ArrayList<>(ids), (placeholders, chunk) -> jdbcTemplate.query(
+				"select id from products where id in (" + placeholders + ")",
+				rs -> {
+					existing.add(rs.getLong(1));
+				},
+				chunk));
+		return existing;
+	}
+
+	@Override
+	public Map<Long, Integer> findStockByIds(Collection<Long> ids) {
+		Map<Long, Integer> stock = new HashMap<>();
+		forEachChunk(new ArrayList<>(ids), (placeholders, chunk) -> jdbcTemplate.query(
+				"select id, stock from products where id in (" + placeholders + ")",
+				rs -> {
+					stock.put(rs.getLong(1), rs.getInt(2));
+				},
+				chunk));
+		return stock;
+	}
+
+	@Override
+	public Map<String, Long> findIdsByName(Collection<String> names) {
+		Map<String, Long> ids = new HashMap<>();
+		forEachChunk(new ArrayList<>(names), (placeholders, chunk) -> jdbcTemplate.query(
+				"select name, min(id) from products where name in (" + placeholders + ") group by name",
+				rs -> {
+					ids.put(rs.getString(1), rs.getLong(2));
+				},
+				chunk));
+		return ids;
+	}
+
+	@Override
+	public void insertAll(List<Product> products) {
+		for (Product product : products) {
+			product.setId(sequenceIdAllocator.next("products_seq"));
+		}
+		// typed setters: a null through setObject makes the driver look up parameter metadata per row
+		jdbcTemplate.batchUpdate("insert into products (id, name, price, stock, image_url, hot, modified_version) values (?, ?, ?, ?, ?, ?, ?)",
+				new BatchPreparedStatementSetter() {
+					@Override
+					public void setValues(PreparedStatement ps, int i) throws SQLException {
+						Product product = products.get(i);
+						ps.setLong(1, product.getId());
+						ps.setString(2, product.getName());
+						ps.setBigDecimal(3, product.getPrice());
+						ps.setInt(4, product.getStock());
+						ps.setString(5, product.getImageUrl());
+						ps.setBoolean(6, product.isHot());
+						ps.setLong(7, product.getModifiedVersion());
+					}
+
+					@Override
+					public int getBatchSize() {
+						return products.size();
+					}
+				});
+	}
+
+	@Override
+	public void updateAll(List<Product> products, Map<Long, Integer> stockRead) {
+		jdbcTemplate.batchUpdate("update products set name = ?, price = ?, stock = stock + ?, image_url = ?, modified_version = ? where id = ?",
+				new BatchPreparedStatementSetter() {
+					@Override
+					public void setValues(PreparedStatement ps, int i) throws SQLException {
+						Product product = products.get(i);
+						ps.setString(1, product.getName());
+						ps.setBigDecimal(2, product.getPrice());
+						Integer read = stockRead.get(product.getId());
+						ps.setInt(3, read == null ? 0 : product.getStock() - read);
+						ps.setString(4, product.getImageUrl());
+						ps.setLong(5, product.getModifiedVersion());
+						ps.setLong(6, product.getId());
+					}
+
+					@Override
+					public int getBatchSize() {
+						return products.size();
+					}
+				});
+	}
+
+	private static <T> void forEachChunk(List<T> values, BiConsumer<String, Object[]> query) {
+		for (int from = 0; from < values.size(); from += IN_CHUNK) {
+			List<T> chunk = values.subList(from, Math.min(from + IN_CHUNK, values.size()));
+			query.accept(String.join(",", Collections.nCopies(chunk.size(), "?")), chunk.toArray());
+		}
+	}
+
+	private static String escapeLike(String value) {
+		return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+	}
+}
@@ -0,0 +1,19 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.ProductTombstone;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ProductTombstoneRepository extends JpaRepository<ProductTombstone, Long> {
+	@Query("select t from ProductTombstone t where t.version > :since and t.version <= :until order by t.version")
+	List<ProductTombstone> findChangedBetween(@Param("since") long since, @Param("until") long until, Limit limit);
+
+	@Query("select max(t.version) from ProductTombstone t")
+	Long findMaxVersion();
+}
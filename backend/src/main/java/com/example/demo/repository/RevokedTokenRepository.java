@@ -0,0 +1,28 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, String> {
+	List<RevokedToken> findByExpiresAtAfter(LocalDateTime now);
+
+	// plain insert (no merge), so a token revoked concurrently fails on the primary key
+	@Transactional
+	@Modifying
+	@Query(value = "insert into revoked_tokens (token_id, expires_at) values (:tokenId, :expiresAt)", nativeQuery = true)
+	int insert(@Param("tokenId") String tokenId, @Param("expiresAt") LocalDateTime expiresAt);
+
+	@Transactional
+	@Modifying
+	@Query("delete from RevokedToken t where t.expiresAt < :now")
+	int deleteExpired(@Param("now") LocalDateTime now);
+}
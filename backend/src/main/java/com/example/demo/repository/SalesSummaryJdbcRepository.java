@@ -0,0 +1,74 @@
+package com.example.demo.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Aggregate queries over orders/order_items used to rebuild sales analytics,
+ * and the upserts that keep the summary tables (sales_daily, sales_product,
+ * sales_status) in step with the in-memory aggregates.
+ * Cancelled orders count towards sales_status only.
+ */
+@Repository
+public class SalesSummaryJdbcRepository {
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	/** Rows of (day, orders, revenue). */
+	public void scanDailyOrders(RowCallbackHandler handler) {
+		jdbcTemplate.query(
+				"select cast(order_date as date), count(*), sum(total_amount) from orders"
+						+ " where upper(status) <> 'CANCELLED' group by cast(order_date as date)",
+				handler);
+	}
+
+	/** Rows of (day, units). */
+	public void scanDailyUnits(RowCallbackHandler handler) {
+		jdbcTemplate.query(
+				"select cast(o.order_date as date), sum(i.quantity) from order_items i join orders o on o.id = i.order_id"
+						+ " where upper(o.status) <> 'CANCELLED' group by cast(o.order_date as date)",
+				handler);
+	}
+
+	/** Rows of (product id, product name, units, revenue). */
+	public void scanProductSales(RowCallbackHandler handler) {
+		jdbcTemplate.query(
+				"select i.product_id, p.name, sum(i.quantity), sum(i.price * i.quantity)"
+						+ " from order_items i join orders o on o.id = i.order_id left join products p on p.id = i.product_id"
+						+ " where upper(o.status) <> 'CANCELLED' group by i.product_id, p.name",
+				handler);
+	}
+
+	/** Rows of (status, orders). */
+	public void scanStatusCounts(RowCallbackHandler handler) {
+		jdbcTemplate.query("select status, count(*) from orders group by status", handler);
+	}
+
+	public void deleteAll() {
+		jdbcTemplate.update("delete from sales_daily");
+		jdbcTemplate.update("delete from sales_product");
+		jdbcTemplate.update("delete from sales_status");
+	}
+
+	/** Rows of (day, orders, units, revenue). */
+	public void upsertDaily(List<Object[]> rows) {
+		jdbcTemplate.batchUpdate(
+				"merge into sales_daily (sales_day, orders, units, revenue) key (sales_day) values (?, ?, ?, ?)", rows);
+	}
+
+	/** Rows of (product id, product name, units, revenue). */
+	public void upsertProducts(List<Object[]> rows) {
+		jdbcTemplate.batchUpdate(
+				"merge into sales_product (product_id, product_name, units, revenue) key (product_id) values (?, ?, ?, ?)", rows);
+	}
+
+	/** Rows of (status, orders). */
+	public void upsertStatuses(List<Object[]> rows) {
+		jdbcTemplate.batchUpdate("merge into sales_status (status, orders) key (status) values (?, ?)", rows);
+	}
+}
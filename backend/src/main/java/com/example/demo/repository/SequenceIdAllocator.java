@@ -0,0 +1,47 @@
+package com.example.demo.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ids for rows written with plain JDBC, drawn from the same sequences Hibernate
+ * uses for the entities. Follows Hibernate's pooled-lo optimizer (configured in
+ * application.properties): each sequence value is the first id of a block of
+ * {@link #BLOCK_SIZE}, which must equal the entities' allocationSize. Both
+ * sides therefore take disjoint blocks, and one sequence call serves 50 ids.
+ */
+@Repository
+public class SequenceIdAllocator {
+
+	public static final int BLOCK_SIZE = 50;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private final ConcurrentHashMap<String, Block> blocks = new ConcurrentHashMap<>();
+
+	public long next(String sequence) {
+		return blocks.computeIfAbsent(sequence, Block::new).next();
+	}
+
+	private final class Block {
+		private final String sequence;
+		private long next;
+		private long end;
+
+		Block(String sequence) {
+			this.sequence = sequence;
+		}
+
+		synchronized long next() {
+			if (next == end) {
+				next = jdbcTemplate.queryForObject("select next value for " + sequence, Long.class);
+				end = next + BLOCK_SIZE;
+			}
+			return next++;
+		}
+	}
+}
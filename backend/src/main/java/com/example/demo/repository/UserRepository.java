@@ -2,11 +2,17 @@ package com.example.demo.repository;
 
 import com.example.demo.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 
+import java.util.List;
 import java.util.Optional;
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
 	Optional<User> findByEmail(String email);
+
+	// only users whose tokens were ever revoked; everyone else is implicitly at version 0
+	@Query("select u.id, u.tokenVersion from User u where u.tokenVersion > 0")
+	List<Object[]> findBumpedTokenVersions();
 }
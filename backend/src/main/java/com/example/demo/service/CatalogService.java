@@ -0,0 +1,302 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Product;
+import com.example.demo.repository.ProductRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialized snapshot of the product catalog for GET /api/products, held both
+ * as plain JSON and gzip-compressed so a request costs neither serialization
+ * nor compression. Every write bumps a version and queues a rebuild on a
+ * background thread, so a burst of writes costs one reload. Readers keep
+ * getting the previous snapshot until that rebuild replaces it, so product
+ * edits show up as soon as it finishes without a request ever loading the
+ * catalog itself; only the first request of all builds one. Stock changes from
+ * orders are folded in at most every {@code catalog.stock-refresh-ms},
+ * otherwise a busy checkout would reload the catalog on nearly every read.
+ * The ETag is a hash of the serialized bytes, so it stays valid across
+ * restarts and agrees between instances serving the same catalog.
+ */
+@Service
+public class CatalogService {
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private ProductChangeLog productChangeLog;
+
+	private static final Log logger = LogFactory.getLog(CatalogService.class);
+
+	@Value("${catalog.stock-refresh-ms:1000}")
+	private long stockRefreshMillis;
+
+	// bumped by every change; productVersion only by changes other than order stock
+	private final AtomicLong version = new AtomicLong(1);
+	private final AtomicLong productVersion = new AtomicLong(1);
+
+	private volatile Snapshot snapshot;
+
+	private final ScheduledExecutorService rebuilder = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "catalog-rebuild");
+		t.setDaemon(true);
+		return t;
+	});
+	// at most one immediate and one delayed (stock) rebuild queued at a time
+	private final AtomicBoolean immediateRebuildQueued = new AtomicBoolean();
+	private final AtomicBoolean stockRebuildQueued = new AtomicBoolean();
+
+	private final LongAdder rebuilds = new LongAdder();
+	private final LongAdder backgroundRebuilds = new LongAdder();
+	private final LongAdder rebuildNanos = new LongAdder();
+
+	@PreDestroy
+	public void shutdown() {
+		rebuilder.shutdownNow();
+	}
+
+	/**
+	 * The latest snapshot built. When it is out of date it is still returned, and
+	 * a background rebuild is queued if none is (one normally is already).
+	 */
+	public Snapshot getSnapshot() {
+		Snapshot current = snapshot;
+		if (current == null) {
+			return rebuild();
+		}
+		if (isStale(current)) {
+			queueRebuild(immediateRebuildQueued, 0);
+		}
+		return current;
+	}
+
+	/**
+	 * The snapshot at the current version, rebuilt on the calling thread if need be.
+	 * For callers that must see their own writes; requests use {@link #getSnapshot()}.
+	 */
+	public Snapshot getCurrentSnapshot() {
+		Snapshot current = snapshot;
+		if (current != null && !isStale(current)) {
+			return current;
+		}
+		return rebuild();
+	}
+
+	/** A product was added, edited, removed or moved in or out of the ledger. */
+	public void productsChanged() {
+		afterCommit(() -> {
+			productVersion.incrementAndGet();
+			version.incrementAndGet();
+			queueRebuild(immediateRebuildQueued, 0);
+		});
+	}
+
+	/** Orders moved products.stock; picked up within {@code catalog.stock-refresh-ms}. */
+	public void stockChanged() {
+		afterCommit(() -> {
+			version.incrementAndGet();
+			Snapshot current = snapshot;
+			long due = current == null ? 0 : current.builtAtMillis + stockRefreshMillis - System.currentTimeMillis();
+			queueRebuild(stockRebuildQueued, Math.max(due, 0));
+		});
+	}
+
+	public long getVersion() {
+		return version.get();
+	}
+
+	public Map<String, Object> getStats() {
+		Snapshot current = snapshot;
+		long count = rebuilds.sum();
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("version", version.get());
+		stats.put("snapshotVersion", current == null ? null : current.getVersion());
+		stats.put("products", current == null ? 0 : current.getProductCount());
+		stats.put("bytes", current == null ? 0 : current.getBody().length);
+		stats.put("gzipBytes", current == null ? 0 : current.getGzipBody().length);
+		stats.put("rebuilds", count);
+		stats.put("backgroundRebuilds", backgroundRebuilds.sum());
+		stats.put("averageRebuildMillis", count == 0 ? 0.0 : rebuildNanos.sum() / 1_000_000.0 / count);
+		return stats;
+	}
+
+	private void queueRebuild(AtomicBoolean queued, long delayMillis) {
+		if (!queued.compareAndSet(false, true)) {
+			return;
+		}
+		rebuilder.schedule(() -> {
+			queued.set(false);
+			try {
+				Snapshot before = snapshot;
+				if (rebuild() != before) {
+					backgroundRebuilds.increment();
+				}
+			} catch (RuntimeException e) {
+				// the next reader to find the snapshot stale queues another
+				logger.warn("Background catalog rebuild failed", e);
+			}
+		}, delayMillis, TimeUnit.MILLISECONDS);
+	}
+
+	private boolean isStale(Snapshot current) {
+		if (current.productVersion != productVersion.get()) {
+			return true;
+		}
+		return current.getVersion() != version.get()
+				&& System.currentTimeMillis() - current.builtAtMillis >= stockRefreshMillis;
+	}
+
+	// the background thread, the first request or getCurrentSnapshot; whoever comes second takes the result
+	private synchronized Snapshot rebuild() {
+		Snapshot current = snapshot;
+		if (current != null && !isStale(current)) {
+			return current;
+		}
+		// read the versions before the products: a write landing during the load leaves the snapshot stale
+		long startVersion = version.get();
+		long startProductVersion = productVersion.get();
+		// everything up to here has committed, so the rows read below include it
+		long changeVersion = productChangeLog.getSafeVersion();
+		long start = System.nanoTime();
+		List<Product> products = productRepository.findAll();
+		byte[] body;
+		try {
+			body = objectMapper.writeValueAsBytes(products);
+		} catch (JsonProcessingException e) {
+			throw new RuntimeException("Failed to serialize catalog", e);
+		}
+		String hash = hash(body);
+		Snapshot rebuilt = new Snapshot(startVersion, startProductVersion, changeVersion, products.size(), body,
+				"\"" + hash + "\"", gzip(body), "\"" + hash + "-gz\"");
+		snapshot = rebuilt;
+		rebuildNanos.add(System.nanoTime() - start);
+		rebuilds.increment();
+		return rebuilt;
+	}
+
+	private static String hash(byte[] body) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+			return Base64.getUrlEncoder().withoutPadding().encodeToString(digest).substring(0, 22);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	// compressed once per version, so the slowest level is affordable
+	private static byte[] gzip(byte[] body) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + 64);
+		try (GZIPOutputStream gzip = new GZIPOutputStream(out, 64 * 1024) {
+			{
+				def.setLevel(Deflater.BEST_COMPRESSION);
+			}
+		}) {
+			gzip.write(body);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return out.toByteArray();
+	}
+
+	// a snapshot rebuilt before the writer commits would otherwise be marked current with the old rows
+	private static void afterCommit(Runnable bump) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			bump.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				bump.run();
+			}
+		});
+	}
+
+	/** Immutable serialized catalog at one version. */
+	public static final class Snapshot {
+		private final long version;
+		private final long productVersion;
+		private final long changeVersion;
+		private final long builtAtMillis = System.currentTimeMillis();
+		private final int productCount;
+		private final byte[] body;
+		private final String etag;
+		private final byte[] gzipBody;
+		private final String gzipEtag;
+
+		private Snapshot(long version, long productVersion, long changeVersion, int productCount, byte[] body,
+		                 String etag, byte[] gzipBody, String gzipEtag) {
+			this.version = version;
+			this.productVersion = productVersion;
+			this.changeVersion = changeVersion;
+			this.productCount = productCount;
+			this.body = body;
+			this.etag = etag;
+			this.gzipBody = gzipBody;
+			this.gzipEtag = gzipEtag;
+		}
+
+		public long getVersion() {
+			return version;
+		}
+
+		/** A {@link ProductChangeLog} version the snapshot is complete up to; where delta sync starts. */
+		public long getChangeVersion() {
+			return changeVersion;
+		}
+
+		public int getProductCount() {
+			return productCount;
+		}
+
+		/** JSON array of all products; shared, do not modify. */
+		public byte[] getBody() {
+			return body;
+		}
+
+		/** Strong ETag, quoted. */
+		public String getEtag() {
+			return etag;
+		}
+
+		/** The same JSON, gzip-compressed; shared, do not modify. */
+		public byte[] getGzipBody() {
+			return gzipBody;
+		}
+
+		/** Strong ETag of the gzip representation, which must differ from the plain one. */
+		public String getGzipEtag() {
+			return gzipEtag;
+		}
+	}
+}
@@ -0,0 +1,12 @@
+package com.example.demo.service;
+
+/**
+ * Thrown for a catalog change version this server never handed out, e.g. one
+ * from before a restart with a fresh database; the client has to reload the catalog.
+ */
+public class ChangeVersionExpiredException extends RuntimeException {
+
+	public ChangeVersionExpiredException(String message) {
+		super(message);
+	}
+}
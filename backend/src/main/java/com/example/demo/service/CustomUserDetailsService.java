@@ -2,7 +2,10 @@ package com.example.demo.service;
 
 import com.example.demo.model.User;
 import com.example.demo.repository.UserRepository;
+import com.example.demo.util.BoundedTtlCache;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -12,6 +15,7 @@ import org.springframework.stereotype.Service;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
@@ -19,11 +23,50 @@ public class CustomUserDetailsService implements UserDetailsService {
 	@Autowired
 	private UserRepository userRepository;
 
+	@Value("${user.cache.max-size:10000}")
+	private int cacheMaxSize;
+
+	@Value("${user.cache.ttl-seconds:300}")
+	private long cacheTtlSeconds;
+
+	// keyed by email; entries are dropped by UserService when the user changes
+	private BoundedTtlCache<String, UserDetails> cache;
+
+	@PostConstruct
+	public void init() {
+		cache = new BoundedTtlCache<>(cacheMaxSize, cacheTtlSeconds * 1000);
+	}
+
 	@Override
 	public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
+		return cache.get(email, this::loadFromDatabase);
+	}
+
+	public void evict(String email) {
+		cache.invalidate(email);
+	}
+
+	public Map<String, Object> getCacheStats() {
+		return cache.stats();
+	}
+
+	/**
+	 * Builds UserDetails from an already loaded user (e.g. during login) and
+	 * primes the cache, avoiding a second lookup by email.
+	 */
+	public UserDetails toUserDetails(User user) {
+		UserDetails userDetails = buildUserDetails(user);
+		cache.put(user.getEmail(), userDetails);
+		return userDetails;
+	}
+
+	private UserDetails loadFromDatabase(String email) {
 		User user = userRepository.findByEmail(email)
 				.orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
+		return buildUserDetails(user);
+	}
 
+	private static UserDetails buildUserDetails(User user) {
 		// Convert the user's role to GrantedAuthority
 		GrantedAuthority authority = new SimpleGrantedAuthority(user.getRole());
 		List<GrantedAuthority> authorities = Collections.singletonList(authority);
@@ -0,0 +1,137 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.OrderDTO;
+import com.example.demo.repository.IdempotencyRecordRepository;
+import com.example.demo.util.BoundedTtlCache;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Idempotency keys for order creation. Results are looked up in memory first,
+ * then in the idempotency_keys table; concurrent requests with the same key
+ * share one execution. The key row is written in the same transaction as the
+ * order, so an order is never committed without its key; an expired row still
+ * waiting for the purge is replaced in that transaction.
+ */
+@Service
+public class IdempotencyService {
+
+	public static final int MAX_KEY_LENGTH = 100;
+
+	@Autowired
+	private IdempotencyRecordRepository idempotencyRecordRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Value("${idempotency.ttl-hours:24}")
+	private long ttlHours;
+
+	@Value("${idempotency.cache.max-size:10000}")
+	private int cacheMaxSize;
+
+	private BoundedTtlCache<String, OrderDTO> cache;
+
+	private final LongAdder executions = new LongAdder();
+	private final LongAdder replays = new LongAdder();
+
+	@PostConstruct
+	public void init() {
+		cache = new BoundedTtlCache<>(cacheMaxSize, ttlHours * 3_600_000);
+	}
+
+	/**
+	 * Runs {@code createOrder} once per user and key. Later calls with the same
+	 * key return the stored result. Failures are not stored, so a request that
+	 * failed can be retried with the same key.
+	 */
+	public OrderDTO execute(Long userId, String key, Supplier<OrderDTO> createOrder) {
+		if (key.length() > MAX_KEY_LENGTH) {
+			throw new RuntimeException("Idempotency-Key must be at most " + MAX_KEY_LENGTH + " characters");
+		}
+		String scopedKey = userId + ":" + key;
+		OrderDTO cached = cache.get(scopedKey);
+		if (cached != null) {
+			replays.increment();
+			return cached;
+		}
+		return cache.get(scopedKey, k -> loadOrExecute(k, createOrder));
+	}
+
+	public Map<String, Object> getStats() {
+		Map<String, Object> stats = cache.stats();
+		stats.put("executions", executions.sum());
+		stats.put("replays", replays.sum());
+		return stats;
+	}
+
+	@Scheduled(fixedDelayString = "${idempotency.purge-ms:3600000}")
+	public void purgeExpired() {
+		idempotencyRecordRepository.deleteExpired(LocalDateTime.now());
+	}
+
+	private OrderDTO loadOrExecute(String scopedKey, Supplier<OrderDTO> createOrder) {
+		OrderDTO stored = findStored(scopedKey);
+		if (stored != null) {
+			replays.increment();
+			return stored;
+		}
+
+		try {
+			OrderDTO result = transactionTemplate.execute(status -> {
+				idempotencyRecordRepository.deleteIfExpired(scopedKey, LocalDateTime.now());
+				OrderDTO dto = createOrder.get();
+				idempotencyRecordRepository.insert(scopedKey, dto.getId(), serialize(dto),
+						LocalDateTime.now().plusHours(ttlHours));
+				return dto;
+			});
+			executions.increment();
+			return result;
+		} catch (DataIntegrityViolationException e) {
+			// another instance stored this key first; its order stands and ours rolled back
+			stored = findStored(scopedKey);
+			if (stored == null) {
+				throw e;
+			}
+			replays.increment();
+			return stored;
+		}
+	}
+
+	private OrderDTO findStored(String scopedKey) {
+		return idempotencyRecordRepository.findByIdempotencyKeyAndExpiresAtAfter(scopedKey, LocalDateTime.now())
+				.map(record -> deserialize(record.getResponse()))
+				.orElse(null);
+	}
+
+	private String serialize(OrderDTO dto) {
+		try {
+			return objectMapper.writeValueAsString(dto);
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException("Could not serialize order response", e);
+		}
+	}
+
+	private OrderDTO deserialize(String json) {
+		try {
+			return objectMapper.readValue(json, OrderDTO.class);
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException("Could not read stored order response", e);
+		}
+	}
+}
@@ -0,0 +1,11 @@
+package com.example.demo.service;
+
+/**
+ * Thrown when an order status change is not allowed by {@link com.example.demo.model.OrderStatus}.
+ */
+public class IllegalStatusTransitionException extends RuntimeException {
+
+	public IllegalStatusTransitionException(String message) {
+		super(message);
+	}
+}
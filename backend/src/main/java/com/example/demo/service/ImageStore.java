@@ -0,0 +1,484 @@
+package com.example.demo.service;
+
+import jakarta.annotation.PostConstruct;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Product images on local disk, named by a hash of their content so a URL
+ * never changes meaning and can be cached for good. Originals are kept as
+ * uploaded. JPEG thumbnails in the widths of {@code images.thumbnail-widths}
+ * are made at upload, or on the first request after they were evicted, and
+ * live in a size-bounded LRU on disk. The smaller ones are also held in a
+ * size-bounded LRU in memory; everything else is streamed from its file
+ * rather than held in the heap.
+ */
+@Service
+public class ImageStore {
+
+	private static final Log logger = LogFactory.getLog(ImageStore.class);
+
+	// content hash (128 bits, hex) plus the original's format
+	private static final Pattern NAME = Pattern.compile("([0-9a-f]{32})\\.(jpg|png|gif)");
+
+	@Value("${images.dir:data/images}")
+	private String dir;
+
+	@Value("${images.max-upload-bytes:10485760}")
+	private int maxUploadBytes;
+
+	@Value("${images.max-pixels:16777216}")
+	private long maxPixels;
+
+	@Value("${images.thumbnail-widths:160,320,640}")
+	private int[] thumbnailWidths;
+
+	@Value("${images.jpeg-quality:0.8}")
+	private float jpegQuality;
+
+	@Value("${images.disk-cache-bytes:268435456}")
+	private long diskCacheBytes;
+
+	@Value("${images.memory-cache-bytes:16777216}")
+	private long memoryCacheBytes;
+
+	@Value("${images.memory-max-entry-bytes:65536}")
+	private int memoryMaxEntryBytes;
+
+	private Path originals;
+	private Path thumbnails;
+
+	// access-ordered: iteration starts at the least recently used entry; both guarded by this
+	private final LinkedHashMap<String, Long> diskEntries = new LinkedHashMap<>(256, 0.75f, true);
+	private long diskBytes;
+	private final LinkedHashMap<String, byte[]> memoryEntries = new LinkedHashMap<>(256, 0.75f, true);
+	private long memoryBytes;
+
+	// one thread makes a given thumbnail, concurrent requests for it wait for the result
+	private final ConcurrentHashMap<String, CompletableFuture<byte[]>> generating = new ConcurrentHashMap<>();
+
+	private final LongAdder uploads = new LongAdder();
+	private final LongAdder memoryHits = new LongAdder();
+	private final LongAdder diskHits = new LongAdder();
+	private final LongAdder generated = new LongAdder();
+	private final LongAdder generateNanos = new LongAdder();
+	private final LongAdder diskEvictions = new LongAdder();
+	private final LongAdder fileTransfers = new LongAdder();
+	private final LongAdder sendfileTransfers = new LongAdder();
+
+	@PostConstruct
+	public void init() throws IOException {
+		originals = Files.createDirectories(Path.of(dir, "originals"));
+		thumbnails = Files.createDirectories(Path.of(dir, "thumbnails"));
+		Arrays.sort(thumbnailWidths);
+		// thumbnails from before a restart count against the budget, oldest first
+		List<Path> existing;
+		try (Stream<Path> files = Files.list(thumbnails)) {
+			existing = files.filter(file -> Files.isRegularFile(file) && !file.getFileName().toString().startsWith(".")).toList();
+		}
+		Map<Path, Long> modified = new HashMap<>();
+		for (Path file : existing) {
+			modified.put(file, Files.getLastModifiedTime(file).toMillis());
+		}
+		List<Path> oldestFirst = new ArrayList<>(existing);
+		oldestFirst.sort(Comparator.comparing(modified::get));
+		for (Path file : oldestFirst) {
+			addToDisk(file.getFileName().toString(), Files.size(file));
+		}
+	}
+
+	/**
+	 * Stores an uploaded JPEG, PNG or GIF and makes its thumbnails. Returns the
+	 * image's name, e.g. {@code 3f2a...9c.jpg}; uploading the same bytes again
+	 * returns the same name.
+	 */
+	public String store(InputStream in) throws IOException {
+		byte[] bytes = in.readNBytes(maxUploadBytes + 1);
+		if (bytes.length > maxUploadBytes) {
+			throw new RuntimeException("Image is larger than " + maxUploadBytes + " bytes");
+		}
+		String extension = extension(bytes);
+		if (extension == null) {
+			throw new RuntimeException("Image must be JPEG, PNG or GIF");
+		}
+		String hash = hash(bytes);
+		String name = hash + "." + extension;
+		BufferedImage image = decode(bytes);
+
+		Path original = originals.resolve(name);
+		if (!Files.exists(original)) {
+			writeAtomically(original, bytes);
+		}
+		// largest first, each scaled from the one before, which halves the work for the usual 2x steps
+		BufferedImage current = image;
+		for (int i = thumbnailWidths.length - 1; i >= 0; i--) {
+			long start = System.nanoTime();
+			// sized from the original, so rounding does not build up along the chain
+			current = scale(current, image.getWidth(), image.getHeight(), thumbnailWidths[i]);
+			byte[] jpeg = encodeJpeg(current);
+			generateNanos.add(System.nanoTime() - start);
+			generated.increment();
+			putThumbnail(thumbnailName(hash, thumbnailWidths[i]), jpeg);
+		}
+		uploads.increment();
+		return name;
+	}
+
+	/**
+	 * The original (width null) or the thumbnail at the smallest configured
+	 * width of at least {@code width}; null if there is no such image.
+	 */
+	public Image open(String name, Integer width) throws IOException {
+		Matcher matcher = NAME.matcher(name);
+		if (!matcher.matches()) {
+			return null;
+		}
+		String hash = matcher.group(1);
+		Path original = originals.resolve(name);
+		if (width == null) {
+			if (!Files.exists(original)) {
+				return null;
+			}
+			return new Image(original, true, null, Files.size(original), contentType(matcher.group(2)), "\"" + hash + "\"");
+		}
+
+		int snapped = snapWidth(width);
+		String key = thumbnailName(hash, snapped);
+		String etag = "\"" + hash + "-" + snapped + "\"";
+		byte[] cached = fromMemory(key);
+		if (cached != null) {
+			memoryHits.increment();
+			return new Image(null, false, cached, cached.length, "image/jpeg", etag);
+		}
+		Path file = thumbnails.resolve(key);
+		Long size = touchDisk(key);
+		if (size != null && Files.exists(file)) {
+			diskHits.increment();
+			if (size <= memoryMaxEntryBytes) {
+				byte[] bytes = Files.readAllBytes(file);
+				putInMemory(key, bytes);
+				return new Image(null, false, bytes, bytes.length, "image/jpeg", etag);
+			}
+			return new Image(file, false, null, size, "image/jpeg", etag);
+		}
+		if (!Files.exists(original)) {
+			return null;
+		}
+		byte[] jpeg = generate(key, original, snapped);
+		return new Image(null, false, jpeg, jpeg.length, "image/jpeg", etag);
+	}
+
+	/**
+	 * Copies a file-backed image with {@link FileChannel#transferTo}. The kernel
+	 * only does the copy itself into a file or socket channel; into a channel over
+	 * the servlet stream the JDK reads the file through a buffer in user space.
+	 * Throws {@link java.nio.file.NoSuchFileException} for a thumbnail evicted since
+	 * {@link #open}, before anything was written.
+	 */
+	public void transferTo(Image image, WritableByteChannel target) throws IOException {
+		try (FileChannel channel = FileChannel.open(image.getFile(), StandardOpenOption.READ)) {
+			long position = 0;
+			while (position < image.getLength()) {
+				position += channel.transferTo(position, image.getLength() - position, target);
+			}
+		}
+		fileTransfers.increment();
+	}
+
+	/** The container wrote the file itself (Tomcat sendfile). */
+	public void sentWithSendfile() {
+		sendfileTransfers.increment();
+	}
+
+	public int snapWidth(int width) {
+		for (int candidate : thumbnailWidths) {
+			if (candidate >= width) {
+				return candidate;
+			}
+		}
+		return thumbnailWidths[thumbnailWidths.length - 1];
+	}
+
+	public Map<String, Object> getStats() {
+		long count = generated.sum();
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("uploads", uploads.sum());
+		stats.put("memoryHits", memoryHits.sum());
+		stats.put("diskHits", diskHits.sum());
+		stats.put("generated", count);
+		stats.put("averageGenerateMillis", count == 0 ? 0.0 : generateNanos.sum() / 1_000_000.0 / count);
+		stats.put("diskEvictions", diskEvictions.sum());
+		stats.put("fileTransfers", fileTransfers.sum());
+		stats.put("sendfileTransfers", sendfileTransfers.sum());
+		synchronized (this) {
+			stats.put("diskEntries", diskEntries.size());
+			stats.put("diskBytes", diskBytes);
+			stats.put("memoryEntries", memoryEntries.size());
+			stats.put("memoryBytes", memoryBytes);
+		}
+		return stats;
+	}
+
+	private byte[] generate(String key, Path original, int width) throws IOException {
+		CompletableFuture<byte[]> mine = new CompletableFuture<>();
+		CompletableFuture<byte[]> running = generating.putIfAbsent(key, mine);
+		if (running != null) {
+			return running.join();
+		}
+		try {
+			long start = System.nanoTime();
+			BufferedImage image = decode(Files.readAllBytes(original));
+			byte[] jpeg = encodeJpeg(scale(image, image.getWidth(), image.getHeight(), width));
+			generateNanos.add(System.nanoTime() - start);
+			generated.increment();
+			putThumbnail(key, jpeg);
+			mine.complete(jpeg);
+			return jpeg;
+		} catch (IOException | RuntimeException e) {
+			mine.completeExceptionally(e);
+			throw e;
+		} finally {
+			generating.remove(key);
+		}
+	}
+
+	private void putThumbnail(String key, byte[] jpeg) throws IOException {
+		writeAtomically(thumbnails.resolve(key), jpeg);
+		addToDisk(key, jpeg.length);
+		if (jpeg.length <= memoryMaxEntryBytes) {
+			putInMemory(key, jpeg);
+		}
+	}
+
+	private synchronized Long touchDisk(String key) {
+		return diskEntries.get(key);
+	}
+
+	private void addToDisk(String key, long size) {
+		List<String> evicted = new ArrayList<>();
+		synchronized (this) {
+			Long previous = diskEntries.put(key, size);
+			diskBytes += size - (previous == null ? 0 : previous);
+			Iterator<Map.Entry<String, Long>> oldest = diskEntries.entrySet().iterator();
+			while (diskBytes > diskCacheBytes && oldest.hasNext()) {
+				Map.Entry<String, Long> entry = oldest.next();
+				if (entry.getKey().equals(key)) {
+					continue;
+				}
+				diskBytes -= entry.getValue();
+				evicted.add(entry.getKey());
+				oldest.remove();
+			}
+		}
+		for (String victim : evicted) {
+			diskEvictions.increment();
+			try {
+				Files.deleteIfExists(thumbnails.resolve(victim));
+			} catch (IOException e) {
+				logger.warn("Could not delete evicted thumbnail " + victim, e);
+			}
+		}
+	}
+
+	private synchronized byte[] fromMemory(String key) {
+		return memoryEntries.get(key);
+	}
+
+	private synchronized void putInMemory(String key, byte[] bytes) {
+		byte[] previous = memoryEntries.put(key, bytes);
+		memoryBytes += bytes.length - (previous == null ? 0 : previous.length);
+		Iterator<Map.Entry<String, byte[]>> oldest = memoryEntries.entrySet().iterator();
+		while (memoryBytes > memoryCacheBytes && oldest.hasNext()) {
+			Map.Entry<String, byte[]> entry = oldest.next();
+			if (entry.getKey().equals(key)) {
+				continue;
+			}
+			memoryBytes -= entry.getValue().length;
+			oldest.remove();
+		}
+	}
+
+	// checks the dimensions from the header first, so a tiny file cannot claim a huge bitmap
+	private BufferedImage decode(byte[] bytes) throws IOException {
+		try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+			Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+			if (!readers.hasNext()) {
+				throw new RuntimeException("Unreadable image");
+			}
+			ImageReader reader = readers.next();
+			try {
+				reader.setInput(input, true, true);
+				if ((long) reader.getWidth(0) * reader.getHeight(0) > maxPixels) {
+					throw new RuntimeException("Image has more than " + maxPixels + " pixels");
+				}
+				return reader.read(0);
+			} catch (IOException e) {
+				throw new RuntimeException("Unreadable image: " + e.getMessage());
+			} finally {
+				reader.dispose();
+			}
+		}
+	}
+
+	// halving steps with bilinear filtering: close to area averaging, at a fraction of its cost
+	private static BufferedImage scale(BufferedImage source, int originalWidth, int originalHeight, int width) {
+		int targetWidth = Math.min(width, originalWidth);
+		int targetHeight = Math.max(1, (int) Math.round(originalHeight * (double) targetWidth / originalWidth));
+		BufferedImage current = source;
+		int w = source.getWidth();
+		int h = source.getHeight();
+		do {
+			w = Math.max(w / 2, targetWidth);
+			h = Math.max(h / 2, targetHeight);
+			BufferedImage next = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+			Graphics2D g = next.createGraphics();
+			try {
+				g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+				// JPEG has no alpha: transparent areas become white rather than black
+				g.drawImage(current, 0, 0, w, h, Color.WHITE, null);
+			} finally {
+				g.dispose();
+			}
+			current = next;
+		} while (w != targetWidth || h != targetHeight);
+		return current;
+	}
+
+	private byte[] encodeJpeg(BufferedImage image) throws IOException {
+		ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+		ByteArrayOutputStream out = new ByteArrayOutputStream(32 * 1024);
+		try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+			writer.setOutput(output);
+			ImageWriteParam param = writer.getDefaultWriteParam();
+			param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+			param.setCompressionQuality(jpegQuality);
+			param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+			writer.write(null, new IIOImage(image, null, null), param);
+		} finally {
+			writer.dispose();
+		}
+		return out.toByteArray();
+	}
+
+	// readers never see a half-written file
+	private static void writeAtomically(Path target, byte[] bytes) throws IOException {
+		Path temp = Files.createTempFile(target.getParent(), ".upload-", ".tmp");
+		try {
+			Files.write(temp, bytes);
+			Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	private static String thumbnailName(String hash, int width) {
+		return hash + "-" + width + ".jpg";
+	}
+
+	private static String extension(byte[] bytes) {
+		if (bytes.length >= 3 && (bytes[0] & 0xff) == 0xff && (bytes[1] & 0xff) == 0xd8 && (bytes[2] & 0xff) == 0xff) {
+			return "jpg";
+		}
+		if (bytes.length >= 8 && (bytes[0] & 0xff) == 0x89 && bytes[1] == 'P' && bytes[2] == 'N' && bytes[3] == 'G') {
+			return "png";
+		}
+		if (bytes.length >= 6 && bytes[0] == 'G' && bytes[1] == 'I' && bytes[2] == 'F' && bytes[3] == '8') {
+			return "gif";
+		}
+		return null;
+	}
+
+	private static String contentType(String extension) {
+		return switch (extension) {
+			case "png" -> "image/png";
+			case "gif" -> "image/gif";
+			default -> "image/jpeg";
+		};
+	}
+
+	private static String hash(byte[] bytes) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+			return HexFormat.of().formatHex(digest, 0, 16);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/** One image ready to send: either a file or bytes held in memory. */
+	public static final class Image {
+		private final Path file;
+		private final boolean original;
+		private final byte[] bytes;
+		private final long length;
+		private final String contentType;
+		private final String etag;
+
+		private Image(Path file, boolean original, byte[] bytes, long length, String contentType, String etag) {
+			this.file = file;
+			this.original = original;
+			this.bytes = bytes;
+			this.length = length;
+			this.contentType = contentType;
+			this.etag = etag;
+		}
+
+		/** Null when the image is in memory. */
+		public Path getFile() {
+			return file;
+		}
+
+		/** Uploads are never deleted; a thumbnail file can be evicted at any time. */
+		public boolean isOriginal() {
+			return original;
+		}
+
+		/** Null when the image is served from its file; shared, do not modify. */
+		public byte[] getBytes() {
+			return bytes;
+		}
+
+		public long getLength() {
+			return length;
+		}
+
+		public String getContentType() {
+			return contentType;
+		}
+
+		/** Strong ETag, quoted. */
+		public String getEtag() {
+			return etag;
+		}
+	}
+}
@@ -0,0 +1,283 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.InventoryJdbcRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Optional in-memory stock for hot products (flash sales). Orders reserve hot
+ * lines with a CAS on a per-product counter instead of updating the contended
+ * products row; the committed quantities are journaled in inventory_deltas in
+ * the order's own transaction and folded into products.stock in batches.
+ * On startup any journal left behind by a crash is applied before the counters
+ * are loaded, so the ledger always starts from the true stock.
+ */
+@Service
+public class InventoryLedger {
+
+	@Autowired
+	private InventoryJdbcRepository inventoryJdbcRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private CatalogService catalogService;
+
+	@Autowired
+	private ProductChangeLog productChangeLog;
+
+	@Value("${inventory.ledger.enabled:false}")
+	private boolean enabled;
+
+	private static final int FLUSH_BATCH_SIZE = 10_000;
+
+	private final ConcurrentHashMap<Long, AtomicInteger> available = new ConcurrentHashMap<>();
+
+	private final LongAdder reservations = new LongAdder();
+	private final LongAdder failedReservations = new LongAdder();
+	private final LongAdder casRetries = new LongAdder();
+	private final AtomicLong pendingDeltas = new AtomicLong();
+	private final AtomicLong oldestPendingMillis = new AtomicLong();
+	private final AtomicLong lastFlushMillis = new AtomicLong();
+	private final LongAdder flushes = new LongAdder();
+	private final LongAdder flushedDeltas = new LongAdder();
+
+	@PostConstruct
+	public void init() {
+		if (!enabled) {
+			return;
+		}
+		// crash recovery: journal rows are committed orders that never reached products.stock
+		flush();
+		for (Map<String, Object> row : inventoryJdbcRepository.findHotProductStock()) {
+			available.put(((Number) row.get("id")).longValue(), new AtomicInteger(((Number) row.get("stock")).intValue()));
+		}
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public boolean isHot(Long productId) {
+		return enabled && available.containsKey(productId);
+	}
+
+	/**
+	 * Takes stock for all lines or none; check {@link Reservation#isSuccessful()}.
+	 * When called inside a transaction the reservation settles with it: journaled
+	 * on commit, handed back on rollback. Callers that undo only part of a
+	 * transaction (a savepoint) must {@link Reservation#cancel()} it themselves.
+	 */
+	public Reservation reserve(Map<Long, Integer> quantitiesByProductId) {
+		Map<Long, Integer> taken = new LinkedHashMap<>();
+		for (Map.Entry<Long, Integer> line : quantitiesByProductId.entrySet()) {
+			if (!tryTake(line.getKey(), line.getValue())) {
+				release(taken);
+				failedReservations.increment();
+				return new Reservation(null, line.getKey());
+			}
+			taken.put(line.getKey(), line.getValue());
+		}
+		reservations.increment();
+
+		Reservation reservation = new Reservation(taken, null);
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCompletion(int status) {
+					if (status == STATUS_COMMITTED) {
+						reservation.commit();
+					} else {
+						reservation.cancel();
+					}
+				}
+			});
+		}
+		return reservation;
+	}
+
+	/** Journals reserved quantities; call in the same transaction as {@link #reserve(Map)}. */
+	public void recordDeltas(Map<Long, Integer> quantitiesByProductId) {
+		inventoryJdbcRepository.insertDeltas(quantitiesByProductId);
+	}
+
+	/**
+	 * Gives stock of hot products back, e.g. for a cancelled order. Journaled as
+	 * negative deltas in the caller's transaction; the counters grow once it commits.
+	 */
+	public void restock(Map<Long, Integer> quantitiesByProductId) {
+		Map<Long, Integer> negated = new LinkedHashMap<>();
+		quantitiesByProductId.forEach((productId, quantity) -> negated.put(productId, -quantity));
+		inventoryJdbcRepository.insertDeltas(negated);
+
+		Runnable settle = () -> {
+			release(quantitiesByProductId);
+			if (pendingDeltas.getAndAdd(negated.size()) == 0) {
+				oldestPendingMillis.set(System.currentTimeMillis());
+			}
+		};
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			settle.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				settle.run();
+			}
+		});
+	}
+
+	// serialized so two flushes never apply the same journal rows
+	@Scheduled(fixedDelayString = "${inventory.ledger.flush-ms:1000}")
+	public synchronized void flush() {
+		if (!enabled) {
+			return;
+		}
+		int applied;
+		do {
+			Integer batch = transactionTemplate.execute(status -> inventoryJdbcRepository.applyDeltas(FLUSH_BATCH_SIZE, productChangeLog::next));
+			applied = batch == null ? 0 : batch;
+			if (applied > 0) {
+				long done = applied;
+				pendingDeltas.updateAndGet(pending -> Math.max(0, pending - done));
+				flushedDeltas.add(applied);
+				catalogService.stockChanged();
+			}
+		} while (applied == FLUSH_BATCH_SIZE);
+		flushes.increment();
+		lastFlushMillis.set(System.currentTimeMillis());
+		oldestPendingMillis.set(pendingDeltas.get() == 0 ? 0 : lastFlushMillis.get());
+	}
+
+	/**
+	 * Moves a product in or out of the ledger. Pending deltas are flushed first so
+	 * the counter (or, when leaving, products.stock) starts from the true value.
+	 */
+	public synchronized void setHot(Long productId, boolean hot) {
+		if (hot) {
+			flush();
+			Integer stock = transactionTemplate.execute(status -> {
+				inventoryJdbcRepository.setHot(productId, true, productChangeLog.next());
+				return inventoryJdbcRepository.findStock(productId);
+			});
+			available.put(productId, new AtomicInteger(stock));
+		} else {
+			available.remove(productId);
+			flush();
+			transactionTemplate.executeWithoutResult(status ->
+					inventoryJdbcRepository.setHot(productId, false, productChangeLog.next()));
+		}
+	}
+
+	/**
+	 * An admin overwrote the stock of a product: make the ledger agree.
+	 * Callers flush before saving so the new value is not reduced by old deltas.
+	 */
+	public void resetStock(Long productId, int stock) {
+		AtomicInteger counter = available.get(productId);
+		if (counter != null) {
+			counter.set(stock);
+		}
+	}
+
+	public void remove(Long productId) {
+		available.remove(productId);
+	}
+
+	public Integer getAvailable(Long productId) {
+		AtomicInteger counter = available.get(productId);
+		return counter == null ? null : counter.get();
+	}
+
+	public Map<String, Object> getStats() {
+		long oldest = oldestPendingMillis.get();
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("enabled", enabled);
+		stats.put("hotProducts", available.size());
+		stats.put("reservations", reservations.sum());
+		stats.put("failedReservations", failedReservations.sum());
+		stats.put("casRetries", casRetries.sum());
+		stats.put("pendingDeltas", pendingDeltas.get());
+		stats.put("flushLagMillis", oldest == 0 ? 0 : System.currentTimeMillis() - oldest);
+		stats.put("flushes", flushes.sum());
+		stats.put("flushedDeltas", flushedDeltas.sum());
+		return stats;
+	}
+
+	private boolean tryTake(Long productId, int quantity) {
+		AtomicInteger counter = available.get(productId);
+		if (counter == null) {
+			return false;
+		}
+		while (true) {
+			int current = counter.get();
+			if (current < quantity) {
+				return false;
+			}
+			if (counter.compareAndSet(current, current - quantity)) {
+				return true;
+			}
+			casRetries.increment();
+		}
+	}
+
+	private void release(Map<Long, Integer> taken) {
+		taken.forEach((productId, quantity) -> {
+			AtomicInteger counter = available.get(productId);
+			if (counter != null) {
+				counter.addAndGet(quantity);
+			}
+		});
+	}
+
+	/** Stock taken for one order; settles exactly once. */
+	public final class Reservation {
+		private final Map<Long, Integer> taken;
+		private final Long shortProductId;
+		private final AtomicBoolean settled = new AtomicBoolean();
+
+		private Reservation(Map<Long, Integer> taken, Long shortProductId) {
+			this.taken = taken;
+			this.shortProductId = shortProductId;
+		}
+
+		public boolean isSuccessful() {
+			return shortProductId == null;
+		}
+
+		/** The product that ran out, when the reservation failed. */
+		public Long getShortProductId() {
+			return shortProductId;
+		}
+
+		public void cancel() {
+			if (taken != null && settled.compareAndSet(false, true)) {
+				release(taken);
+			}
+		}
+
+		private void commit() {
+			if (taken != null && settled.compareAndSet(false, true)) {
+				if (pendingDeltas.getAndAdd(taken.size()) == 0) {
+					oldestPendingMillis.set(System.currentTimeMillis());
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,416 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.LowStockAlert;
+import com.example.demo.model.Product;
+import com.example.demo.repository.ProductRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the stock of every product in memory, fed by the writes that move it:
+ * orders and cancellations apply their quantities once they commit, admin
+ * edits and imports set the new value. Products below
+ * {@code inventory.low-stock.watch-below} are kept in a separate set, so the
+ * low-stock listings never touch the database.
+ * <p>
+ * When a product drops below {@code inventory.low-stock.alert-threshold}, or
+ * climbs back over it, an alert goes to every SSE subscriber. Each subscriber
+ * has its own bounded buffer keyed by product, so a product that keeps selling
+ * while a client is slow is sent once with its latest stock. If the buffer
+ * overflows the subscriber gets a fresh snapshot instead of the lost alerts.
+ * A periodic resync against products.stock repairs anything missed, such as
+ * stock changed directly in the database.
+ */
+@Service
+public class LowStockMonitor {
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private InventoryLedger inventoryLedger;
+
+	@Value("${inventory.low-stock.alert-threshold:5}")
+	private int alertThreshold;
+
+	@Value("${inventory.low-stock.watch-below:50}")
+	private int watchBelow;
+
+	@Value("${inventory.low-stock.subscriber-buffer:256}")
+	private int subscriberBuffer;
+
+	@Value("${inventory.low-stock.emitter-timeout-ms:1800000}")
+	private long emitterTimeoutMillis;
+
+	@Value("${inventory.low-stock.push-threads:2}")
+	private int pushThreads;
+
+	private final ConcurrentHashMap<Long, Tracked> products = new ConcurrentHashMap<>();
+	// the products below watchBelow; what the low-stock listings are served from
+	private final ConcurrentHashMap<Long, Tracked> low = new ConcurrentHashMap<>();
+	private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+	// stamps every change, so a resync can leave products alone that moved while it was reading
+	private final AtomicLong changeSequence = new AtomicLong();
+
+	private ExecutorService pushExecutor;
+
+	private final LongAdder alerts = new LongAdder();
+	private final LongAdder coalesced = new LongAdder();
+	private final LongAdder dropped = new LongAdder();
+	private final LongAdder eventsSent = new LongAdder();
+	private final LongAdder memoryReads = new LongAdder();
+	private final LongAdder databaseReads = new LongAdder();
+	private final LongAdder resyncCorrections = new LongAdder();
+
+	@PostConstruct
+	public void init() {
+		AtomicInteger counter = new AtomicInteger();
+		pushExecutor = Executors.newFixedThreadPool(Math.max(pushThreads, 1), r -> {
+			Thread t = new Thread(r, "low-stock-push-" + counter.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+		resync();
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		for (Subscriber subscriber : subscribers) {
+			subscriber.emitter.complete();
+		}
+		subscribers.clear();
+		pushExecutor.shutdownNow();
+	}
+
+	/** Products with stock below the threshold, lowest stock first. */
+	public List<Product> getLowStock(int threshold) {
+		if (threshold > watchBelow) {
+			databaseReads.increment();
+			return productRepository.findByStockLessThan(threshold);
+		}
+		memoryReads.increment();
+		return low.values().stream()
+				.filter(tracked -> tracked.stock.get() < threshold)
+				.sorted(Comparator.comparingInt((Tracked tracked) -> tracked.stock.get()).thenComparing(tracked -> tracked.id))
+				.map(this::toProduct)
+				.toList();
+	}
+
+	/** Orders took stock; applied once the surrounding transaction commits. */
+	public void recordTaken(Map<Long, Integer> quantitiesByProductId) {
+		Map<Long, Integer> quantities = new HashMap<>(quantitiesByProductId);
+		afterCommit(() -> quantities.forEach((id, quantity) -> adjust(id, -quantity)));
+	}
+
+	/** Cancelled orders gave stock back; applied once the surrounding transaction commits. */
+	public void recordReturned(Map<Long, Integer> quantitiesByProductId) {
+		Map<Long, Integer> quantities = new HashMap<>(quantitiesByProductId);
+		afterCommit(() -> quantities.forEach((id, quantity) -> adjust(id, quantity)));
+	}
+
+	/** A product was added or its stock overwritten by an admin. */
+	public void recordProduct(Product product) {
+		Long id = product.getId();
+		String name = product.getName();
+		BigDecimal price = product.getPrice();
+		String imageUrl = product.getImageUrl();
+		int stock = product.getStock();
+		afterCommit(() -> set(id, name, price, imageUrl, stock));
+	}
+
+	public void recordRemoved(Long productId) {
+		afterCommit(() -> products.computeIfPresent(productId, (id, tracked) -> {
+			changeSequence.incrementAndGet();
+			low.remove(id);
+			if (tracked.stock.get() < alertThreshold) {
+				publish(new LowStockAlert(id, tracked.name, tracked.stock.get(), alertThreshold, LowStockAlert.Level.REMOVED));
+			}
+			return null;
+		}));
+	}
+
+	/**
+	 * Opens an alert stream. The first event is a "snapshot" with the products
+	 * currently below the alert threshold; after that each "alert" event carries
+	 * one {@link LowStockAlert}. Another "snapshot" replaces the client's list
+	 * whenever alerts had to be dropped.
+	 */
+	public SseEmitter subscribe() {
+		return subscribe(new SseEmitter(emitterTimeoutMillis));
+	}
+
+	SseEmitter subscribe(SseEmitter emitter) {
+		Subscriber subscriber = new Subscriber(emitter);
+		emitter.onCompletion(() -> subscribers.remove(subscriber));
+		emitter.onTimeout(() -> subscribers.remove(subscriber));
+		emitter.onError(e -> subscribers.remove(subscriber));
+		subscribers.add(subscriber);
+		subscriber.requestSnapshot();
+		return emitter;
+	}
+
+	// a comment line keeps proxies from closing an idle stream and finds dead clients
+	@Scheduled(fixedDelayString = "${inventory.low-stock.heartbeat-ms:15000}")
+	public void heartbeat() {
+		for (Subscriber subscriber : subscribers) {
+			subscriber.requestHeartbeat();
+		}
+	}
+
+	/**
+	 * Reloads stock from the database (the ledger for hot products). A product
+	 * that changed in memory while the rows were read is skipped: its mirror
+	 * already holds that change and the next resync checks it again. The check
+	 * and the overwrite are one step per product, as every change goes through
+	 * {@code products.compute}.
+	 */
+	@Scheduled(fixedDelayString = "${inventory.low-stock.resync-ms:60000}", initialDelayString = "${inventory.low-stock.resync-ms:60000}")
+	public void resync() {
+		long start = changeSequence.get();
+		Set<Long> seen = new HashSet<>();
+		for (Object[] row : productRepository.findStockView()) {
+			Long id = ((Number) row[0]).longValue();
+			seen.add(id);
+			Integer hotStock = inventoryLedger.getAvailable(id);
+			int stock = hotStock != null ? hotStock : ((Number) row[3]).intValue();
+			products.compute(id, (key, tracked) -> {
+				if (tracked != null && tracked.changedAt > start) {
+					return tracked;
+				}
+				if (tracked != null && tracked.stock.get() != stock) {
+					resyncCorrections.increment();
+				}
+				return update(tracked != null ? tracked : new Tracked(key), (String) row[1], (BigDecimal) row[2], (String) row[4], stock);
+			});
+		}
+		for (Long id : products.keySet()) {
+			if (!seen.contains(id)) {
+				products.computeIfPresent(id, (key, tracked) -> {
+					if (tracked.changedAt > start) {
+						return tracked;
+					}
+					low.remove(key);
+					return null;
+				});
+			}
+		}
+	}
+
+	public Map<String, Object> getStats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("trackedProducts", products.size());
+		stats.put("belowWatch", low.size());
+		stats.put("alertThreshold", alertThreshold);
+		stats.put("subscribers", subscribers.size());
+		stats.put("alerts", alerts.sum());
+		stats.put("eventsSent", eventsSent.sum());
+		stats.put("coalesced", coalesced.sum());
+		stats.put("dropped", dropped.sum());
+		stats.put("memoryReads", memoryReads.sum());
+		stats.put("databaseReads", databaseReads.sum());
+		stats.put("resyncCorrections", resyncCorrections.sum());
+		return stats;
+	}
+
+	// a product not loaded yet is left to the next resync
+	private void adjust(Long id, int delta) {
+		products.computeIfPresent(id, (key, tracked) -> {
+			tracked.changedAt = changeSequence.incrementAndGet();
+			int now = tracked.stock.addAndGet(delta);
+			changed(tracked, now - delta, now);
+			return tracked;
+		});
+	}
+
+	private void set(Long id, String name, BigDecimal price, String imageUrl, int stock) {
+		products.compute(id, (key, tracked) -> update(tracked != null ? tracked : new Tracked(key), name, price, imageUrl, stock));
+	}
+
+	// inside products.compute for the product, like every other change to it
+	private Tracked update(Tracked tracked, String name, BigDecimal price, String imageUrl, int stock) {
+		tracked.name = name;
+		tracked.price = price;
+		tracked.imageUrl = imageUrl;
+		tracked.changedAt = changeSequence.incrementAndGet();
+		int old = tracked.stock.getAndSet(stock);
+		changed(tracked, old, stock);
+		return tracked;
+	}
+
+	private void changed(Tracked tracked, int old, int now) {
+		if (now < watchBelow) {
+			low.put(tracked.id, tracked);
+		} else {
+			low.remove(tracked.id);
+		}
+		LowStockAlert.Level level = null;
+		if (now < alertThreshold && now != old) {
+			// every further sale of a low product alerts again; subscribers coalesce them
+			level = now <= 0 ? LowStockAlert.Level.OUT_OF_STOCK : LowStockAlert.Level.LOW;
+		} else if (now >= alertThreshold && old < alertThreshold) {
+			level = LowStockAlert.Level.RESTOCKED;
+		}
+		if (level != null) {
+			publish(new LowStockAlert(tracked.id, tracked.name, now, alertThreshold, level));
+		}
+	}
+
+	private void publish(LowStockAlert alert) {
+		alerts.increment();
+		for (Subscriber subscriber : subscribers) {
+			subscriber.offer(alert);
+		}
+	}
+
+	private Product toProduct(Tracked tracked) {
+		Product product = new Product(tracked.name, tracked.price, tracked.stock.get());
+		product.setId(tracked.id);
+		product.setImageUrl(tracked.imageUrl);
+		product.setHot(inventoryLedger.isHot(tracked.id));
+		return product;
+	}
+
+	private static void afterCommit(Runnable change) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			change.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				change.run();
+			}
+		});
+	}
+
+	private static final class Tracked {
+		final Long id;
+		final AtomicInteger stock = new AtomicInteger(Integer.MAX_VALUE);
+		volatile String name;
+		volatile BigDecimal price;
+		volatile String imageUrl;
+		volatile long changedAt;
+
+		Tracked(Long id) {
+			this.id = id;
+		}
+	}
+
+	/** One SSE client: pending alerts by product, drained by the push executor. */
+	private final class Subscriber {
+		final SseEmitter emitter;
+		// guarded by this
+		private final LinkedHashMap<Long, LowStockAlert> pending = new LinkedHashMap<>();
+		private boolean snapshotDue;
+		private boolean heartbeatDue;
+		private boolean draining;
+
+		Subscriber(SseEmitter emitter) {
+			this.emitter = emitter;
+		}
+
+		void offer(LowStockAlert alert) {
+			synchronized (this) {
+				// removing first moves a repeated product to the back, behind alerts still waiting
+				if (pending.remove(alert.getProductId()) != null) {
+					coalesced.increment();
+				} else if (pending.size() >= subscriberBuffer) {
+					Iterator<Long> oldest = pending.keySet().iterator();
+					oldest.next();
+					oldest.remove();
+					dropped.increment();
+					snapshotDue = true;
+				}
+				pending.put(alert.getProductId(), alert);
+			}
+			schedule();
+		}
+
+		void requestSnapshot() {
+			synchronized (this) {
+				snapshotDue = true;
+			}
+			schedule();
+		}
+
+		void requestHeartbeat() {
+			synchronized (this) {
+				heartbeatDue = true;
+			}
+			schedule();
+		}
+
+		private void schedule() {
+			synchronized (this) {
+				if (draining) {
+					return;
+				}
+				draining = true;
+			}
+			pushExecutor.execute(this::drain);
+		}
+
+		private void drain() {
+			while (true) {
+				List<LowStockAlert> batch;
+				boolean snapshot;
+				boolean heartbeat;
+				synchronized (this) {
+					if (pending.isEmpty() && !snapshotDue && !heartbeatDue) {
+						draining = false;
+						return;
+					}
+					batch = new ArrayList<>(pending.values());
+					pending.clear();
+					snapshot = snapshotDue;
+					heartbeat = heartbeatDue;
+					snapshotDue = false;
+					heartbeatDue = false;
+				}
+				try {
+					if (snapshot) {
+						// read when sent, so it is newer than any alert that was waiting
+						emitter.send(SseEmitter.event().name("snapshot").data(getLowStock(alertThreshold), MediaType.APPLICATION_JSON));
+						eventsSent.increment();
+					} else {
+						for (LowStockAlert alert : batch) {
+							emitter.send(SseEmitter.event().name("alert").data(alert, MediaType.APPLICATION_JSON));
+							eventsSent.increment();
+						}
+					}
+					if (heartbeat) {
+						emitter.send(SseEmitter.event().comment("ping"));
+					}
+				} catch (IOException | IllegalStateException e) {
+					// the client went away; the emitter's callbacks may not fire for a failed write
+					subscribers.remove(this);
+					emitter.completeWithError(e);
+					synchronized (this) {
+						pending.clear();
+						draining = false;
+					}
+					return;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,193 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.OrderDTO;
+import com.example.demo.dto.OrderExportRow;
+import com.example.demo.dto.OrderItemDTO;
+import com.example.demo.repository.OrderRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Streams every order in a date range to an output stream, as NDJSON (one order
+ * per line, with its items) or CSV (one row per order line). Rows are written as
+ * the cursor advances, so memory use does not depend on the number of orders.
+ */
+@Service
+public class OrderExportService {
+
+	public enum Format { NDJSON, CSV }
+
+	private static final Log logger = LogFactory.getLog(OrderExportService.class);
+
+	private static final LocalDateTime EARLIEST = LocalDateTime.of(1970, 1, 1, 0, 0);
+	private static final LocalDateTime LATEST = LocalDateTime.of(9999, 12, 31, 0, 0);
+	private static final byte[] NEWLINE = {'\n'};
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	private TransactionTemplate readOnlyTransaction;
+
+	private final LongAdder exports = new LongAdder();
+	private final LongAdder rowsExported = new LongAdder();
+	private final AtomicInteger inProgress = new AtomicInteger();
+	private final AtomicLong lastRows = new AtomicLong();
+	private final AtomicLong lastDurationMillis = new AtomicLong();
+
+	@PostConstruct
+	public void init() {
+		readOnlyTransaction = new TransactionTemplate(transactionManager);
+		readOnlyTransaction.setReadOnly(true);
+	}
+
+	public static Format parseFormat(String format) {
+		try {
+			return Format.valueOf(format.trim().toUpperCase());
+		} catch (IllegalArgumentException e) {
+			throw new RuntimeException("Unsupported export format: " + format);
+		}
+	}
+
+	/** Writes the export and returns the number of order lines written. */
+	public long export(Format format, LocalDateTime from, LocalDateTime to, OutputStream target) throws IOException {
+		long start = System.nanoTime();
+		inProgress.incrementAndGet();
+		OutputStream out = new BufferedOutputStream(target, 64 * 1024);
+		try {
+			Long rows = readOnlyTransaction.execute(status -> {
+				try (Stream<OrderExportRow> stream = orderRepository.streamExportRows(
+						from == null ? EARLIEST : from, to == null ? LATEST : to)) {
+					return format == Format.CSV ? writeCsv(stream.iterator(), out) : writeNdjson(stream.iterator(), out);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+			out.flush();
+
+			long millis = (System.nanoTime() - start) / 1_000_000;
+			exports.increment();
+			rowsExported.add(rows);
+			lastRows.set(rows);
+			lastDurationMillis.set(millis);
+			logger.info("Exported " + rows + " order lines as " + format + " in " + millis + " ms ("
+					+ Math.round(rowsPerSecond(rows, millis)) + " rows/s)");
+			return rows;
+		} catch (UncheckedIOException e) {
+			// usually the client went away mid-download
+			throw e.getCause();
+		} finally {
+			inProgress.decrementAndGet();
+		}
+	}
+
+	public Map<String, Object> getStats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("exports", exports.sum());
+		stats.put("inProgress", inProgress.get());
+		stats.put("rowsExported", rowsExported.sum());
+		stats.put("lastRows", lastRows.get());
+		stats.put("lastDurationMillis", lastDurationMillis.get());
+		stats.put("lastRowsPerSecond", rowsPerSecond(lastRows.get(), lastDurationMillis.get()));
+		return stats;
+	}
+
+	private long writeNdjson(Iterator<OrderExportRow> rows, OutputStream out) throws IOException {
+		long count = 0;
+		OrderDTO current = null;
+		while (rows.hasNext()) {
+			OrderExportRow row = rows.next();
+			// rows arrive grouped by order id: emit an order once its last line has been read
+			if (current == null || !current.getId().equals(row.getOrderId())) {
+				if (current != null) {
+					writeJsonLine(current, out);
+				}
+				current = new OrderDTO(row.getOrderId(), row.getUserId(), row.getUserEmail(),
+						row.getOrderDate(), row.getTotalAmount(), row.getStatus());
+			}
+			if (row.getItemId() != null) {
+				current.getItems().add(new OrderItemDTO(row.getItemId(), row.getProductId(), row.getProductName(),
+						row.getQuantity(), row.getPrice()));
+			}
+			count++;
+		}
+		if (current != null) {
+			writeJsonLine(current, out);
+		}
+		return count;
+	}
+
+	private void writeJsonLine(OrderDTO order, OutputStream out) throws IOException {
+		// writeValueAsBytes leaves the response stream open, unlike writeValue(OutputStream, ...)
+		out.write(objectMapper.writeValueAsBytes(order));
+		out.write(NEWLINE);
+	}
+
+	private long writeCsv(Iterator<OrderExportRow> rows, OutputStream out) throws IOException {
+		out.write(("order_id,order_date,user_id,user_email,status,total_amount,"
+				+ "item_id,product_id,product_name,quantity,price\n").getBytes(StandardCharsets.UTF_8));
+		long count = 0;
+		StringBuilder line = new StringBuilder(256);
+		while (rows.hasNext()) {
+			OrderExportRow row = rows.next();
+			line.setLength(0);
+			line.append(row.getOrderId()).append(',')
+					.append(row.getOrderDate()).append(',')
+					.append(row.getUserId()).append(',');
+			appendCsv(line, row.getUserEmail()).append(',');
+			appendCsv(line, row.getStatus()).append(',')
+					.append(row.getTotalAmount()).append(',')
+					.append(orEmpty(row.getItemId())).append(',')
+					.append(orEmpty(row.getProductId())).append(',');
+			appendCsv(line, row.getProductName()).append(',')
+					.append(orEmpty(row.getQuantity())).append(',')
+					.append(orEmpty(row.getPrice())).append('\n');
+			out.write(line.toString().getBytes(StandardCharsets.UTF_8));
+			count++;
+		}
+		return count;
+	}
+
+	private static StringBuilder appendCsv(StringBuilder line, String value) {
+		if (value == null) {
+			return line;
+		}
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+			return line.append(value);
+		}
+		return line.append('"').append(value.replace("\"", "\"\"")).append('"');
+	}
+
+	private static Object orEmpty(Object value) {
+		return value == null ? "" : value;
+	}
+
+	private static double rowsPerSecond(long rows, long millis) {
+		return millis == 0 ? rows : rows * 1000.0 / millis;
+	}
+}
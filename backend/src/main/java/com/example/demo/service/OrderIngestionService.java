@@ -0,0 +1,295 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.OrderItemRequest;
+import com.example.demo.model.Order;
+import com.example.demo.repository.OrderJdbcRepository;
+import com.example.demo.util.BoundedTtlCache;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Optional async checkout. Requests are queued on a bounded in-process queue and
+ * a writer thread drains them in batches, placing every order of a batch in one
+ * transaction (each under its own savepoint, so one sold-out order does not sink
+ * the others). The savepoints are plain JDBC ones: Hibernate's JPA dialect cannot
+ * create them, and everything placeOrder writes goes through JDBC anyway. Clients follow the returned ticket for the outcome.
+ */
+@Service
+public class OrderIngestionService {
+
+	private static final Log logger = LogFactory.getLog(OrderIngestionService.class);
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private OrderJdbcRepository orderJdbcRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Value("${orders.async.enabled:false}")
+	private boolean enabled;
+
+	@Value("${orders.async.queue-capacity:10000}")
+	private int queueCapacity;
+
+	@Value("${orders.async.batch-size:100}")
+	private int batchSize;
+
+	@Value("${orders.async.ticket-ttl-seconds:3600}")
+	private long ticketTtlSeconds;
+
+	private BlockingQueue<OrderTicket> queue;
+	// queued and in-flight tickets; bounded by the queue, so never evicted
+	private final Map<String, OrderTicket> pending = new ConcurrentHashMap<>();
+	private BoundedTtlCache<String, OrderTicket> tickets;
+	private TransactionTemplate batchTransaction;
+	private Thread writer;
+	private volatile boolean running;
+
+	private final LongAdder accepted = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder created = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+	private final LongAdder batches = new LongAdder();
+	private final LongAdder batchedOrders = new LongAdder();
+	private final LongAccumulator maxBatch = new LongAccumulator(Long::max, 0);
+	private final LongAdder latencyNanos = new LongAdder();
+	private final AtomicLong lastLatencyNanos = new AtomicLong();
+
+	@PostConstruct
+	public void init() {
+		if (!enabled) {
+			return;
+		}
+		queue = new ArrayBlockingQueue<>(queueCapacity);
+		// completed tickets stay readable for a while; the bound covers a full queue many times over
+		// and only ever evicts finished tickets
+		tickets = new BoundedTtlCache<>(queueCapacity * 10, ticketTtlSeconds * 1000);
+		batchTransaction = new TransactionTemplate(transactionManager);
+
+		running = true;
+		writer = new Thread(this::drainLoop, "order-writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	@PreDestroy
+	public void shutdown() throws InterruptedException {
+		if (writer == null) {
+			return;
+		}
+		running = false;
+		writer.interrupt();
+		writer.join(10_000);
+		// anything still queued gets written before the context goes away
+		List<OrderTicket> remaining = new ArrayList<>();
+		queue.drainTo(remaining);
+		if (!remaining.isEmpty()) {
+			writeBatch(remaining);
+		}
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Validates and queues an order. Throws {@link OrderQueueFullException} when
+	 * the queue is full instead of blocking the request thread.
+	 */
+	public OrderTicket submit(Long userId, List<OrderItemRequest> items) {
+		orderService.mergeQuantities(items);
+		OrderTicket ticket = new OrderTicket(userId, items);
+		pending.put(ticket.getId(), ticket);
+		if (!queue.offer(ticket)) {
+			pending.remove(ticket.getId());
+			rejected.increment();
+			throw new OrderQueueFullException("Too many orders in progress, try again shortly");
+		}
+		accepted.increment();
+		return ticket;
+	}
+
+	public OrderTicket getTicket(String ticketId) {
+		if (tickets == null) {
+			return null;
+		}
+		OrderTicket ticket = pending.get(ticketId);
+		return ticket != null ? ticket : tickets.get(ticketId);
+	}
+
+	public Map<String, Object> getStats() {
+		long batchCount = batches.sum();
+		long done = created.sum() + failed.sum();
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("enabled", enabled);
+		stats.put("queueDepth", queue == null ? 0 : queue.size());
+		stats.put("queueCapacity", queueCapacity);
+		stats.put("accepted", accepted.sum());
+		stats.put("rejected", rejected.sum());
+		stats.put("created", created.sum());
+		stats.put("failed", failed.sum());
+		stats.put("batches", batchCount);
+		stats.put("averageBatchSize", batchCount == 0 ? 0.0 : (double) batchedOrders.sum() / batchCount);
+		stats.put("maxBatchSize", maxBatch.get());
+		stats.put("averageLatencyMillis", done == 0 ? 0.0 : latencyNanos.sum() / 1_000_000.0 / done);
+		stats.put("lastLatencyMillis", lastLatencyNanos.get() / 1_000_000.0);
+		return stats;
+	}
+
+	private void drainLoop() {
+		List<OrderTicket> batch = new ArrayList<>(batchSize);
+		while (running) {
+			try {
+				OrderTicket first = queue.poll(1, TimeUnit.SECONDS);
+				if (first == null) {
+					continue;
+				}
+				batch.add(first);
+				queue.drainTo(batch, batchSize - 1);
+				writeBatch(batch);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (RuntimeException e) {
+				logger.error("Order batch failed", e);
+			} finally {
+				batch.clear();
+			}
+		}
+	}
+
+	private void writeBatch(List<OrderTicket> batch) {
+		batches.increment();
+		batchedOrders.add(batch.size());
+		maxBatch.accumulate(batch.size());
+
+		Map<OrderTicket, Object> outcomes = new LinkedHashMap<>();
+		boolean[] placed = {false};
+		try {
+			batchTransaction.executeWithoutResult(status -> {
+				Connection con = DataSourceUtils.getConnection(dataSource);
+				for (OrderTicket ticket : batch) {
+					outcomes.put(ticket, placeUnderSavepoint(con, ticket));
+				}
+				placed[0] = true;
+			});
+		} catch (RuntimeException e) {
+			logger.warn("Group commit of " + batch.size() + " orders failed, retrying one by one", e);
+			if (placed[0]) {
+				// the commit itself failed and may still have gone through: keep what was written
+				recoverAfterFailedCommit(outcomes);
+			} else {
+				// failed before the commit, so the whole batch was rolled back
+				outcomes.clear();
+				batch.forEach(ticket -> outcomes.put(ticket, null));
+			}
+			outcomes.replaceAll((ticket, outcome) -> outcome != null ? outcome : createAlone(ticket));
+		}
+
+		// tickets are only completed after the commit, so a CREATED order is durable
+		outcomes.forEach((ticket, outcome) -> {
+			// finished tickets move to the cache, where old ones may be evicted
+			tickets.put(ticket.getId(), ticket);
+			if (outcome instanceof Order order) {
+				created.increment();
+				ticket.created(order);
+			} else {
+				failed.increment();
+				ticket.failed(((RuntimeException) outcome).getMessage());
+			}
+			pending.remove(ticket.getId());
+			long latency = System.nanoTime() - ticket.getEnqueuedNanos();
+			latencyNanos.add(latency);
+			lastLatencyNanos.set(latency);
+		});
+	}
+
+	/**
+	 * Leaves the outcome of every order found in the database and clears the
+	 * others (orders that were never written, or whose commit did not happen) for
+	 * a retry. If the orders cannot be read back, nothing is retried: the
+	 * outcome is unknown and placing them again could place them twice.
+	 */
+	private void recoverAfterFailedCommit(Map<OrderTicket, Object> outcomes) {
+		List<Long> ids = new ArrayList<>();
+		outcomes.values().forEach(outcome -> {
+			if (outcome instanceof Order order) {
+				ids.add(order.getId());
+			}
+		});
+		Map<Long, String> written;
+		try {
+			written = orderJdbcRepository.findStatuses(ids);
+		} catch (RuntimeException e) {
+			logger.error("Could not check which orders of a failed group commit were written", e);
+			outcomes.replaceAll((ticket, outcome) -> outcome instanceof Order
+					? new IllegalStateException("Order outcome unknown, check your orders before retrying")
+					: null);
+			return;
+		}
+		outcomes.replaceAll((ticket, outcome) ->
+				outcome instanceof Order order && written.containsKey(order.getId()) ? order : null);
+	}
+
+	private Object createAlone(OrderTicket ticket) {
+		try {
+			return orderService.createOrder(ticket.getUserId(), ticket.getItems());
+		} catch (RuntimeException e) {
+			return e;
+		}
+	}
+
+	private Object placeUnderSavepoint(Connection con, OrderTicket ticket) {
+		Savepoint savepoint;
+		try {
+			savepoint = con.setSavepoint();
+		} catch (SQLException e) {
+			throw new IllegalStateException("Could not create savepoint", e);
+		}
+		try {
+			Order order = orderService.placeOrder(ticket.getUserId(), ticket.getItems());
+			con.releaseSavepoint(savepoint);
+			return order;
+		} catch (RuntimeException e) {
+			try {
+				con.rollback(savepoint);
+			} catch (SQLException rollback) {
+				// the batch cannot continue safely; fail it and let the fallback retry one by one
+				throw new IllegalStateException("Could not roll back to savepoint", rollback);
+			}
+			return e;
+		} catch (SQLException e) {
+			throw new IllegalStateException("Could not release savepoint", e);
+		}
+	}
+}
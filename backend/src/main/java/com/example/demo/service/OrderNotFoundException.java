@@ -0,0 +1,11 @@
+package com.example.demo.service;
+
+/**
+ * Thrown when an order to be changed does not exist.
+ */
+public class OrderNotFoundException extends RuntimeException {
+
+	public OrderNotFoundException(Long orderId) {
+		super("Order not found: " + orderId);
+	}
+}
@@ -0,0 +1,11 @@
+package com.example.demo.service;
+
+/**
+ * Thrown when the async checkout queue is full; callers answer 503 so clients back off.
+ */
+public class OrderQueueFullException extends RuntimeException {
+
+	public OrderQueueFullException(String message) {
+		super(message);
+	}
+}
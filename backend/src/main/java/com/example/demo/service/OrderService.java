@@ -1,15 +1,29 @@
 package com.example.demo.service;
 
+import com.example.demo.dto.CursorPage;
+import com.example.demo.dto.OrderDTO;
 import com.example.demo.dto.OrderItemRequest;
+import com.example.demo.dto.StatusChangeResult;
 import com.example.demo.model.*;
+import com.example.demo.repository.OrderJdbcRepository;
 import com.example.demo.repository.OrderRepository;
 import com.example.demo.repository.ProductRepository;
 import com.example.demo.repository.UserRepository;
+import com.example.demo.util.KeysetCursor;
+import com.example.demo.util.Money;
+import com.example.demo.util.RoundTripCountingDataSource;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.util.List;
-import java.util.Optional;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class OrderService {
@@ -23,49 +37,292 @@ public class OrderService {
 	@Autowired
 	private UserRepository userRepository;
 
+	@Autowired
+	private OrderJdbcRepository orderJdbcRepository;
+
+	@Autowired
+	private InventoryLedger inventoryLedger;
+
+	@Autowired
+	private SalesAnalyticsService salesAnalyticsService;
+
+	@Autowired
+	private CatalogService catalogService;
+
+	@Autowired
+	private LowStockMonitor lowStockMonitor;
+
+	@Autowired
+	private ProductChangeLog productChangeLog;
+
+	public static final int MAX_PAGE_SIZE = 100;
+
+	@Value("${jdbc.round-trip-counting.enabled:false}")
+	private boolean roundTripCounting;
+
+	private final LongAdder ordersCreated = new LongAdder();
+	private final LongAdder createOrderCalls = new LongAdder();
+	private final LongAdder createOrderRoundTrips = new LongAdder();
+
+	/**
+	 * Creates an order in a fixed number of round trips: one product load, one
+	 * batched stock update, one order insert and one batched item insert.
+	 * The caller has already resolved the user, so only a reference is used here.
+	 * Stock is taken with conditional decrements, so concurrent checkouts cannot
+	 * oversell; if any line loses the race the whole transaction rolls back.
+	 * Hot products are reserved in the {@link InventoryLedger} instead and only
+	 * journaled here, which costs one more batch when such lines are present.
+	 * Sequence blocks add a call every 50 ids.
+	 * <p>
+	 * With {@code jdbc.round-trip-counting.enabled}, {@link #getStats()} also
+	 * reports the round trips, counted on the connection up to and including
+	 * the commit, so they cover whatever the surrounding transaction writes
+	 * (e.g. an idempotency record).
+	 */
+	@Transactional
 	public Order createOrder(Long userId, List<OrderItemRequest> orderItemRequests) {
-		User user = userRepository.findById(userId)
-				.orElseThrow(() -> new RuntimeException("User not found"));
+		long startRoundTrips = RoundTripCountingDataSource.current();
+		Order order = placeOrder(userId, orderItemRequests);
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				createOrderCalls.increment();
+				createOrderRoundTrips.add(RoundTripCountingDataSource.current() - startRoundTrips);
+			}
+		});
+		return order;
+	}
 
-		Order order = new Order(user);
+	/**
+	 * Same as {@link #createOrder} but runs in the caller's transaction, so a
+	 * batch writer can place many orders in one commit, each under a savepoint.
+	 * A failure here does not mark the surrounding transaction rollback-only.
+	 */
+	public Order placeOrder(Long userId, List<OrderItemRequest> orderItemRequests) {
+		Map<Long, Integer> quantities = mergeQuantities(orderItemRequests);
 
-		for (OrderItemRequest itemRequest : orderItemRequests) {
-			Product product = productRepository.findById(itemRequest.getProductId())
-					.orElseThrow(() -> new RuntimeException("Product not found: " + itemRequest.getProductId()));
+		Map<Long, Product> products = productRepository.findAllById(quantities.keySet()).stream()
+				.collect(Collectors.toMap(Product::getId, Function.identity()));
+
+		// ascending id order keeps row locks consistent across concurrent orders
+		Map<Long, Integer> reservation = new TreeMap<>();
+		Map<Long, Integer> hotReservation = new TreeMap<>();
 
-			if (product.getStock() < itemRequest.getQuantity()) {
+		Order order = new Order(userRepository.getReferenceById(userId));
+		for (Map.Entry<Long, Integer> line : quantities.entrySet()) {
+			Product product = products.get(line.getKey());
+			if (product == null) {
+				throw new RuntimeException("Product not found: " + line.getKey());
+			}
+			if (inventoryLedger.isHot(product.getId())) {
+				// products.stock lags the ledger for hot products; the ledger decides
+				hotReservation.put(product.getId(), line.getValue());
+			} else if (product.getStock() < line.getValue()) {
 				throw new RuntimeException("Insufficient stock for product: " + product.getName());
+			} else {
+				reservation.put(product.getId(), line.getValue());
 			}
+			order.addItem(new OrderItem(product, line.getValue(), Money.of(product.getPrice())));
+		}
+		order.calculateTotalAmount();
 
-			product.setStock(product.getStock() - itemRequest.getQuantity());
-			productRepository.save(product);
+		InventoryLedger.Reservation hot = null;
+		if (!hotReservation.isEmpty()) {
+			hot = inventoryLedger.reserve(hotReservation);
+			if (!hot.isSuccessful()) {
+				throw new RuntimeException("Insufficient stock for product: " + products.get(hot.getShortProductId()).getName());
+			}
+		}
+		try {
+			if (!reservation.isEmpty()) {
+				int[] updated = productRepository.reserveStock(reservation, productChangeLog.next(reservation.size()));
+				int i = 0;
+				for (Long productId : reservation.keySet()) {
+					if (updated[i++] != 1) {
+						throw new RuntimeException("Insufficient stock for product: " + products.get(productId).getName());
+					}
+				}
+				catalogService.stockChanged();
+			}
+			orderJdbcRepository.insert(order);
+			if (hot != null) {
+				inventoryLedger.recordDeltas(hotReservation);
+			}
+		} catch (RuntimeException e) {
+			if (hot != null) {
+				hot.cancel();
+			}
+			throw e;
+		}
+		// counted in the dashboard aggregates and the low-stock monitor only if this transaction commits
+		salesAnalyticsService.recordOrder(order);
+		lowStockMonitor.recordTaken(quantities);
+
+		ordersCreated.increment();
+		return order;
+	}
 
-			OrderItem orderItem = new OrderItem(product, itemRequest.getQuantity(), product.getPrice());
-			order.addItem(orderItem);
+	/**
+	 * Validates the request lines and merges duplicate product ids,
+	 * keeping the request order.
+	 */
+	public Map<Long, Integer> mergeQuantities(List<OrderItemRequest> orderItemRequests) {
+		if (orderItemRequests == null || orderItemRequests.isEmpty()) {
+			throw new RuntimeException("Order has no items");
 		}
+		Map<Long, Integer> quantities = new LinkedHashMap<>();
+		for (OrderItemRequest itemRequest : orderItemRequests) {
+			if (itemRequest.getProductId() == null || itemRequest.getQuantity() == null || itemRequest.getQuantity() <= 0) {
+				throw new RuntimeException("Invalid order item: " + itemRequest.getProductId());
+			}
+			quantities.merge(itemRequest.getProductId(), itemRequest.getQuantity(), Integer::sum);
+		}
+		return quantities;
+	}
 
-		order.calculateTotalAmount();
-		return orderRepository.save(order);
+	public Map<String, Object> getStats() {
+		long calls = createOrderCalls.sum();
+		long roundTrips = createOrderRoundTrips.sum();
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("ordersCreated", ordersCreated.sum());
+		stats.put("createOrderCalls", calls);
+		if (roundTripCounting) {
+			stats.put("createOrderRoundTrips", roundTrips);
+			stats.put("roundTripsPerOrder", calls == 0 ? 0.0 : (double) roundTrips / calls);
+		}
+		return stats;
 	}
 
-	public List<Order> getAllOrders() {
-		return orderRepository.findAllByOrderByOrderDateDesc();
+	/**
+	 * One page of orders, newest first. Pass the previous page's nextCursor to
+	 * continue; each page costs the same no matter how deep into the history it is.
+	 * A null userId lists every user's orders.
+	 */
+	public CursorPage<OrderDTO> findOrders(Long userId, String status, LocalDateTime from, LocalDateTime to,
+	                                    String cursor, int limit) {
+		int size = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+		String normalizedStatus = status == null || status.isBlank() ? null : status.trim().toUpperCase();
+		// one extra row tells us whether there is a next page without a count query
+		List<OrderDTO> orders = orderRepository.findPage(userId, normalizedStatus, from, to,
+				KeysetCursor.decode(cursor), size + 1);
+
+		String nextCursor = null;
+		if (orders.size() > size) {
+			orders = orders.subList(0, size);
+			OrderDTO last = orders.get(size - 1);
+			nextCursor = new KeysetCursor(last.getOrderDate(), last.getId()).encode();
+		}
+		return new CursorPage<>(orders, nextCursor);
 	}
 
 	public Optional<Order> getOrderById(Long id) {
-		return orderRepository.findById(id);
+		return orderRepository.findWithItemsById(id);
 	}
 
+	/**
+	 * Moves one order to a new status through {@link #changeStatus}; illegal or
+	 * concurrent transitions throw {@link IllegalStatusTransitionException}, an
+	 * unknown id {@link OrderNotFoundException}.
+	 */
+	@Transactional
 	public Order updateOrderStatus(Long orderId, String status) {
-		Order order = orderRepository.findById(orderId)
-				.orElseThrow(() -> new RuntimeException("Order not found"));
-		order.setStatus(status);
-		return orderRepository.save(order);
+		StatusChangeResult result = changeStatus(List.of(orderId), OrderStatus.parse(status)).get(0);
+		switch (result.getOutcome()) {
+			case NOT_FOUND -> throw new OrderNotFoundException(orderId);
+			case ILLEGAL_TRANSITION, CONFLICT -> throw new IllegalStatusTransitionException(result.getMessage());
+			default -> {
+			}
+		}
+		return orderRepository.findWithItemsById(orderId)
+				.orElseThrow(() -> new OrderNotFoundException(orderId));
 	}
 
-	public List<Order> getUserOrders(Long userId) {
-		User user = userRepository.findById(userId)
-				.orElseThrow(() -> new RuntimeException("User not found"));
-		return orderRepository.findByUser(user);
+	/**
+	 * Applies one transition to many orders: a single status read per chunk of ids
+	 * and one batch of conditional updates, so an order changed by someone else in
+	 * between is reported as a conflict instead of being overwritten. Cancelling
+	 * gives the stock back. Returns one result per distinct id, in request order.
+	 */
+	@Transactional
+	public List<StatusChangeResult> changeStatus(Collection<Long> orderIds, OrderStatus target) {
+		List<Long> ids = new ArrayList<>(new LinkedHashSet<>(orderIds));
+		Map<Long, String> current = orderJdbcRepository.findStatuses(ids);
+
+		Map<Long, StatusChangeResult> results = new LinkedHashMap<>();
+		Map<Long, String> candidates = new LinkedHashMap<>();
+		for (Long id : ids) {
+			String from = current.get(id);
+			if (from == null) {
+				results.put(id, new StatusChangeResult(id, StatusChangeResult.Outcome.NOT_FOUND, null, "Order not found"));
+			} else if (target.name().equals(from)) {
+				results.put(id, new StatusChangeResult(id, StatusChangeResult.Outcome.UNCHANGED, from, null));
+			} else if (!isAllowed(from, target)) {
+				results.put(id, new StatusChangeResult(id, StatusChangeResult.Outcome.ILLEGAL_TRANSITION, from,
+						"Cannot change order " + id + " from " + from + " to " + target));
+			} else {
+				candidates.put(id, from);
+				results.put(id, null);
+			}
+		}
+		if (candidates.isEmpty()) {
+			return new ArrayList<>(results.values());
+		}
+
+		int[] updated = orderJdbcRepository.updateStatuses(candidates, target.name());
+		Map<Long, String> changed = new LinkedHashMap<>();
+		int i = 0;
+		for (Map.Entry<Long, String> candidate : candidates.entrySet()) {
+			Long id = candidate.getKey();
+			if (updated[i++] == 1) {
+				changed.put(id, candidate.getValue());
+				results.put(id, new StatusChangeResult(id, StatusChangeResult.Outcome.UPDATED, candidate.getValue(), null));
+			} else {
+				results.put(id, new StatusChangeResult(id, StatusChangeResult.Outcome.CONFLICT, candidate.getValue(),
+						"Order " + id + " was changed concurrently"));
+			}
+		}
+
+		if (target == OrderStatus.CANCELLED && !changed.isEmpty()) {
+			List<Order> cancelled = orderRepository.findWithItemsByIdIn(changed.keySet());
+			restoreStock(cancelled);
+			for (Order order : cancelled) {
+				salesAnalyticsService.recordStatusChange(order, changed.get(order.getId()), target.name());
+			}
+		} else if (!changed.isEmpty()) {
+			Map<String, Long> moves = changed.values().stream()
+					.collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+			salesAnalyticsService.recordStatusMoves(moves, target.name());
+		}
+		return new ArrayList<>(results.values());
+	}
+
+	private static boolean isAllowed(String from, OrderStatus target) {
+		try {
+			return OrderStatus.parse(from).canTransitionTo(target);
+		} catch (RuntimeException e) {
+			// a status from before the lifecycle existed: leave it for an admin to fix by hand
+			return false;
+		}
+	}
+
+	// ids in ascending order so concurrent cancellations lock product rows in the same order
+	private void restoreStock(List<Order> orders) {
+		Map<Long, Integer> cold = new TreeMap<>();
+		Map<Long, Integer> hot = new TreeMap<>();
+		for (Order order : orders) {
+			for (OrderItem item : order.getItems()) {
+				Long productId = item.getProduct().getId();
+				(inventoryLedger.isHot(productId) ? hot : cold).merge(productId, item.getQuantity(), Integer::sum);
+			}
+		}
+		if (!cold.isEmpty()) {
+			productRepository.restoreStock(cold, productChangeLog.next(cold.size()));
+			catalogService.stockChanged();
+			lowStockMonitor.recordReturned(cold);
+		}
+		if (!hot.isEmpty()) {
+			inventoryLedger.restock(hot);
+			lowStockMonitor.recordReturned(hot);
+		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,76 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.OrderItemRequest;
+import com.example.demo.model.Order;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * An order accepted by async checkout. Completes once the batch writer has
+ * committed (or rejected) it.
+ */
+public class OrderTicket {
+
+	public enum Status { QUEUED, CREATED, FAILED }
+
+	private final String id = UUID.randomUUID().toString();
+	private final Long userId;
+	private final List<OrderItemRequest> items;
+	private final long enqueuedNanos = System.nanoTime();
+	private final CompletableFuture<OrderTicket> completion = new CompletableFuture<>();
+
+	private volatile Status status = Status.QUEUED;
+	private volatile Order order;
+	private volatile String error;
+
+	public OrderTicket(Long userId, List<OrderItemRequest> items) {
+		this.userId = userId;
+		this.items = items;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public Long getUserId() {
+		return userId;
+	}
+
+	public List<OrderItemRequest> getItems() {
+		return items;
+	}
+
+	public long getEnqueuedNanos() {
+		return enqueuedNanos;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public Order getOrder() {
+		return order;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	public CompletableFuture<OrderTicket> getCompletion() {
+		return completion;
+	}
+
+	void created(Order order) {
+		this.order = order;
+		this.status = Status.CREATED;
+		completion.complete(this);
+	}
+
+	void failed(String error) {
+		this.error = error;
+		this.status = Status.FAILED;
+		completion.complete(this);
+	}
+}
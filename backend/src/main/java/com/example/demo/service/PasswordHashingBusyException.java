@@ -0,0 +1,12 @@
+package com.example.demo.service;
+
+/**
+ * Thrown when the password hashing pool is saturated, so callers can answer
+ * with a fast 503 instead of tying up a request thread.
+ */
+public class PasswordHashingBusyException extends RuntimeException {
+
+	public PasswordHashingBusyException(String message) {
+		super(message);
+	}
+}
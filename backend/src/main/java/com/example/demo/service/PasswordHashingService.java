@@ -0,0 +1,146 @@
+package com.example.demo.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs BCrypt hashing and matching on a small dedicated pool with a bounded
+ * queue, so a login storm is rejected quickly instead of exhausting Tomcat threads.
+ */
+@Service
+public class PasswordHashingService {
+
+	@Autowired
+	private PasswordEncoder passwordEncoder;
+
+	@Value("${security.bcrypt.strength:10}")
+	private int strength;
+
+	// 0 = one thread per available processor
+	@Value("${security.bcrypt.threads:0}")
+	private int threads;
+
+	@Value("${security.bcrypt.queue-capacity:64}")
+	private int queueCapacity;
+
+	@Value("${security.bcrypt.timeout-ms:5000}")
+	private long timeoutMillis;
+
+	private ThreadPoolExecutor executor;
+
+	private final LongAdder hashCount = new LongAdder();
+	private final LongAdder hashNanos = new LongAdder();
+	private final LongAccumulator maxHashNanos = new LongAccumulator(Long::max, 0);
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder rehashed = new LongAdder();
+
+	@PostConstruct
+	public void init() {
+		int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+		AtomicInteger counter = new AtomicInteger();
+		executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity),
+				r -> {
+					Thread t = new Thread(r, "bcrypt-" + counter.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				},
+				new ThreadPoolExecutor.AbortPolicy());
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	public String encode(CharSequence rawPassword) {
+		return run(() -> passwordEncoder.encode(rawPassword));
+	}
+
+	public boolean matches(CharSequence rawPassword, String encodedPassword) {
+		return run(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+	}
+
+	/**
+	 * True when the stored hash was made with a different work factor than the
+	 * configured one, so it should be replaced after a successful login.
+	 */
+	public boolean needsRehash(String encodedPassword) {
+		// BCrypt format: $2a$10$<salt+hash>
+		if (encodedPassword == null || encodedPassword.length() < 7 || encodedPassword.charAt(0) != '$') {
+			return false;
+		}
+		try {
+			return Integer.parseInt(encodedPassword.substring(4, 6)) != strength;
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+
+	public void recordRehash() {
+		rehashed.increment();
+	}
+
+	public Map<String, Object> getStats() {
+		long count = hashCount.sum();
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("strength", strength);
+		stats.put("poolSize", executor.getMaximumPoolSize());
+		stats.put("queueDepth", executor.getQueue().size());
+		stats.put("queueCapacity", queueCapacity);
+		stats.put("operations", count);
+		stats.put("averageMillis", count == 0 ? 0.0 : hashNanos.sum() / 1_000_000.0 / count);
+		stats.put("maxMillis", maxHashNanos.get() / 1_000_000.0);
+		stats.put("rejected", rejected.sum());
+		stats.put("rehashed", rehashed.sum());
+		return stats;
+	}
+
+	private <T> T run(Callable<T> task) {
+		Future<T> future;
+		try {
+			future = executor.submit(() -> {
+				long start = System.nanoTime();
+				try {
+					return task.call();
+				} finally {
+					long elapsed = System.nanoTime() - start;
+					hashCount.increment();
+					hashNanos.add(elapsed);
+					maxHashNanos.accumulate(elapsed);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			rejected.increment();
+			throw new PasswordHashingBusyException("Too many login attempts in progress, try again shortly");
+		}
+
+		try {
+			return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			future.cancel(true);
+			rejected.increment();
+			throw new PasswordHashingBusyException("Password check timed out, try again shortly");
+		} catch (InterruptedException e) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new PasswordHashingBusyException("Password check interrupted");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ProductChanges;
+import com.example.demo.model.Product;
+import com.example.demo.model.ProductTombstone;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.repository.ProductTombstoneRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Catalog change versions for delta sync. Every write to a product row stamps
+ * it with a fresh version (products.modified_version) and a delete leaves a
+ * tombstone with one, so the two tables form a compacted change log: a product
+ * changed several times since a client's version is sent once, as it is now.
+ * <p>
+ * Versions are taken before the writing transaction commits, so transactions
+ * can commit out of version order. Changes are reported only up to the safe
+ * version, below which every transaction has finished; a client can therefore
+ * never move past a change that commits late. The clock lives in this process,
+ * like the inventory ledger, so one instance does the writing.
+ */
+@Service
+public class ProductChangeLog {
+
+	public static final int MAX_CHANGES = 1000;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private ProductTombstoneRepository productTombstoneRepository;
+
+	// guarded by this
+	private long clock;
+	// first version -> count of each range taken by a transaction still running
+	private final TreeMap<Long, Integer> inFlight = new TreeMap<>();
+
+	private final LongAdder versionsTaken = new LongAdder();
+	private final LongAdder requests = new LongAdder();
+	private final LongAdder changesSent = new LongAdder();
+
+	@PostConstruct
+	public void init() {
+		Long products = productRepository.findMaxModifiedVersion();
+		Long tombstones = productTombstoneRepository.findMaxVersion();
+		synchronized (this) {
+			clock = Math.max(products == null ? 0 : products, tombstones == null ? 0 : tombstones);
+		}
+	}
+
+	/**
+	 * Takes {@code count} consecutive versions and returns the first. Must run
+	 * inside the transaction that writes them; they count as in flight until it ends.
+	 */
+	public long next(int count) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			throw new IllegalStateException("Catalog change versions must be taken inside a transaction");
+		}
+		long first;
+		synchronized (this) {
+			first = clock + 1;
+			clock += count;
+			inFlight.put(first, count);
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCompletion(int status) {
+				// a rolled-back range is simply never seen
+				synchronized (ProductChangeLog.this) {
+					inFlight.remove(first);
+				}
+			}
+		});
+		versionsTaken.add(count);
+		return first;
+	}
+
+	public long next() {
+		return next(1);
+	}
+
+	/** Every change at or below this version has committed (or rolled back). */
+	public synchronized long getSafeVersion() {
+		return inFlight.isEmpty() ? clock : inFlight.firstKey() - 1;
+	}
+
+	/** Leaves a tombstone for a deleted product, in the deleting transaction. */
+	public void recordDeleted(Long productId) {
+		productTombstoneRepository.save(new ProductTombstone(productId, next()));
+	}
+
+	/**
+	 * Products written and deleted after {@code since}, oldest change first, at
+	 * most {@code limit} of them together. When {@code hasMore} is set, ask
+	 * again with the returned version.
+	 */
+	public ProductChanges getChangesSince(long since, int limit) {
+		long until;
+		synchronized (this) {
+			if (since < 0 || since > clock) {
+				throw new ChangeVersionExpiredException("Unknown catalog version " + since + "; reload the catalog");
+			}
+			until = inFlight.isEmpty() ? clock : inFlight.firstKey() - 1;
+		}
+		requests.increment();
+		int size = Math.min(Math.max(limit, 1), MAX_CHANGES);
+		if (until <= since) {
+			return new ProductChanges(since, List.of(), List.of(), false);
+		}
+		// one extra row from each side tells whether anything is left after this page
+		List<Product> products = productRepository.findChangedBetween(since, until, Limit.of(size + 1));
+		List<ProductTombstone> tombstones = productTombstoneRepository.findChangedBetween(since, until, Limit.of(size + 1));
+
+		List<Product> changed = new ArrayList<>();
+		List<Long> deleted = new ArrayList<>();
+		int p = 0;
+		int t = 0;
+		long last = since;
+		while (changed.size() + deleted.size() < size && (p < products.size() || t < tombstones.size())) {
+			if (t >= tombstones.size()
+					|| (p < products.size() && products.get(p).getModifiedVersion() < tombstones.get(t).getVersion())) {
+				last = products.get(p).getModifiedVersion();
+				changed.add(products.get(p++));
+			} else {
+				last = tombstones.get(t).getVersion();
+				deleted.add(tombstones.get(t++).getProductId());
+			}
+		}
+		boolean hasMore = p < products.size() || t < tombstones.size();
+		changesSent.add(changed.size() + deleted.size());
+		return new ProductChanges(hasMore ? last : until, changed, deleted, hasMore);
+	}
+
+	public Map<String, Object> getStats() {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		synchronized (this) {
+			stats.put("version", clock);
+			stats.put("safeVersion", inFlight.isEmpty() ? clock : inFlight.firstKey() - 1);
+			stats.put("inFlight", inFlight.size());
+		}
+		stats.put("versionsTaken", versionsTaken.sum());
+		stats.put("requests", requests.sum());
+		stats.put("changesSent", changesSent.sum());
+		return stats;
+	}
+}
@@ -0,0 +1,507 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.ProductRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Inverted index over product names for type-ahead search. Names are split into
+ * letter/digit tokens, case-folded and stripped of accents. Every query term
+ * matches as a prefix of a name token (so "lea sho" finds "Leather Shoes"),
+ * all terms must match, and hits are ranked by how completely the terms cover
+ * the matched tokens, with a bonus when the name starts with the first term.
+ * <p>
+ * Products are numbered densely; each token keeps unsorted int lists of the
+ * products it occurs in, and the token dictionary is sorted so a prefix is a
+ * range. A query walks the postings of its rarest term, best possible score
+ * first, scores each product against the other terms and stops as soon as no
+ * remaining product can enter the top results.
+ * <p>
+ * Benchmark (ProductSearchIndexTests, 100k generated names of four tokens):
+ * 130-145 bytes of heap per product (what dropping the index frees): the id map
+ * slots, the product's token array and its four postings entries, with the
+ * arrays' growth slack; token strings are shared through the dictionary.
+ * Single-term queries take under 10 us; three-term queries whose best hits are
+ * rare ("blue gl mug") score a few thousand products and take 60-250 us. Over
+ * the query mix the median is 8-18 us and the p99 0.25-0.5 ms; a single query
+ * kind can still see a p99 of a few ms when a GC pause lands in it.
+ * <p>
+ * Kept in sync by {@link ProductService}; rebuilt from the database at startup.
+ */
+@Service
+public class ProductSearchIndex {
+
+	public static final int MAX_RESULTS = 50;
+	private static final int MAX_TERMS = 8;
+	private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+	private static final String[] NO_TOKENS = new String[0];
+	private static final double LEADING_BONUS = 0.5;
+	// per-thread scratch for the products a query has visited, so queries do not allocate one per call
+	private static final ThreadLocal<BitSet> SEEN = ThreadLocal.withInitial(BitSet::new);
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	// writes are admin edits: rare, so one lock for the whole index is enough
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	private final TreeMap<String, Postings> dictionary = new TreeMap<>();
+	private final DocMap docByProductId = new DocMap();
+	private final ArrayDeque<Integer> freeDocs = new ArrayDeque<>();
+	private long[] productIds = new long[1024];
+	private String[][] docTokens = new String[1024][];
+	private int docLimit;
+
+	private final LongAdder queries = new LongAdder();
+	private final LongAdder queryNanos = new LongAdder();
+
+	@PostConstruct
+	public void rebuild() {
+		List<Object[]> rows = productRepository.findAllNames();
+		lock.writeLock().lock();
+		try {
+			dictionary.clear();
+			docByProductId.clear();
+			freeDocs.clear();
+			productIds = new long[Math.max(1024, rows.size())];
+			docTokens = new String[productIds.length][];
+			docLimit = 0;
+			for (Object[] row : rows) {
+				add((Long) row[0], (String) row[1]);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/** Adds a product or replaces its indexed name. */
+	public void index(Long productId, String name) {
+		lock.writeLock().lock();
+		try {
+			removeDoc(productId);
+			add(productId, name);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/** {@link #index(Long, String)} for many products under one lock, e.g. after a bulk import batch. */
+	public void indexAll(Map<Long, String> namesByProductId) {
+		lock.writeLock().lock();
+		try {
+			namesByProductId.forEach((productId, name) -> {
+				removeDoc(productId);
+				add(productId, name);
+			});
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void remove(Long productId) {
+		lock.writeLock().lock();
+		try {
+			removeDoc(productId);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/** Ids of the best matching products, best first; at most {@value #MAX_RESULTS}. */
+	public List<Hit> search(String query, int limit) {
+		long start = System.nanoTime();
+		int size = Math.min(Math.max(limit, 1), MAX_RESULTS);
+		String[] terms = terms(query);
+		if (terms.length == 0) {
+			return List.of();
+		}
+
+		lock.readLock().lock();
+		try {
+			// drive the query from the term with the fewest postings, and note the
+			// most each term can add to a score (its best token, plus the bonus for the first term)
+			NavigableMap<String, Postings> driver = null;
+			int driverIndex = 0;
+			int driverSize = Integer.MAX_VALUE;
+			double[] maxScores = new double[terms.length];
+			for (int t = 0; t < terms.length; t++) {
+				NavigableMap<String, Postings> range = prefixRange(terms[t]);
+				int count = 0;
+				for (Postings postings : range.values()) {
+					count += postings.size();
+					double max = termScore(terms[t], postings.token) + (t == 0 && postings.leading.size > 0 ? LEADING_BONUS : 0);
+					maxScores[t] = Math.max(maxScores[t], max);
+				}
+				if (count == 0) {
+					return List.of();
+				}
+				if (count < driverSize) {
+					driver = range;
+					driverIndex = t;
+					driverSize = count;
+				}
+			}
+			double others = 0;
+			for (int t = 0; t < terms.length; t++) {
+				if (t != driverIndex) {
+					others += maxScores[t];
+				}
+			}
+
+			// Visit the driver's postings in order of the best score a product in them
+			// could reach. Once the kept hits are at least that good, no product left
+			// can beat them (ties at the cut go to the products reached first).
+			String driverTerm = terms[driverIndex];
+			List<Group> groups = new ArrayList<>(driver.size() * 2);
+			for (Postings postings : driver.values()) {
+				double bound = termScore(driverTerm, postings.token) + others;
+				groups.add(new Group(postings.leading, driverIndex == 0 ? bound + LEADING_BONUS : bound));
+				groups.add(new Group(postings.other, bound));
+			}
+			groups.sort(Comparator.comparingDouble((Group group) -> group.bound).reversed());
+
+			// a product is reached once per driver token it has; score() rejects it if another term is missing
+			BitSet seen = SEEN.get();
+			seen.clear();
+			PriorityQueue<Hit> best = new PriorityQueue<>(size + 1, Hit.WORST_FIRST);
+			search:
+			for (Group group : groups) {
+				Docs docs = group.docs;
+				for (int i = 0; i < docs.size; i++) {
+					if (best.size() == size && best.peek().score >= group.bound) {
+						break search;
+					}
+					int doc = docs.ids[i];
+					if (seen.get(doc)) {
+						continue;
+					}
+					seen.set(doc);
+					double score = score(docTokens[doc], terms);
+					if (score > 0 && (best.size() < size || beats(score, docTokens[doc].length, productIds[doc], best.peek()))) {
+						best.add(new Hit(productIds[doc], score, docTokens[doc].length));
+						if (best.size() > size) {
+							best.poll();
+						}
+					}
+				}
+			}
+			List<Hit> hits = new ArrayList<>(best);
+			hits.sort(Hit.WORST_FIRST.reversed());
+			return hits;
+		} finally {
+			lock.readLock().unlock();
+			queries.increment();
+			queryNanos.add(System.nanoTime() - start);
+		}
+	}
+
+	public Map<String, Object> getStats() {
+		long count = queries.sum();
+		Map<String, Object> stats = new LinkedHashMap<>();
+		lock.readLock().lock();
+		try {
+			stats.put("products", docByProductId.size());
+			stats.put("tokens", dictionary.size());
+		} finally {
+			lock.readLock().unlock();
+		}
+		stats.put("queries", count);
+		stats.put("averageQueryMicros", count == 0 ? 0.0 : queryNanos.sum() / 1_000.0 / count);
+		return stats;
+	}
+
+	/** Case-folded, accent-free letter/digit tokens of {@code text}, in order. */
+	static String[] tokenize(String text) {
+		if (text == null || text.isBlank()) {
+			return NO_TOKENS;
+		}
+		String folded = isAscii(text) ? text : MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+		List<String> tokens = new ArrayList<>(4);
+		int start = -1;
+		for (int i = 0; i <= folded.length(); i++) {
+			boolean tokenChar = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+			if (tokenChar && start < 0) {
+				start = i;
+			} else if (!tokenChar && start >= 0) {
+				tokens.add(folded.substring(start, i).toLowerCase(Locale.ROOT));
+				start = -1;
+			}
+		}
+		return tokens.toArray(NO_TOKENS);
+	}
+
+	// most names need no accent stripping; skip the normalizer for them
+	private static boolean isAscii(String text) {
+		for (int i = 0; i < text.length(); i++) {
+			if (text.charAt(i) >= 0x80) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static String[] terms(String query) {
+		Set<String> terms = new LinkedHashSet<>(Arrays.asList(tokenize(query)));
+		return terms.stream().limit(MAX_TERMS).toArray(String[]::new);
+	}
+
+	/**
+	 * Each term scores by its best token: 1 for an exact token, less the more of
+	 * the token is left unmatched; the first term gets a bonus through the
+	 * name's first token. 0 if any term is missing.
+	 */
+	private static double score(String[] tokens, String[] terms) {
+		double score = 0;
+		for (int t = 0; t < terms.length; t++) {
+			String term = terms[t];
+			double best = 0;
+			for (int i = 0; i < tokens.length; i++) {
+				if (tokens[i].startsWith(term)) {
+					double tokenScore = termScore(term, tokens[i]);
+					if (t == 0 && i == 0) {
+						tokenScore += LEADING_BONUS;
+					}
+					best = Math.max(best, tokenScore);
+				}
+			}
+			if (best == 0) {
+				return 0;
+			}
+			score += best;
+		}
+		return score;
+	}
+
+	private static double termScore(String term, String token) {
+		return token.length() == term.length() ? 1.0 : 0.8 * term.length() / token.length();
+	}
+
+	// same order as Hit.WORST_FIRST, without allocating a Hit for a loser
+	private static boolean beats(double score, int tokenCount, long productId, Hit worst) {
+		if (score != worst.score) {
+			return score > worst.score;
+		}
+		if (tokenCount != worst.tokenCount) {
+			return tokenCount < worst.tokenCount;
+		}
+		return productId < worst.productId;
+	}
+
+	private NavigableMap<String, Postings> prefixRange(String prefix) {
+		return dictionary.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+	}
+
+	// caller holds the write lock
+	private void add(Long productId, String name) {
+		String[] tokens = new LinkedHashSet<>(Arrays.asList(tokenize(name))).toArray(NO_TOKENS);
+		if (tokens.length == 0) {
+			return;
+		}
+		Integer free = freeDocs.poll();
+		int doc = free != null ? free : docLimit++;
+		if (doc == productIds.length) {
+			productIds = Arrays.copyOf(productIds, doc * 2);
+			docTokens = Arrays.copyOf(docTokens, doc * 2);
+		}
+		for (int i = 0; i < tokens.length; i++) {
+			Postings postings = dictionary.computeIfAbsent(tokens[i], Postings::new);
+			(i == 0 ? postings.leading : postings.other).add(doc);
+			// share the dictionary's copy of the token string
+			tokens[i] = postings.token;
+		}
+		productIds[doc] = productId;
+		docTokens[doc] = tokens;
+		docByProductId.put(productId, doc);
+	}
+
+	// caller holds the write lock
+	private void removeDoc(Long productId) {
+		int doc = docByProductId.remove(productId);
+		if (doc < 0) {
+			return;
+		}
+		String[] tokens = docTokens[doc];
+		for (int i = 0; i < tokens.length; i++) {
+			Postings postings = dictionary.get(tokens[i]);
+			(i == 0 ? postings.leading : postings.other).remove(doc);
+			if (postings.size() == 0) {
+				dictionary.remove(tokens[i]);
+			}
+		}
+		docTokens[doc] = null;
+		freeDocs.push(doc);
+	}
+
+	/** A matching product and its rank score; higher is better. */
+	public static final class Hit {
+		static final Comparator<Hit> WORST_FIRST = Comparator
+				.comparingDouble(Hit::getScore)
+				// fewer tokens means the terms cover more of the name
+				.thenComparing(hit -> -hit.tokenCount)
+				.thenComparing(hit -> -hit.productId);
+
+		private final long productId;
+		private final double score;
+		private final int tokenCount;
+
+		Hit(long productId, double score, int tokenCount) {
+			this.productId = productId;
+			this.score = score;
+			this.tokenCount = tokenCount;
+		}
+
+		public long getProductId() {
+			return productId;
+		}
+
+		public double getScore() {
+			return score;
+		}
+	}
+
+	// products containing one token, split by whether it is the name's first token
+	private static final class Postings {
+		final String token;
+		final Docs leading = new Docs();
+		final Docs other = new Docs();
+
+		Postings(String token) {
+			this.token = token;
+		}
+
+		int size() {
+			return leading.size + other.size;
+		}
+	}
+
+	// unsorted growable int list
+	private static final class Docs {
+		int[] ids = new int[2];
+		int size;
+
+		void add(int doc) {
+			if (size == ids.length) {
+				ids = Arrays.copyOf(ids, size * 2);
+			}
+			ids[size++] = doc;
+		}
+
+		void remove(int doc) {
+			for (int i = 0; i < size; i++) {
+				if (ids[i] == doc) {
+					ids[i] = ids[--size];
+					return;
+				}
+			}
+		}
+	}
+
+	// open-addressing map from product id to doc number, without boxing either
+	private static final class DocMap {
+		long[] productIds = new long[1024];
+		// doc + 1, so 0 marks a free slot
+		int[] docs = new int[1024];
+		int size;
+
+		int size() {
+			return size;
+		}
+
+		void put(long productId, int doc) {
+			if ((size + 1) * 2 > docs.length) {
+				grow();
+			}
+			int i = find(productId);
+			if (docs[i] == 0) {
+				size++;
+			}
+			productIds[i] = productId;
+			docs[i] = doc + 1;
+		}
+
+		/** The doc the product had, or -1. */
+		int remove(long productId) {
+			int i = find(productId);
+			if (docs[i] == 0) {
+				return -1;
+			}
+			int doc = docs[i] - 1;
+			size--;
+			// move later entries of the probe run back so no lookup stops early at the hole
+			int mask = docs.length - 1;
+			int hole = i;
+			for (int j = (i + 1) & mask; docs[j] != 0; j = (j + 1) & mask) {
+				int home = slot(productIds[j], mask);
+				if (((j - home) & mask) >= ((j - hole) & mask)) {
+					productIds[hole] = productIds[j];
+					docs[hole] = docs[j];
+					hole = j;
+				}
+			}
+			docs[hole] = 0;
+			return doc;
+		}
+
+		void clear() {
+			Arrays.fill(docs, 0);
+			size = 0;
+		}
+
+		// the product's slot, or the free slot where it would go
+		private int find(long productId) {
+			int mask = docs.length - 1;
+			int i = slot(productId, mask);
+			while (docs[i] != 0 && productIds[i] != productId) {
+				i = (i + 1) & mask;
+			}
+			return i;
+		}
+
+		private void grow() {
+			long[] oldProductIds = productIds;
+			int[] oldDocs = docs;
+			productIds = new long[oldDocs.length * 2];
+			docs = new int[oldDocs.length * 2];
+			size = 0;
+			for (int i = 0; i < oldDocs.length; i++) {
+				if (oldDocs[i] != 0) {
+					put(oldProductIds[i], oldDocs[i] - 1);
+				}
+			}
+		}
+
+		private static int slot(long productId, int mask) {
+			long hash = productId * 0x9E3779B97F4A7C15L;
+			return (int) (hash ^ (hash >>> 32)) & mask;
+		}
+	}
+
+	private static final class Group {
+		final Docs docs;
+		final double bound;
+
+		Group(Docs docs, double bound) {
+			this.docs = docs;
+			this.bound = bound;
+		}
+	}
+}
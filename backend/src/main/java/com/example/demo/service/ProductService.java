@@ -1,49 +1,201 @@
 package com.example.demo.service;
 
+import com.example.demo.dto.CursorPage;
+import com.example.demo.dto.ProductFilter;
 import com.example.demo.model.Product;
+import com.example.demo.model.ProductSort;
 import com.example.demo.repository.ProductRepository;
+import com.example.demo.util.ProductCursor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 @Service
 public class ProductService {
 
 	@Autowired
 	private ProductRepository productRepository;
 
+	@Autowired
+	private InventoryLedger inventoryLedger;
+
+	@Autowired
+	private CatalogService catalogService;
+
+	@Autowired
+	private ProductSearchIndex productSearchIndex;
+
+	@Autowired
+	private LowStockMonitor lowStockMonitor;
+
+	@Autowired
+	private ProductChangeLog productChangeLog;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	public static final int MAX_PAGE_SIZE = 100;
+
 	// FIXED: Changed from getCatalog() to getAllProducts()
 	public List<Product> getAllProducts() {
 		return productRepository.findAll();
 	}
 
+	/**
+	 * One page of the catalog, filtered and sorted in the database. The page size
+	 * is capped at {@value #MAX_PAGE_SIZE}; keyset paging keeps every page as
+	 * cheap as the first however large the catalog grows.
+	 */
+	public CursorPage<Product> findProducts(ProductFilter filter, String sort, boolean descending, String cursor, int limit) {
+		if (filter.getMinPrice() != null && filter.getMaxPrice() != null
+				&& filter.getMinPrice().compareTo(filter.getMaxPrice()) > 0) {
+			throw new RuntimeException("minPrice must not be greater than maxPrice");
+		}
+		if (filter.getNamePrefix() != null && filter.getNamePrefix().isBlank()) {
+			filter.setNamePrefix(null);
+		}
+		ProductSort sortKey = sort == null || sort.isBlank() ? ProductSort.NAME : ProductSort.parse(sort);
+		int size = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+		// one extra row tells us whether there is a next page without a count query
+		List<Product> products = productRepository.findPage(filter, sortKey, descending,
+				ProductCursor.decode(cursor, sortKey, descending), size + 1);
+
+		String nextCursor = null;
+		if (products.size() > size) {
+			products = products.subList(0, size);
+			Product last = products.get(size - 1);
+			nextCursor = new ProductCursor(sortKey, descending, sortKey.valueOf(last), last.getId()).encode();
+		}
+		return new CursorPage<>(products, nextCursor);
+	}
+
+	/** Ranked type-ahead search over product names; products come back best match first. */
+	public List<Product> searchProducts(String query, int limit) {
+		List<Long> ids = productSearchIndex.search(query, limit).stream()
+				.map(ProductSearchIndex.Hit::getProductId)
+				.toList();
+		if (ids.isEmpty()) {
+			return List.of();
+		}
+		Map<Long, Product> byId = productRepository.findAllById(ids).stream()
+				.collect(Collectors.toMap(Product::getId, Function.identity()));
+		// a product deleted since the search is simply left out
+		return ids.stream().map(byId::get).filter(Objects::nonNull).toList();
+	}
+
+	@Transactional
 	public Product addProduct(Product product) {
-		return productRepository.save(product);
+		product.setModifiedVersion(productChangeLog.next());
+		// written now, so a rejected row never reaches the search index
+		Product saved = productRepository.saveAndFlush(product);
+		productSearchIndex.index(saved.getId(), saved.getName());
+		lowStockMonitor.recordProduct(saved);
+		catalogService.productsChanged();
+		return saved;
 	}
 
+	/** Served from the {@link LowStockMonitor}'s memory for thresholds it watches. */
 	public List<Product> getLowStockProducts(int threshold) {
-		return productRepository.findByStockLessThan(threshold);
+		return lowStockMonitor.getLowStock(threshold);
 	}
 
 	public Optional<Product> getProductById(Long id) {
 		return productRepository.findById(id);
 	}
 	public Product editProduct(Long id, Product updatedProduct) {
-		return productRepository.findById(id)
+		boolean hot = inventoryLedger.isHot(id);
+		if (hot) {
+			// fold pending ledger deltas in first so the new stock value isn't reduced by them
+			inventoryLedger.flush();
+		}
+		// the flush above commits on its own; it must not be held open by this transaction
+		return transactionTemplate.execute(status -> productRepository.findById(id)
 				.map(existingProduct -> {
 					existingProduct.setName(updatedProduct.getName());
 					existingProduct.setPrice(updatedProduct.getPrice());
 					existingProduct.setStock(updatedProduct.getStock());
-					return productRepository.save(existingProduct);
+					existingProduct.setModifiedVersion(productChangeLog.next());
+					Product saved = productRepository.saveAndFlush(existingProduct);
+					String name = saved.getName();
+					int stock = saved.getStock();
+					// a rolled-back edit must leave the ledger and the search index as they were
+					afterCommit(() -> {
+						if (hot) {
+							inventoryLedger.resetStock(id, stock);
+						}
+						productSearchIndex.index(id, name);
+					});
+					lowStockMonitor.recordProduct(saved);
+					catalogService.productsChanged();
+					return saved;
 				})
-				.orElseThrow(() -> new RuntimeException("Product not found with id: " + id));
+				.orElseThrow(() -> new RuntimeException("Product not found with id: " + id)));
 	}
+	@Transactional
 	public void deleteProduct(Long id) {
 		if (!productRepository.existsById(id)) {
 			throw new RuntimeException("Product not found with id: " + id);
 		}
 		productRepository.deleteById(id);
+		// flushed here so a product still referenced by orders fails before the in-memory indexes drop it
+		productRepository.flush();
+		productChangeLog.recordDeleted(id);
+		inventoryLedger.remove(id);
+		productSearchIndex.remove(id);
+		lowStockMonitor.recordRemoved(id);
+		catalogService.productsChanged();
 	}
 
-}
\ No newline at end of file
+	/** Points a product at an image from the {@link ImageStore}, or at any URL. */
+	@Transactional
+	public Product setImageUrl(Long id, String imageUrl) {
+		Product product = productRepository.findById(id)
+				.orElseThrow(() -> new RuntimeException("Product not found with id: " + id));
+		product.setImageUrl(imageUrl);
+		product.setModifiedVersion(productChangeLog.next());
+		Product saved = productRepository.save(product);
+		lowStockMonitor.recordProduct(saved);
+		catalogService.productsChanged();
+		return saved;
+	}
+
+	/**
+	 * Moves a product in or out of the in-memory inventory ledger. Best done
+	 * before a sale starts: orders already in flight on the other path are not
+	 * waited for.
+	 */
+	public Product setHot(Long id, boolean hot) {
+		if (!inventoryLedger.isEnabled()) {
+			throw new RuntimeException("Inventory ledger is disabled");
+		}
+		if (!productRepository.existsById(id)) {
+			throw new RuntimeException("Product not found with id: " + id);
+		}
+		inventoryLedger.setHot(id, hot);
+		catalogService.productsChanged();
+		return productRepository.findById(id)
+				.orElseThrow(() -> new RuntimeException("Product not found with id: " + id));
+	}
+
+	private static void afterCommit(Runnable change) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			change.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				change.run();
+			}
+		});
+	}
+}
@@ -0,0 +1,373 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Order;
+import com.example.demo.model.OrderItem;
+import com.example.demo.model.OrderStatus;
+import com.example.demo.repository.SalesSummaryJdbcRepository;
+import com.example.demo.util.Money;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running sales aggregates for the admin dashboard: revenue, orders and units
+ * per day, units and revenue per product, orders per status and overall basket
+ * averages. Rebuilt from orders once on startup, then adjusted in memory as
+ * order creations and status changes commit, so reads never touch the order
+ * tables. Changed keys are written to the sales_* summary tables in batches.
+ * Cancelled orders only count towards the per-status figures.
+ * Like the inventory ledger this assumes one application instance per database:
+ * orders written by another instance are only picked up by the next rebuild.
+ */
+@Service
+public class SalesAnalyticsService {
+
+	public static final String CANCELLED = OrderStatus.CANCELLED.name();
+	public static final int MAX_DAYS = 366;
+	public static final int MAX_TOP_PRODUCTS = 100;
+
+	@Autowired
+	private SalesSummaryJdbcRepository salesSummaryJdbcRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	private final ConcurrentHashMap<LocalDate, Totals> daily = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<Long, Totals> byProduct = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, AtomicLong> byStatus = new ConcurrentHashMap<>();
+	private final Totals overall = new Totals(null);
+
+	private final Set<LocalDate> dirtyDays = ConcurrentHashMap.newKeySet();
+	private final Set<Long> dirtyProducts = ConcurrentHashMap.newKeySet();
+	private final Set<String> dirtyStatuses = ConcurrentHashMap.newKeySet();
+
+	// best sellers, ranked again on each flush that saw product sales
+	private volatile List<Map<String, Object>> topProducts = List.of();
+
+	/**
+	 * Startup only. The commit hooks do not take this lock, so an order committing
+	 * while the tables are scanned would be counted by the scan and again by its hook.
+	 */
+	@PostConstruct
+	synchronized void rebuild() {
+		daily.clear();
+		byProduct.clear();
+		byStatus.clear();
+		overall.reset();
+
+		salesSummaryJdbcRepository.scanDailyOrders(rs -> {
+			long orders = rs.getLong(2);
+			BigDecimal revenue = rs.getBigDecimal(3);
+			daily.computeIfAbsent(rs.getDate(1).toLocalDate(), d -> new Totals(null)).add(orders, 0, revenue);
+			overall.add(orders, 0, revenue);
+		});
+		salesSummaryJdbcRepository.scanDailyUnits(rs -> {
+			long units = rs.getLong(2);
+			daily.computeIfAbsent(rs.getDate(1).toLocalDate(), d -> new Totals(null)).add(0, units, BigDecimal.ZERO);
+			overall.add(0, units, BigDecimal.ZERO);
+		});
+		salesSummaryJdbcRepository.scanProductSales(rs ->
+				byProduct.computeIfAbsent(rs.getLong(1), id -> new Totals(null))
+						.named(rs.getString(2))
+						.add(0, rs.getLong(3), rs.getBigDecimal(4)));
+		salesSummaryJdbcRepository.scanStatusCounts(rs ->
+				byStatus.computeIfAbsent(rs.getString(1), s -> new AtomicLong()).addAndGet(rs.getLong(2)));
+
+		dirtyDays.clear();
+		dirtyProducts.clear();
+		dirtyStatuses.clear();
+		topProducts = rankProducts();
+		transactionTemplate.executeWithoutResult(status -> {
+			salesSummaryJdbcRepository.deleteAll();
+			writeSummaries(daily.keySet(), byProduct.keySet(), byStatus.keySet());
+		});
+	}
+
+	/** Counts a new order once the surrounding transaction commits. Call last, after every write succeeded. */
+	public void recordOrder(Order order) {
+		Change change = new Change(order);
+		afterCommit(() -> {
+			adjustStatus(order.getStatus(), 1);
+			if (isSale(order.getStatus())) {
+				apply(change, 1);
+			}
+		});
+	}
+
+	/** Moves an order between statuses once the surrounding transaction commits. */
+	public void recordStatusChange(Order order, String oldStatus, String newStatus) {
+		if (Objects.equals(oldStatus, newStatus)) {
+			return;
+		}
+		Change change = new Change(order);
+		afterCommit(() -> {
+			adjustStatus(oldStatus, -1);
+			adjustStatus(newStatus, 1);
+			boolean wasSale = isSale(oldStatus);
+			boolean isSale = isSale(newStatus);
+			if (wasSale != isSale) {
+				apply(change, isSale ? 1 : -1);
+			}
+		});
+	}
+
+	/**
+	 * Status moves that do not change whether the orders count as sales
+	 * (bulk transitions other than cancellation); only the per-status figures change.
+	 */
+	public void recordStatusMoves(Map<String, Long> ordersByOldStatus, String newStatus) {
+		afterCommit(() -> ordersByOldStatus.forEach((oldStatus, count) -> {
+			adjustStatus(oldStatus, -count);
+			adjustStatus(newStatus, count);
+		}));
+	}
+
+	public static boolean isSale(String status) {
+		return !CANCELLED.equalsIgnoreCase(status);
+	}
+
+	@Scheduled(fixedDelayString = "${analytics.flush-ms:5000}")
+	@PreDestroy
+	public synchronized void flush() {
+		Set<LocalDate> days = drain(dirtyDays);
+		Set<Long> products = drain(dirtyProducts);
+		Set<String> statuses = drain(dirtyStatuses);
+		if (days.isEmpty() && products.isEmpty() && statuses.isEmpty()) {
+			return;
+		}
+		if (!products.isEmpty()) {
+			topProducts = rankProducts();
+		}
+		try {
+			transactionTemplate.executeWithoutResult(status -> writeSummaries(days, products, statuses));
+		} catch (RuntimeException e) {
+			// retry on the next run; the in-memory figures are unaffected
+			dirtyDays.addAll(days);
+			dirtyProducts.addAll(products);
+			dirtyStatuses.addAll(statuses);
+			throw e;
+		}
+	}
+
+	public Map<String, Object> getSummary() {
+		long orders = overall.orders.sum();
+		long units = overall.units.sum();
+		BigDecimal revenue = overall.revenue.get();
+		Map<String, Object> summary = new LinkedHashMap<>();
+		summary.put("orders", orders);
+		summary.put("units", units);
+		summary.put("revenue", revenue);
+		summary.put("averageOrderValue", orders == 0 ? BigDecimal.ZERO
+				: revenue.divide(BigDecimal.valueOf(orders), 2, RoundingMode.HALF_UP));
+		summary.put("averageBasketUnits", orders == 0 ? 0.0 : (double) units / orders);
+		Map<String, Long> statuses = new TreeMap<>();
+		byStatus.forEach((status, count) -> {
+			if (count.get() != 0) {
+				statuses.put(status, count.get());
+			}
+		});
+		summary.put("ordersByStatus", statuses);
+		return summary;
+	}
+
+	/** One entry per day in [from, to], including days without sales. */
+	public List<Map<String, Object>> getDaily(LocalDate from, LocalDate to) {
+		if (to.isBefore(from)) {
+			throw new RuntimeException("'to' is before 'from'");
+		}
+		if (from.plusDays(MAX_DAYS).isBefore(to)) {
+			throw new RuntimeException("Date range is limited to " + MAX_DAYS + " days");
+		}
+		List<Map<String, Object>> days = new ArrayList<>();
+		for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+			Totals totals = daily.get(day);
+			Map<String, Object> entry = new LinkedHashMap<>();
+			entry.put("day", day);
+			entry.put("orders", totals == null ? 0 : totals.orders.sum());
+			entry.put("units", totals == null ? 0 : totals.units.sum());
+			entry.put("revenue", totals == null ? BigDecimal.ZERO : totals.revenue.get());
+			days.add(entry);
+		}
+		return days;
+	}
+
+	/** Best sellers by units, as ranked on the last flush (at most {@code analytics.flush-ms} behind). */
+	public List<Map<String, Object>> getTopProducts(int limit) {
+		List<Map<String, Object>> top = topProducts;
+		return top.subList(0, Math.min(Math.max(limit, 1), top.size()));
+	}
+
+	/** The {@value #MAX_TOP_PRODUCTS} best sellers: a bounded heap over the products that have sold. */
+	private List<Map<String, Object>> rankProducts() {
+		int size = MAX_TOP_PRODUCTS;
+		Comparator<Map.Entry<Long, Totals>> byUnits = Comparator.comparingLong(e -> e.getValue().units.sum());
+		PriorityQueue<Map.Entry<Long, Totals>> top = new PriorityQueue<>(size + 1, byUnits);
+		for (Map.Entry<Long, Totals> entry : byProduct.entrySet()) {
+			if (entry.getValue().units.sum() <= 0) {
+				continue;
+			}
+			top.offer(Map.entry(entry.getKey(), entry.getValue()));
+			if (top.size() > size) {
+				top.poll();
+			}
+		}
+
+		List<Map<String, Object>> products = new ArrayList<>();
+		while (!top.isEmpty()) {
+			Map.Entry<Long, Totals> entry = top.poll();
+			Map<String, Object> product = new LinkedHashMap<>();
+			product.put("productId", entry.getKey());
+			product.put("productName", entry.getValue().name);
+			product.put("units", entry.getValue().units.sum());
+			product.put("revenue", entry.getValue().revenue.get());
+			products.add(Collections.unmodifiableMap(product));
+		}
+		Collections.reverse(products);
+		return Collections.unmodifiableList(products);
+	}
+
+	private void apply(Change change, int sign) {
+		daily.computeIfAbsent(change.day, d -> new Totals(null)).add(sign, sign * change.units, change.revenue, sign);
+		overall.add(sign, sign * change.units, change.revenue, sign);
+		dirtyDays.add(change.day);
+		change.lines.forEach((productId, line) -> {
+			byProduct.computeIfAbsent(productId, id -> new Totals(null))
+					.named(line.name)
+					.add(0, sign * line.units, Money.toBigDecimal(line.revenueMinorUnits, Money.DEFAULT_CURRENCY), sign);
+			dirtyProducts.add(productId);
+		});
+	}
+
+	private void adjustStatus(String status, long delta) {
+		byStatus.computeIfAbsent(status, s -> new AtomicLong()).addAndGet(delta);
+		dirtyStatuses.add(status);
+	}
+
+	private void writeSummaries(Collection<LocalDate> days, Collection<Long> products, Collection<String> statuses) {
+		List<Object[]> dayRows = new ArrayList<>();
+		for (LocalDate day : days) {
+			Totals totals = daily.get(day);
+			dayRows.add(new Object[]{day, totals.orders.sum(), totals.units.sum(), totals.revenue.get()});
+		}
+		List<Object[]> productRows = new ArrayList<>();
+		for (Long productId : products) {
+			Totals totals = byProduct.get(productId);
+			productRows.add(new Object[]{productId, totals.name, totals.units.sum(), totals.revenue.get()});
+		}
+		List<Object[]> statusRows = new ArrayList<>();
+		for (String status : statuses) {
+			statusRows.add(new Object[]{status, byStatus.get(status).get()});
+		}
+		if (!dayRows.isEmpty()) {
+			salesSummaryJdbcRepository.upsertDaily(dayRows);
+		}
+		if (!productRows.isEmpty()) {
+			salesSummaryJdbcRepository.upsertProducts(productRows);
+		}
+		if (!statusRows.isEmpty()) {
+			salesSummaryJdbcRepository.upsertStatuses(statusRows);
+		}
+	}
+
+	private static <T> Set<T> drain(Set<T> dirty) {
+		Set<T> drained = new HashSet<>();
+		for (Iterator<T> it = dirty.iterator(); it.hasNext(); ) {
+			drained.add(it.next());
+			it.remove();
+		}
+		return drained;
+	}
+
+	private static void afterCommit(Runnable action) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			action.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				action.run();
+			}
+		});
+	}
+
+	/** What an order contributes to the sale aggregates, captured while its items are at hand. */
+	private static final class Change {
+		final LocalDate day;
+		final long units;
+		final BigDecimal revenue;
+		final Map<Long, Line> lines = new HashMap<>();
+
+		Change(Order order) {
+			day = order.getOrderDate().toLocalDate();
+			revenue = order.getTotalAmount().toBigDecimal();
+			long total = 0;
+			for (OrderItem item : order.getItems()) {
+				total += item.getQuantity();
+				Line line = lines.computeIfAbsent(item.getProduct().getId(), id -> new Line(item.getProduct().getName()));
+				line.units += item.getQuantity();
+				line.revenueMinorUnits = Money.plus(line.revenueMinorUnits, item.getSubtotalMinorUnits());
+			}
+			units = total;
+		}
+	}
+
+	private static final class Line {
+		final String name;
+		long units;
+		long revenueMinorUnits;
+
+		Line(String name) {
+			this.name = name;
+		}
+	}
+
+	private static final class Totals {
+		volatile String name;
+		final LongAdder orders = new LongAdder();
+		final LongAdder units = new LongAdder();
+		final AtomicReference<BigDecimal> revenue = new AtomicReference<>(BigDecimal.ZERO);
+
+		Totals(String name) {
+			this.name = name;
+		}
+
+		Totals named(String name) {
+			if (name != null) {
+				this.name = name;
+			}
+			return this;
+		}
+
+		void add(long orders, long units, BigDecimal revenue) {
+			add(orders, units, revenue, 1);
+		}
+
+		void add(long orders, long units, BigDecimal revenue, int sign) {
+			this.orders.add(orders);
+			this.units.add(units);
+			BigDecimal signed = sign < 0 ? revenue.negate() : revenue;
+			this.revenue.accumulateAndGet(signed, BigDecimal::add);
+		}
+
+		void reset() {
+			orders.reset();
+			units.reset();
+			revenue.set(BigDecimal.ZERO);
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package com.example.demo.service;
+
+import com.example.demo.model.RevokedToken;
+import com.example.demo.repository.RevokedTokenRepository;
+import com.example.demo.util.BloomFilter;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Revoked token ids (jti). The request path checks a Bloom filter first and only
+ * consults the exact set on a possible hit, so the common "not revoked" case is a
+ * few array reads. The in-memory view is rebuilt from the revoked_tokens table
+ * periodically, which also drops ids whose tokens have expired.
+ */
+@Service
+public class TokenRevocationService {
+
+	@Autowired
+	private RevokedTokenRepository revokedTokenRepository;
+
+	@Value("${jwt.revocation.expected-entries:100000}")
+	private int expectedEntries;
+
+	@Value("${jwt.revocation.false-positive-rate:0.01}")
+	private double falsePositiveRate;
+
+	private volatile Snapshot snapshot;
+	// held while adding to the snapshot and while replacing it, so no local add is lost in the swap
+	private final Object swapLock = new Object();
+
+	@PostConstruct
+	public void init() {
+		snapshot = new Snapshot(expectedEntries, falsePositiveRate);
+		reload();
+	}
+
+	public boolean isRevoked(String tokenId) {
+		if (tokenId == null) {
+			return false;
+		}
+		Snapshot current = snapshot;
+		return current.bloom.mightContain(tokenId) && current.exact.containsKey(tokenId);
+	}
+
+	/**
+	 * Persists the revocation and applies it locally.
+	 * Returns false if the id was already revoked, which lets refresh rotation
+	 * detect a token being used twice. The insert into revoked_tokens decides:
+	 * of two concurrent revocations of one id only one gets its row in.
+	 */
+	public boolean revoke(String tokenId, Instant expiresAt) {
+		if (tokenId == null || isRevoked(tokenId)) {
+			return false;
+		}
+		boolean inserted;
+		try {
+			revokedTokenRepository.insert(tokenId, LocalDateTime.ofInstant(expiresAt, ZoneId.systemDefault()));
+			inserted = true;
+		} catch (DataIntegrityViolationException e) {
+			// revoked already, here or by another instance
+			inserted = false;
+		}
+		synchronized (swapLock) {
+			snapshot.add(tokenId, expiresAt.toEpochMilli());
+		}
+		return inserted;
+	}
+
+	@Scheduled(fixedDelayString = "${jwt.revocation.sync-ms:60000}")
+	public void reload() {
+		LocalDateTime now = LocalDateTime.now();
+		revokedTokenRepository.deleteExpired(now);
+
+		Snapshot fresh = new Snapshot(expectedEntries, falsePositiveRate);
+		for (RevokedToken token : revokedTokenRepository.findByExpiresAtAfter(now)) {
+			fresh.add(token.getTokenId(), token.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+		}
+
+		// keep local revocations that raced with the query above
+		long nowMillis = System.currentTimeMillis();
+		synchronized (swapLock) {
+			snapshot.exact.forEach((tokenId, expiresAt) -> {
+				if (expiresAt > nowMillis) {
+					fresh.add(tokenId, expiresAt);
+				}
+			});
+			snapshot = fresh;
+		}
+	}
+
+	public Map<String, Object> getStats() {
+		Snapshot current = snapshot;
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("revokedTokens", current.exact.size());
+		stats.put("bloomBits", current.bloom.getBitCount());
+		stats.put("bloomHashes", current.bloom.getHashCount());
+		return stats;
+	}
+
+	private static final class Snapshot {
+		final BloomFilter bloom;
+		final ConcurrentHashMap<String, Long> exact = new ConcurrentHashMap<>();
+
+		Snapshot(int expectedEntries, double falsePositiveRate) {
+			this.bloom = new BloomFilter(expectedEntries, falsePositiveRate);
+		}
+
+		void add(String tokenId, long expiresAt) {
+			exact.put(tokenId, expiresAt);
+			bloom.put(tokenId);
+		}
+	}
+}
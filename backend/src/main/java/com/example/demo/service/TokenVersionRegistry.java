@@ -0,0 +1,41 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory copy of each user's token version, so stateless authentication can
+ * reject revoked tokens without loading the user. Only users that were ever
+ * bumped are stored; everyone else is at version 0.
+ */
+@Service
+public class TokenVersionRegistry {
+
+	@Autowired
+	private UserRepository userRepository;
+
+	private final ConcurrentHashMap<Long, Integer> versions = new ConcurrentHashMap<>();
+
+	@PostConstruct
+	public void load() {
+		for (Object[] row : userRepository.findBumpedTokenVersions()) {
+			versions.put((Long) row[0], (Integer) row[1]);
+		}
+	}
+
+	public int currentVersion(Long userId) {
+		return versions.getOrDefault(userId, 0);
+	}
+
+	public boolean isCurrent(Long userId, int tokenVersion) {
+		return currentVersion(userId) == tokenVersion;
+	}
+
+	public void update(Long userId, int tokenVersion) {
+		versions.merge(userId, tokenVersion, Math::max);
+	}
+}
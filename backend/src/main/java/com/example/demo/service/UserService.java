@@ -3,7 +3,6 @@ package com.example.demo.service;
 import com.example.demo.model.User;
 import com.example.demo.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.password.PasswordEncoder; // ← This import!
 import org.springframework.stereotype.Service;
 
 import java.util.Optional;
@@ -13,7 +12,13 @@ public class UserService {
 	private UserRepository userRepository;
 
 	@Autowired
-	private PasswordEncoder passwordEncoder;
+	private PasswordHashingService passwordHashingService;
+
+	@Autowired
+	private TokenVersionRegistry tokenVersionRegistry;
+
+	@Autowired
+	private CustomUserDetailsService userDetailsService;
 
 	public User registerUser(User user) {
 
@@ -22,7 +27,7 @@ public class UserService {
 		}
 
 
-		user.setPassword(passwordEncoder.encode(user.getPassword()));
+		user.setPassword(passwordHashingService.encode(user.getPassword()));
 
 
 		if (user.getRole() == null) {
@@ -34,7 +39,9 @@ public class UserService {
 			user.setRole(User.ROLE_ADMIN);
 		}
 
-		return userRepository.save(user);
+		User saved = userRepository.save(user);
+		userDetailsService.evict(saved.getEmail());
+		return saved;
 	}
 
 
@@ -42,7 +49,12 @@ public class UserService {
 		User user = userRepository.findById(userId)
 				.orElseThrow(() -> new RuntimeException("User not found"));
 		user.setRole(newRole);
-		return userRepository.save(user);
+		// tokens issued with the old role must stop working
+		user.setTokenVersion(user.getTokenVersion() + 1);
+		User saved = userRepository.save(user);
+		tokenVersionRegistry.update(saved.getId(), saved.getTokenVersion());
+		userDetailsService.evict(saved.getEmail());
+		return saved;
 	}
 
 	public User loginUser(String email, String password) {
@@ -52,7 +64,14 @@ public class UserService {
 			User user = userOptional.get();
 
 
-			if (passwordEncoder.matches(password, user.getPassword())) {
+			if (passwordHashingService.matches(password, user.getPassword())) {
+				// work factor changed since this hash was made: store a fresh one
+				if (passwordHashingService.needsRehash(user.getPassword())) {
+					user.setPassword(passwordHashingService.encode(password));
+					user = userRepository.save(user);
+					userDetailsService.evict(user.getEmail());
+					passwordHashingService.recordRehash();
+				}
 				return user;
 			}
 		}
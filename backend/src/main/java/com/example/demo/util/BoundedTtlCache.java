@@ -0,0 +1,210 @@
+package com.example.demo.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Small in-memory cache with a hard size bound and a per-entry expiry time.
+ * Expired entries are dropped lazily on read and swept when the cache is full;
+ * if it is still nearly full after the sweep, arbitrary entries are evicted.
+ * Each sweep frees a tenth of the bound, so a full cache of live entries pays
+ * for one scan every {@code maxSize / 10} new keys rather than on every put.
+ * Concurrent misses for the same key through {@link #get(Object, Function)}
+ * share a single load.
+ */
+public class BoundedTtlCache<K, V> {
+
+	private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+	private final int maxSize;
+	// what a sweep brings the size down to
+	private final int lowWater;
+	private final long defaultTtlMillis;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder loads = new LongAdder();
+	private final LongAdder loadNanos = new LongAdder();
+
+	public BoundedTtlCache (int maxSize, long defaultTtlMillis) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("maxSize must be positive");
+		}
+		this.maxSize = maxSize;
+		this.lowWater = maxSize - Math.max(1, maxSize / 10);
+		this.defaultTtlMillis = defaultTtlMillis;
+	}
+
+	public V get (K key) {
+		Entry<V> entry = entries.get(key);
+		if (entry == null) {
+			misses.increment();
+			return null;
+		}
+		if (entry.isExpired(System.currentTimeMillis())) {
+			if (entries.remove(key, entry)) {
+				evictions.increment();
+			}
+			misses.increment();
+			return null;
+		}
+		hits.increment();
+		return entry.value;
+	}
+
+	/**
+	 * Returns the cached value or loads it. Callers that miss while another
+	 * thread is loading the same key wait for that load instead of running their own.
+	 * Null results are not cached; loader exceptions propagate to every waiter.
+	 */
+	public V get (K key, Function<? super K, ? extends V> loader) {
+		V cached = get(key);
+		if (cached != null) {
+			return cached;
+		}
+
+		CompletableFuture<V> mine = new CompletableFuture<>();
+		CompletableFuture<V> inFlight = loading.putIfAbsent(key, mine);
+		if (inFlight != null) {
+			return await(inFlight);
+		}
+
+		try {
+			long start = System.nanoTime();
+			V value = loader.apply(key);
+			loadNanos.add(System.nanoTime() - start);
+			loads.increment();
+			// skip the put if the key was invalidated while loading
+			if (loading.remove(key, mine) && value != null) {
+				put(key, value);
+			}
+			mine.complete(value);
+			return value;
+		} catch (RuntimeException e) {
+			mine.completeExceptionally(e);
+			throw e;
+		} finally {
+			loading.remove(key, mine);
+		}
+	}
+
+	public void put (K key, V value) {
+		put(key, value, System.currentTimeMillis() + defaultTtlMillis);
+	}
+
+	public void put (K key, V value, long expiresAtMillis) {
+		if (entries.size() >= maxSize && !entries.containsKey(key)) {
+			makeRoom();
+		}
+		entries.put(key, new Entry<>(value, expiresAtMillis));
+	}
+
+	public void invalidate (K key) {
+		loading.remove(key);
+		entries.remove(key);
+	}
+
+	public void invalidateAll () {
+		loading.clear();
+		entries.clear();
+	}
+
+	public int size () {
+		return entries.size();
+	}
+
+	public long getHits () {
+		return hits.sum();
+	}
+
+	public long getMisses () {
+		return misses.sum();
+	}
+
+	public long getEvictions () {
+		return evictions.sum();
+	}
+
+	public long getLoads () {
+		return loads.sum();
+	}
+
+	public double getAverageLoadMillis () {
+		long count = loads.sum();
+		return count == 0 ? 0.0 : loadNanos.sum() / 1_000_000.0 / count;
+	}
+
+	public double getHitRatio () {
+		long h = hits.sum();
+		long total = h + misses.sum();
+		return total == 0 ? 0.0 : (double) h / total;
+	}
+
+	public Map<String, Object> stats () {
+		Map<String, Object> stats = new LinkedHashMap<>();
+		stats.put("size", size());
+		stats.put("maxSize", maxSize);
+		stats.put("hits", getHits());
+		stats.put("misses", getMisses());
+		stats.put("hitRatio", getHitRatio());
+		stats.put("evictions", getEvictions());
+		stats.put("loads", getLoads());
+		stats.put("averageLoadMillis", getAverageLoadMillis());
+		return stats;
+	}
+
+	private static <V> V await (CompletableFuture<V> future) {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			throw e;
+		}
+	}
+
+	// one thread sweeps at a time; those that waited find the room already made
+	private synchronized void makeRoom () {
+		if (entries.size() < maxSize) {
+			return;
+		}
+		long now = System.currentTimeMillis();
+		entries.entrySet().removeIf(e -> {
+			boolean expired = e.getValue().isExpired(now);
+			if (expired) {
+				evictions.increment();
+			}
+			return expired;
+		});
+
+		// still nearly full: drop entries down to the low-water mark
+		Iterator<K> it = entries.keySet().iterator();
+		while (entries.size() > lowWater && it.hasNext()) {
+			it.next();
+			it.remove();
+			evictions.increment();
+		}
+	}
+
+	private static final class Entry<V> {
+		final V value;
+		final long expiresAt;
+
+		Entry (V value, long expiresAt) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+
+		boolean isExpired (long now) {
+			return expiresAt <= now;
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package com.example.demo.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads RFC 4180 CSV one record at a time: comma separated, fields optionally
+ * quoted, "" for a quote inside a quoted field, line breaks allowed inside
+ * quotes, LF or CRLF between records. Holds only the current record in memory.
+ */
+public class CsvReader {
+
+	private final Reader in;
+	private final char[] buffer = new char[64 * 1024];
+	private int position;
+	private int limit;
+	private long line = 1;
+	private long recordLine;
+
+	public CsvReader (Reader in) {
+		this.in = in;
+	}
+
+	/** The next record's fields, or null at the end of the input. Blank lines are skipped. */
+	public List<String> next () throws IOException {
+		int c = read();
+		while (c == '\r' || c == '\n') {
+			c = read();
+		}
+		if (c == -1) {
+			return null;
+		}
+		recordLine = line;
+
+		List<String> fields = new ArrayList<>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		while (true) {
+			if (quoted) {
+				if (c == -1) {
+					throw new IOException("Unterminated quoted field starting on line " + recordLine);
+				}
+				if (c == '"') {
+					int following = read();
+					if (following == '"') {
+						field.append('"');
+					} else {
+						quoted = false;
+						c = following;
+						continue;
+					}
+				} else {
+					field.append((char) c);
+				}
+			} else if (c == '"' && field.length() == 0) {
+				quoted = true;
+			} else if (c == ',') {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else if (c == '\n' || c == '\r' || c == -1) {
+				if (c == '\r' && peek() == '\n') {
+					read();
+				}
+				fields.add(field.toString());
+				return fields;
+			} else {
+				field.append((char) c);
+			}
+			c = read();
+		}
+	}
+
+	/** Line on which the last record returned by {@link #next()} started (1-based). */
+	public long getRecordLine () {
+		return recordLine;
+	}
+
+	private int read () throws IOException {
+		if (position == limit && !fill()) {
+			return -1;
+		}
+		char c = buffer[position++];
+		if (c == '\n') {
+			line++;
+		}
+		return c;
+	}
+
+	private int peek () throws IOException {
+		if (position == limit && !fill()) {
+			return -1;
+		}
+		return buffer[position];
+	}
+
+	private boolean fill () throws IOException {
+		int read = in.read(buffer, 0, buffer.length);
+		if (read <= 0) {
+			return false;
+		}
+		position = 0;
+		limit = read;
+		return true;
+	}
+}
@@ -5,12 +5,15 @@ import io.jsonwebtoken.security.Keys;
 import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -22,9 +25,31 @@ public class JwtTokenUtil {
 	@Value("${jwt.secret:default_change_me_to_secure_secret_key_which_is_long_enough}")
 	private String secret;
 
+	// access token lifetime in seconds; clients renew through /api/auth/refresh
+	@Value("${jwt.expiration:900}")
+	private long accessTokenValidity;
+
+	@Value("${jwt.refresh-expiration:1209600}")
+	private long refreshTokenValidity;
+
+	@Value("${jwt.cache.max-size:10000}")
+	private int cacheMaxSize;
+
 	private Key signingKey;
 
-	private static final long JWT_TOKEN_VALIDITY = 5 * 60 * 60; // seconds (5 hours)
+	// built once; JwtParser is immutable and thread-safe
+	private JwtParser parser;
+
+	// verified claims keyed by SHA-256 of the raw token, kept until the token's exp
+	private BoundedTtlCache<String, Claims> verifiedTokens;
+
+	private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	});
 
 	@PostConstruct
 	public void init() {
@@ -34,6 +59,10 @@ public class JwtTokenUtil {
 			throw new IllegalStateException("jwt.secret is missing or too short. Provide a strong secret (min 32 chars) in application.properties!");
 		}
 		signingKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+		parser = Jwts.parserBuilder()
+				.setSigningKey(signingKey)
+				.build();
+		verifiedTokens = new BoundedTtlCache<>(cacheMaxSize, accessTokenValidity * 1000);
 	}
 
 	private Key getSigningKey() {
@@ -53,12 +82,37 @@ public class JwtTokenUtil {
 		return claimsResolver.apply(claims);
 	}
 
+	/**
+	 * Parses and verifies the token once. Tokens seen before are served from the
+	 * cache without re-checking the signature until their exp claim passes.
+	 */
+	public Claims getVerifiedClaims(String token) {
+		String key = digest(token);
+		Claims cached = verifiedTokens.get(key);
+		if (cached != null) {
+			return cached;
+		}
+
+		Claims claims = parser.parseClaimsJws(token).getBody();
+		Date expiration = claims.getExpiration();
+		if (expiration != null) {
+			verifiedTokens.put(key, claims, expiration.getTime());
+		}
+		return claims;
+	}
+
+	public Map<String, Object> getCacheStats() {
+		return verifiedTokens.stats();
+	}
+
 	private Claims getAllClaimsFromToken(String token) {
-		return Jwts.parserBuilder()
-				.setSigningKey(getSigningKey())
-				.build()
-				.parseClaimsJws(token)
-				.getBody();
+		return getVerifiedClaims(token);
+	}
+
+	private static String digest(String token) {
+		MessageDigest md = SHA256.get();
+		md.reset();
+		return HexFormat.of().formatHex(md.digest(token.getBytes(StandardCharsets.UTF_8)));
 	}
 
 	private Boolean isTokenExpired(String token) {
@@ -66,18 +120,64 @@ public class JwtTokenUtil {
 		return expiration.before(new Date());
 	}
 
+	private boolean isTokenExpired(Claims claims) {
+		Date expiration = claims.getExpiration();
+		return expiration != null && expiration.before(new Date());
+	}
+
+	public static final String CLAIM_ROLES = "roles";
+	public static final String CLAIM_USER_ID = "uid";
+	public static final String CLAIM_TOKEN_VERSION = "tv";
+	public static final String CLAIM_TOKEN_TYPE = "typ";
+	public static final String TOKEN_TYPE_REFRESH = "refresh";
+
 	public String generateToken(UserDetails userDetails) {
+		return generateToken(userDetails, null, 0);
+	}
+
+	public String generateToken(UserDetails userDetails, Long userId, int tokenVersion) {
 		Map<String, Object> claims = new HashMap<>();
 		String roles = userDetails.getAuthorities().stream()
 				.map(GrantedAuthority::getAuthority)
 				.collect(Collectors.joining(","));
-		claims.put("roles", roles);
+		claims.put(CLAIM_ROLES, roles);
+		if (userId != null) {
+			claims.put(CLAIM_USER_ID, userId);
+			claims.put(CLAIM_TOKEN_VERSION, tokenVersion);
+		}
+
+		return buildToken(claims, userDetails.getUsername(), accessTokenValidity);
+	}
+
+	/**
+	 * Long-lived token that can only be exchanged for a new access/refresh pair.
+	 * It carries no roles; those are re-read when it is redeemed.
+	 */
+	public String generateRefreshToken(String username, Long userId, int tokenVersion) {
+		Map<String, Object> claims = new HashMap<>();
+		claims.put(CLAIM_TOKEN_TYPE, TOKEN_TYPE_REFRESH);
+		claims.put(CLAIM_USER_ID, userId);
+		claims.put(CLAIM_TOKEN_VERSION, tokenVersion);
+		return buildToken(claims, username, refreshTokenValidity);
+	}
+
+	public boolean isRefreshToken(Claims claims) {
+		return TOKEN_TYPE_REFRESH.equals(claims.get(CLAIM_TOKEN_TYPE));
+	}
+
+	public long getAccessTokenValidity() {
+		return accessTokenValidity;
+	}
 
+	private String buildToken(Map<String, Object> claims, String subject, long validitySeconds) {
+		long now = System.currentTimeMillis();
 		return Jwts.builder()
 				.setClaims(claims)
-				.setSubject(userDetails.getUsername())
-				.setIssuedAt(new Date(System.currentTimeMillis()))
-				.setExpiration(new Date(System.currentTimeMillis() + JWT_TOKEN_VALIDITY * 1000))
+				// jti: the id used for revocation
+				.setId(UUID.randomUUID().toString())
+				.setSubject(subject)
+				.setIssuedAt(new Date(now))
+				.setExpiration(new Date(now + validitySeconds * 1000))
 				.signWith(getSigningKey(), SignatureAlgorithm.HS256)
 				.compact();
 	}
@@ -87,8 +187,41 @@ public class JwtTokenUtil {
 		return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
 	}
 
+	public boolean validateToken(Claims claims, UserDetails userDetails) {
+		return claims.getSubject().equals(userDetails.getUsername()) && !isTokenExpired(claims);
+	}
+
 	public String getRoleFromToken(String token) {
 		final Claims claims = getAllClaimsFromToken(token);
-		return claims.get("roles", String.class);
+		return claims.get(CLAIM_ROLES, String.class);
+	}
+
+	public Long getUserIdFromClaims(Claims claims) {
+		Number userId = claims.get(CLAIM_USER_ID, Number.class);
+		return userId == null ? null : userId.longValue();
+	}
+
+	public int getTokenVersionFromClaims(Claims claims) {
+		Number version = claims.get(CLAIM_TOKEN_VERSION, Number.class);
+		return version == null ? 0 : version.intValue();
+	}
+
+	/**
+	 * Builds the principal from the subject, roles and user id in the token,
+	 * without touching the database. Returns null for tokens issued without a user id.
+	 */
+	public JwtUserDetails getUserDetailsFromClaims(Claims claims) {
+		Long userId = getUserIdFromClaims(claims);
+		if (userId == null) {
+			return null;
+		}
+		String roles = claims.get(CLAIM_ROLES, String.class);
+		List<GrantedAuthority> authorities = new ArrayList<>();
+		if (roles != null && !roles.isEmpty()) {
+			for (String role : roles.split(",")) {
+				authorities.add(new SimpleGrantedAuthority(role));
+			}
+		}
+		return new JwtUserDetails(claims.getSubject(), userId, authorities);
 	}
 }
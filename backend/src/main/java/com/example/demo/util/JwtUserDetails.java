@@ -0,0 +1,25 @@
+package com.example.demo.util;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+/**
+ * Principal built straight from verified token claims (stateless mode).
+ * Carries the user id so controllers don't need to look the user up by email.
+ */
+public class JwtUserDetails extends User {
+
+	private final Long userId;
+
+	public JwtUserDetails (String username, Long userId, Collection<? extends GrantedAuthority> authorities) {
+		// no password: this principal is never used to authenticate credentials
+		super(username, "", authorities);
+		this.userId = userId;
+	}
+
+	public Long getUserId () {
+		return userId;
+	}
+}
@@ -0,0 +1,48 @@
+package com.example.demo.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in a list sorted by (date, id) descending. Sent to clients as an
+ * opaque URL-safe string; the next page starts strictly after it.
+ */
+public final class KeysetCursor {
+
+	private final LocalDateTime date;
+	private final Long id;
+
+	public KeysetCursor(LocalDateTime date, Long id) {
+		this.date = date;
+		this.id = id;
+	}
+
+	public LocalDateTime getDate() {
+		return date;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public String encode() {
+		String raw = date + "|" + id;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/** Returns null for a null or blank cursor (first page). */
+	public static KeysetCursor decode(String cursor) {
+		if (cursor == null || cursor.isBlank()) {
+			return null;
+		}
+		try {
+			String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+			int separator = raw.lastIndexOf('|');
+			return new KeysetCursor(LocalDateTime.parse(raw.substring(0, separator)), Long.parseLong(raw.substring(separator + 1)));
+		} catch (IllegalArgumentException | DateTimeParseException | StringIndexOutOfBoundsException e) {
+			throw new RuntimeException("Invalid cursor");
+		}
+	}
+}
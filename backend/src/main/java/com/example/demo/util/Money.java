@@ -0,0 +1,118 @@
+package com.example.demo.util;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+
+/**
+ * An amount of money held as a count of the currency's minor units (cents),
+ * so sums and line totals are exact long arithmetic. Code that adds up many
+ * amounts works on {@link #getMinorUnits()} directly and makes one Money at
+ * the end; the static helpers do the same overflow-checked arithmetic.
+ * <p>
+ * Serialized to JSON as a plain decimal number, as the BigDecimal amounts it
+ * replaces were.
+ */
+public final class Money {
+
+	/** The shop sells in one currency. */
+	public static final Currency DEFAULT_CURRENCY = Currency.getInstance("USD");
+
+	private final long minorUnits;
+	private final Currency currency;
+
+	private Money (long minorUnits, Currency currency) {
+		if (currency == null) {
+			throw new IllegalArgumentException("Money needs a currency");
+		}
+		this.minorUnits = minorUnits;
+		this.currency = currency;
+	}
+
+	public static Money ofMinor (long minorUnits, Currency currency) {
+		return new Money(minorUnits, currency);
+	}
+
+	public static Money ofMinor (long minorUnits) {
+		return new Money(minorUnits, DEFAULT_CURRENCY);
+	}
+
+	/**
+	 * Rounds half-up to the currency's minor unit, as the two-place decimal
+	 * columns amounts are stored in do. Throws if the amount does not fit.
+	 */
+	public static Money of (BigDecimal amount, Currency currency) {
+		if (amount == null) {
+			throw new IllegalArgumentException("Money needs an amount");
+		}
+		long minorUnits = amount.setScale(currency.getDefaultFractionDigits(), RoundingMode.HALF_UP)
+				.unscaledValue().longValueExact();
+		return new Money(minorUnits, currency);
+	}
+
+	public static Money of (BigDecimal amount) {
+		return of(amount, DEFAULT_CURRENCY);
+	}
+
+	/** {@code unitMinorUnits * quantity}, failing rather than wrapping on overflow. */
+	public static long times (long unitMinorUnits, int quantity) {
+		return Math.multiplyExact(unitMinorUnits, (long) quantity);
+	}
+
+	public static long plus (long a, long b) {
+		return Math.addExact(a, b);
+	}
+
+	public static BigDecimal toBigDecimal (long minorUnits, Currency currency) {
+		return BigDecimal.valueOf(minorUnits, currency.getDefaultFractionDigits());
+	}
+
+	public long getMinorUnits () {
+		return minorUnits;
+	}
+
+	public Currency getCurrency () {
+		return currency;
+	}
+
+	public Money plus (Money other) {
+		requireSameCurrency(other);
+		return new Money(plus(minorUnits, other.minorUnits), currency);
+	}
+
+	public Money times (int quantity) {
+		return new Money(times(minorUnits, quantity), currency);
+	}
+
+	public boolean isSameCurrency (Money other) {
+		return currency.equals(other.currency);
+	}
+
+	@JsonValue
+	public BigDecimal toBigDecimal () {
+		return toBigDecimal(minorUnits, currency);
+	}
+
+	private void requireSameCurrency (Money other) {
+		if (!isSameCurrency(other)) {
+			throw new IllegalArgumentException("Cannot mix " + currency + " and " + other.currency);
+		}
+	}
+
+	@Override
+	public boolean equals (Object o) {
+		return o instanceof Money other && minorUnits == other.minorUnits && currency.equals(other.currency);
+	}
+
+	@Override
+	public int hashCode () {
+		return Long.hashCode(minorUnits) * 31 + currency.hashCode();
+	}
+
+	@Override
+	public String toString () {
+		return toBigDecimal().toPlainString() + " " + currency.getCurrencyCode();
+	}
+}
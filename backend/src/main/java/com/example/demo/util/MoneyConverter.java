@@ -0,0 +1,30 @@
+package com.example.demo.util;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.math.BigDecimal;
+
+/**
+ * Maps {@link Money} onto the existing decimal amount columns. The columns
+ * carry no currency; every stored amount is in {@link Money#DEFAULT_CURRENCY}.
+ */
+@Converter
+public class MoneyConverter implements AttributeConverter<Money, BigDecimal> {
+
+	@Override
+	public BigDecimal convertToDatabaseColumn (Money money) {
+		if (money == null) {
+			return null;
+		}
+		if (!money.getCurrency().equals(Money.DEFAULT_CURRENCY)) {
+			throw new IllegalArgumentException("Only " + Money.DEFAULT_CURRENCY + " amounts can be stored, got " + money);
+		}
+		return money.toBigDecimal();
+	}
+
+	@Override
+	public Money convertToEntityAttribute (BigDecimal amount) {
+		return amount == null ? null : Money.of(amount);
+	}
+}
@@ -0,0 +1,69 @@
+package com.example.demo.util;
+
+import com.example.demo.model.ProductSort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in the product listing: the sort key and direction it was issued
+ * for, the sort value and the id of the last product on the page. Opaque to
+ * clients like {@link KeysetCursor}; a cursor is only valid with the sort it
+ * came from.
+ */
+public final class ProductCursor {
+
+	private final ProductSort sort;
+	private final boolean descending;
+	private final Comparable<?> value;
+	private final Long id;
+
+	public ProductCursor(ProductSort sort, boolean descending, Comparable<?> value, Long id) {
+		this.sort = sort;
+		this.descending = descending;
+		this.value = value;
+		this.id = id;
+	}
+
+	public ProductSort getSort() {
+		return sort;
+	}
+
+	public boolean isDescending() {
+		return descending;
+	}
+
+	public Comparable<?> getValue() {
+		return value;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public String encode() {
+		// the value goes last: names may contain the separator
+		String raw = sort + "|" + (descending ? "desc" : "asc") + "|" + id + "|" + value;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Returns null for a null or blank cursor (first page). A cursor issued for
+	 * another sort or direction is rejected.
+	 */
+	public static ProductCursor decode(String cursor, ProductSort sort, boolean descending) {
+		if (cursor == null || cursor.isBlank()) {
+			return null;
+		}
+		try {
+			String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+			String[] parts = raw.split("\\|", 4);
+			if (parts.length == 4 && parts[0].equals(sort.name()) && parts[1].equals(descending ? "desc" : "asc")) {
+				return new ProductCursor(sort, descending, sort.parseValue(parts[3]), Long.parseLong(parts[2]));
+			}
+		} catch (IllegalArgumentException e) {
+			// malformed base64 or number
+		}
+		throw new RuntimeException("Invalid cursor");
+	}
+}
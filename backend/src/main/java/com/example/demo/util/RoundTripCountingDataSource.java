@@ -0,0 +1,95 @@
+package com.example.demo.util;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Counts the database round trips made on each thread: every statement
+ * execution (a JDBC batch counts once) and every commit or rollback. Callers
+ * read {@link #current()} before and after a unit of work, so the figure covers
+ * whatever actually ran underneath, JPA and plain JDBC alike.
+ * <p>
+ * Every call on a counted connection or statement goes through a reflective
+ * proxy, so this is only installed when {@code jdbc.round-trip-counting.enabled}
+ * is set (the test run sets it). {@link #unwrap} still reaches the pool.
+ */
+public class RoundTripCountingDataSource extends DelegatingDataSource {
+
+	private static final ThreadLocal<long[]> COUNT = ThreadLocal.withInitial(() -> new long[1]);
+
+	public RoundTripCountingDataSource (DataSource target) {
+		super(target);
+	}
+
+	/** Round trips made so far on the calling thread. */
+	public static long current () {
+		return COUNT.get()[0];
+	}
+
+	private static void count () {
+		COUNT.get()[0]++;
+	}
+
+	@Override
+	public Connection getConnection () throws SQLException {
+		return wrap(super.getConnection());
+	}
+
+	@Override
+	public Connection getConnection (String username, String password) throws SQLException {
+		return wrap(super.getConnection(username, password));
+	}
+
+	private static Connection wrap (Connection connection) {
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+				new Counting(connection, null));
+	}
+
+	private static final class Counting implements InvocationHandler {
+		private final Object target;
+		// for a statement, the counted connection it belongs to
+		private final Connection connection;
+
+		Counting(Object target, Connection connection) {
+			this.target = target;
+			this.connection = connection;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if (name.equals("equals")) {
+				return proxy == args[0];
+			}
+			if (name.equals("hashCode")) {
+				return System.identityHashCode(proxy);
+			}
+			if (connection != null && name.equals("getConnection")) {
+				return connection;
+			}
+			if (name.startsWith("execute") || name.equals("commit") || name.equals("rollback")) {
+				count();
+			}
+			Object result;
+			try {
+				result = method.invoke(target, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+			// statements made by a counted connection are counted too
+			Class<?> type = method.getReturnType();
+			if (result != null && type.isInterface() && Statement.class.isAssignableFrom(type)) {
+				return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, new Counting(result, (Connection) proxy));
+			}
+			return result;
+		}
+	}
+}
@@ -0,0 +1,130 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ProductImportResult;
+import com.example.demo.repository.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.MockMvcPrint;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Allocation and CPU per GET /api/products on this thread, against a catalog
+ * of exactly {@value #PRODUCTS} products in a database of its own: serializing
+ * (and compressing) on every request, against the snapshot served through the
+ * whole servlet path. MockMvc keeps every response in a growing buffer, which
+ * a real container streams out instead; that share is measured on its own and
+ * taken off. Printing is off, as the default print-on-failure recording turns
+ * each binary body into a String.
+ */
+// mvn test -Pbenchmark
+@Tag("benchmark")
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:catalog-benchmark;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+		"catalog.stock-refresh-ms=600000"})
+@AutoConfigureMockMvc(print = MockMvcPrint.NONE)
+class CatalogRequestBenchmarkTests {
+
+	private static final Log logger = LogFactory.getLog(CatalogRequestBenchmarkTests.class);
+
+	private static final int PRODUCTS = 20_000;
+
+	@Autowired
+	private CatalogService catalogService;
+
+	@Autowired
+	private ProductImportService productImportService;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Test
+	void benchmarkCatalogRequest() throws Exception {
+		StringBuilder csv = new StringBuilder(PRODUCTS * 40).append("name,price,stock,image_url\n");
+		for (int i = 0; i < PRODUCTS; i++) {
+			csv.append("Catalog product ").append(i).append(',').append(1 + i % 100).append(".99,").append(i % 50)
+					.append(",/api/images/").append(i).append(".png\n");
+		}
+		ProductImportResult seeded = productImportService.importProducts(ProductImportService.Format.CSV,
+				new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)));
+		assertEquals(PRODUCTS, seeded.getInserted());
+		CatalogService.Snapshot snapshot = catalogService.getCurrentSnapshot();
+		assertEquals(PRODUCTS, snapshot.getProductCount());
+		byte[] gzipBody = snapshot.getGzipBody();
+		int runs = 20;
+
+		Cost perRequestJson = measure(runs, () -> objectMapper.writeValueAsBytes(productRepository.findAll()));
+		Cost perRequestGzip = measure(runs, () -> gzip(objectMapper.writeValueAsBytes(productRepository.findAll())));
+		Cost request = measure(runs, () -> mockMvc.perform(get("/api/products").header("Accept-Encoding", "gzip"))
+				.andExpect(status().isOk()));
+		Cost mockBuffer = measure(runs, () -> new MockHttpServletResponse().getOutputStream().write(gzipBody));
+		Cost notModified = measure(runs, () -> mockMvc.perform(get("/api/products")
+				.header("Accept-Encoding", "gzip").header("If-None-Match", snapshot.getGzipEtag()))
+				.andExpect(status().isNotModified()));
+		long servletPath = request.bytes - mockBuffer.bytes;
+
+		logger.info(String.format("catalog: %d products, %d bytes json, %d bytes gzip",
+				snapshot.getProductCount(), snapshot.getBody().length, gzipBody.length));
+		logger.info(String.format("  load + serialize per request:        %,d bytes, %.2f ms cpu", perRequestJson.bytes, perRequestJson.cpuMillis));
+		logger.info(String.format("  load + serialize + gzip per request: %,d bytes, %.2f ms cpu", perRequestGzip.bytes, perRequestGzip.cpuMillis));
+		logger.info(String.format("  MockMvc call on the snapshot:        %,d bytes, %.2f ms cpu", request.bytes, request.cpuMillis));
+		logger.info(String.format("    of which MockMvc's response buffer: %,d bytes, %.2f ms cpu", mockBuffer.bytes, mockBuffer.cpuMillis));
+		logger.info(String.format("    servlet path without it:            %,d bytes, %.2f ms cpu", servletPath, request.cpuMillis - mockBuffer.cpuMillis));
+		logger.info(String.format("  MockMvc 304:                         %,d bytes, %.2f ms cpu", notModified.bytes, notModified.cpuMillis));
+
+		// the snapshot's bytes are written as they are: nothing on the way out grows with the catalog
+		assertTrue(servletPath < gzipBody.length / 4, "servlet path allocated " + servletPath + " bytes");
+		assertTrue(request.bytes * 10 < perRequestGzip.bytes, "request allocated " + request.bytes + " bytes");
+	}
+
+	private interface Call {
+		void run() throws Exception;
+	}
+
+	private record Cost(long bytes, double cpuMillis) {}
+
+	private static Cost measure(int runs, Call call) throws Exception {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		for (int i = 0; i < 5; i++) {
+			call.run();
+		}
+		long bytes = threads.getCurrentThreadAllocatedBytes();
+		long cpu = threads.getCurrentThreadCpuTime();
+		for (int i = 0; i < runs; i++) {
+			call.run();
+		}
+		return new Cost((threads.getCurrentThreadAllocatedBytes() - bytes) / runs,
+				(threads.getCurrentThreadCpuTime() - cpu) / 1_000_000.0 / runs);
+	}
+
+	private static byte[] gzip(byte[] body) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+			gzip.write(body);
+		}
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,138 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.OrderItemRequest;
+import com.example.demo.model.Product;
+import com.example.demo.model.User;
+import com.example.demo.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// stock refresh far in the future, so only product edits can rebuild the snapshot here
+@SpringBootTest(properties = "catalog.stock-refresh-ms=600000")
+@AutoConfigureMockMvc
+class CatalogServiceTests {
+
+	@Autowired
+	private CatalogService catalogService;
+
+	@Autowired
+	private ProductService productService;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Test
+	void snapshotIsReusedUntilAProductChanges() {
+		CatalogService.Snapshot first = catalogService.getSnapshot();
+		assertSame(first, catalogService.getSnapshot());
+
+		Product product = productService.addProduct(new Product("Catalog " + System.nanoTime(), new BigDecimal("3.00"), 10));
+		CatalogService.Snapshot added = catalogService.getCurrentSnapshot();
+		assertTrue(added.getVersion() > first.getVersion());
+		assertNotEquals(first.getEtag(), added.getEtag());
+		assertTrue(new String(added.getBody(), StandardCharsets.UTF_8).contains(product.getName()));
+
+		product.setPrice(new BigDecimal("4.00"));
+		productService.editProduct(product.getId(), product);
+		CatalogService.Snapshot edited = catalogService.getCurrentSnapshot();
+		assertNotEquals(added.getEtag(), edited.getEtag());
+
+		productService.deleteProduct(product.getId());
+		CatalogService.Snapshot deleted = catalogService.getCurrentSnapshot();
+		assertFalse(new String(deleted.getBody(), StandardCharsets.UTF_8).contains(product.getName()));
+	}
+
+	@Test
+	void readersGetThePreviousSnapshotWhileTheRebuildRuns() {
+		CatalogService.Snapshot before = catalogService.getCurrentSnapshot();
+		Product product;
+		// holding the rebuild lock keeps the queued background rebuild from finishing
+		synchronized (catalogService) {
+			product = productService.addProduct(new Product("Stale " + System.nanoTime(), new BigDecimal("1.00"), 5));
+			assertSame(before, catalogService.getSnapshot());
+		}
+		assertTrue(new String(catalogService.getCurrentSnapshot().getBody(), StandardCharsets.UTF_8).contains(product.getName()));
+	}
+
+	@Test
+	void orderStockChangesWaitForTheRefreshInterval() {
+		Product product = productService.addProduct(new Product("Stocked " + System.nanoTime(), new BigDecimal("2.00"), 10));
+		User user = userRepository.save(new User("catalog-" + System.nanoTime() + "@example.com", "x", User.ROLE_USER));
+		CatalogService.Snapshot before = catalogService.getSnapshot();
+
+		OrderItemRequest item = new OrderItemRequest();
+		item.setProductId(product.getId());
+		item.setQuantity(1);
+		orderService.createOrder(user.getId(), List.of(item));
+
+		assertTrue(catalogService.getVersion() > before.getVersion());
+		assertSame(before, catalogService.getSnapshot());
+	}
+
+	@Test
+	void matchingIfNoneMatchGets304() throws Exception {
+		String etag = mockMvc.perform(get("/api/products"))
+				.andExpect(status().isOk())
+				.andExpect(header().string("Cache-Control", "no-cache"))
+				.andReturn().getResponse().getHeader("ETag");
+		assertNotNull(etag);
+
+		long rebuilds = (Long) catalogService.getStats().get("rebuilds");
+		mockMvc.perform(get("/api/products").header("If-None-Match", etag))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string("ETag", etag));
+		assertEquals(rebuilds, catalogService.getStats().get("rebuilds"));
+	}
+
+	@Test
+	void gzipIsServedFromTheSnapshotWithItsOwnEtag() throws Exception {
+		CatalogService.Snapshot snapshot = catalogService.getCurrentSnapshot();
+		byte[] body = mockMvc.perform(get("/api/products").header("Accept-Encoding", "br, gzip;q=0.8"))
+				.andExpect(status().isOk())
+				.andExpect(header().string("Content-Encoding", "gzip"))
+				.andExpect(header().stringValues("Vary", hasItem("Accept-Encoding")))
+				.andExpect(header().string("ETag", snapshot.getGzipEtag()))
+				.andReturn().getResponse().getContentAsByteArray();
+		assertArrayEquals(snapshot.getBody(), new GZIPInputStream(new ByteArrayInputStream(body)).readAllBytes());
+
+		mockMvc.perform(get("/api/products").header("Accept-Encoding", "gzip").header("If-None-Match", snapshot.getGzipEtag()))
+				.andExpect(status().isNotModified())
+				.andExpect(header().doesNotExist("Content-Encoding"));
+		mockMvc.perform(get("/api/products").header("Accept-Encoding", "gzip;q=0"))
+				.andExpect(status().isOk())
+				.andExpect(header().doesNotExist("Content-Encoding"));
+	}
+
+	@Test
+	void productEditsRebuildTheSnapshotInTheBackground() throws Exception {
+		catalogService.getSnapshot();
+		long background = (Long) catalogService.getStats().get("backgroundRebuilds");
+		Product product = productService.addProduct(new Product("Background " + System.nanoTime(), new BigDecimal("1.00"), 5));
+		for (int i = 0; i < 100 && (Long) catalogService.getStats().get("backgroundRebuilds") == background; i++) {
+			Thread.sleep(50);
+		}
+		assertTrue((Long) catalogService.getStats().get("backgroundRebuilds") > background);
+		assertTrue(new String(catalogService.getCurrentSnapshot().getBody(), StandardCharsets.UTF_8).contains(product.getName()));
+	}
+}
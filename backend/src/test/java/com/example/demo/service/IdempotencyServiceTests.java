@@ -0,0 +1,108 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.OrderDTO;
+import com.example.demo.dto.OrderItemRequest;
+import com.example.demo.model.Product;
+import com.example.demo.model.User;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class IdempotencyServiceTests {
+
+	@Autowired
+	private IdempotencyService idempotencyService;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void retriesWithTheSameKeyCreateOneOrder() throws Exception {
+		Long userId = userRepository.save(new User("idem-" + System.nanoTime() + "@example.com", "x", User.ROLE_USER)).getId();
+		Long productId = productRepository.save(new Product("retry", new BigDecimal("3.00"), 100)).getId();
+		OrderItemRequest item = new OrderItemRequest();
+		item.setProductId(productId);
+		item.setQuantity(2);
+
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		List<Future<OrderDTO>> results = new ArrayList<>();
+		try {
+			for (int i = 0; i < 8; i++) {
+				results.add(pool.submit(() -> idempotencyService.execute(userId, "checkout-1", () -> {
+					OrderDTO dto = new OrderDTO();
+					dto.setId(orderService.createOrder(userId, List.of(item)).getId());
+					return dto;
+				})));
+			}
+			Long orderId = results.get(0).get(30, TimeUnit.SECONDS).getId();
+			for (Future<OrderDTO> result : results) {
+				assertEquals(orderId, result.get(30, TimeUnit.SECONDS).getId());
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+
+		assertEquals(1, jdbcTemplate.queryForObject("select count(*) from orders where user_id = ?", Integer.class, userId));
+		assertEquals(98, productRepository.findById(productId).orElseThrow().getStock());
+	}
+
+	@Test
+	void storedKeysAreReplayedAfterARestart() {
+		Long userId = userRepository.save(new User("idem-" + System.nanoTime() + "@example.com", "x", User.ROLE_USER)).getId();
+		Long orderId = idempotencyService.execute(userId, "checkout-2", () -> order(userId)).getId();
+
+		// a fresh cache, as after a restart: the result comes from the table
+		idempotencyService.init();
+		long replays = (Long) idempotencyService.getStats().get("replays");
+		OrderDTO replayed = idempotencyService.execute(userId, "checkout-2", () -> {
+			throw new AssertionError("a stored key must not create another order");
+		});
+		assertEquals(orderId, replayed.getId());
+		assertEquals(replays + 1, idempotencyService.getStats().get("replays"));
+		assertEquals(1, jdbcTemplate.queryForObject("select count(*) from orders where user_id = ?", Integer.class, userId));
+	}
+
+	@Test
+	void anExpiredKeyNotYetPurgedIsUsedAgain() {
+		Long userId = userRepository.save(new User("idem-" + System.nanoTime() + "@example.com", "x", User.ROLE_USER)).getId();
+		Long firstOrderId = idempotencyService.execute(userId, "checkout-3", () -> order(userId)).getId();
+		jdbcTemplate.update("update idempotency_keys set expires_at = ? where idempotency_key = ?",
+				LocalDateTime.now().minusMinutes(1), userId + ":checkout-3");
+		idempotencyService.init();
+
+		Long secondOrderId = idempotencyService.execute(userId, "checkout-3", () -> order(userId)).getId();
+		assertNotEquals(firstOrderId, secondOrderId);
+		assertEquals(secondOrderId, jdbcTemplate.queryForObject(
+				"select order_id from idempotency_keys where idempotency_key = ?", Long.class, userId + ":checkout-3"));
+	}
+
+	private OrderDTO order(Long userId) {
+		OrderItemRequest item = new OrderItemRequest();
+		item.setProductId(productRepository.save(new Product("keyed", new BigDecimal("1.00"), 10)).getId());
+		item.setQuantity(1);
+		OrderDTO dto = new OrderDTO();
+		dto.setId(orderService.createOrder(userId, List.of(item)).getId());
+		return dto;
+	}
+}
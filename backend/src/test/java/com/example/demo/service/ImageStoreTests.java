@@ -0,0 +1,105 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// a disk budget of a few thumbnails, so eviction is easy to reach
+@SpringBootTest(properties = {"images.dir=target/test-images", "images.disk-cache-bytes=400000",
+		"images.memory-max-entry-bytes=8192"})
+@AutoConfigureMockMvc
+class ImageStoreTests {
+
+	@Autowired
+	private ImageStore imageStore;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Test
+	void uploadIsNamedByContentAndServedAsThumbnails() throws Exception {
+		byte[] png = png(1200, 800, 1);
+		String name = imageStore.store(new ByteArrayInputStream(png));
+		assertTrue(name.matches("[0-9a-f]{32}\\.png"), name);
+		assertEquals(name, imageStore.store(new ByteArrayInputStream(png)));
+
+		byte[] original = mockMvc.perform(get("/api/images/" + name))
+				.andExpect(status().isOk())
+				.andExpect(header().string("Content-Type", "image/png"))
+				.andExpect(header().string("Cache-Control", "public, max-age=31536000, immutable"))
+				.andReturn().getResponse().getContentAsByteArray();
+		assertArrayEquals(png, original);
+
+		// 300 snaps up to the 320 thumbnail
+		byte[] thumbnail = mockMvc.perform(get("/api/images/" + name).param("w", "300"))
+				.andExpect(status().isOk())
+				.andExpect(header().string("Content-Type", "image/jpeg"))
+				.andReturn().getResponse().getContentAsByteArray();
+		BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(thumbnail));
+		assertEquals(320, decoded.getWidth());
+		assertEquals(213, decoded.getHeight());
+
+		String etag = mockMvc.perform(get("/api/images/" + name).param("w", "160"))
+				.andReturn().getResponse().getHeader("ETag");
+		mockMvc.perform(get("/api/images/" + name).param("w", "160").header("If-None-Match", etag))
+				.andExpect(status().isNotModified());
+	}
+
+	@Test
+	void evictedThumbnailsAreMadeAgainFromTheOriginal() throws Exception {
+		String first = imageStore.store(new ByteArrayInputStream(png(1600, 1200, 2)));
+		long generated = (Long) imageStore.getStats().get("generated");
+		// noisy images compress badly, so a few of them overflow the disk budget
+		for (int i = 0; i < 6; i++) {
+			imageStore.store(new ByteArrayInputStream(png(1600, 1200, 100 + i)));
+		}
+		assertTrue((Long) imageStore.getStats().get("diskEvictions") > 0);
+		assertTrue((Long) imageStore.getStats().get("diskBytes") <= 400_000);
+
+		ImageStore.Image image = imageStore.open(first, 640);
+		assertNotNull(image);
+		assertTrue((Long) imageStore.getStats().get("generated") > generated + 18);
+		assertEquals(640, ImageIO.read(new ByteArrayInputStream(image.getBytes())).getWidth());
+	}
+
+	@Test
+	void rejectsWhatIsNotAnImage() throws Exception {
+		assertThrows(RuntimeException.class, () -> imageStore.store(new ByteArrayInputStream("not an image".getBytes())));
+		assertNull(imageStore.open("../../etc/passwd", null));
+		mockMvc.perform(get("/api/images/0123456789abcdef0123456789abcdef.png"))
+				.andExpect(status().isNotFound());
+	}
+
+	private static byte[] png(int width, int height, long seed) throws IOException {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		g.setColor(Color.ORANGE);
+		g.fillRect(0, 0, width, height);
+		g.setColor(Color.BLUE);
+		g.fillOval(width / 4, height / 4, width / 2, height / 2);
+		g.dispose();
+		Random random = new Random(seed);
+		for (int i = 0; i < width * height / 4; i++) {
+			image.setRGB(random.nextInt(width), random.nextInt(height), random.nextInt());
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, "png", out);
+		return out.toByteArray();
+	}
+}
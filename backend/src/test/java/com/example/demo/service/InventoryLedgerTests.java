@@ -0,0 +1,93 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.OrderItemRequest;
+import com.example.demo.model.Product;
+import com.example.demo.model.User;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {"inventory.ledger.enabled=true", "inventory.ledger.flush-ms=600000"})
+class InventoryLedgerTests {
+
+	@Autowired
+	private InventoryLedger inventoryLedger;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private ProductService productService;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void hotProductIsReservedInMemoryAndFlushedToTheRow() throws Exception {
+		Long userId = userRepository.save(new User("ledger-" + System.nanoTime() + "@example.com", "x", User.ROLE_USER)).getId();
+		Long productId = productRepository.save(new Product("flash", new BigDecimal("1.00"), 100)).getId();
+		productService.setHot(productId, true);
+
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		AtomicInteger succeeded = new AtomicInteger();
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < 300; i++) {
+				futures.add(pool.submit(() -> {
+					OrderItemRequest item = new OrderItemRequest();
+					item.setProductId(productId);
+					item.setQuantity(1);
+					try {
+						orderService.createOrder(userId, List.of(item));
+						succeeded.incrementAndGet();
+					} catch (RuntimeException e) {
+						// sold out
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get(60, TimeUnit.SECONDS);
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+
+		assertEquals(100, succeeded.get());
+		assertEquals(0, inventoryLedger.getAvailable(productId));
+		// not flushed yet: the row still shows the old stock
+		assertEquals(100, productRepository.findById(productId).orElseThrow().getStock());
+
+		inventoryLedger.flush();
+		assertEquals(0, productRepository.findById(productId).orElseThrow().getStock());
+		assertEquals(0, jdbcTemplate.queryForObject("select count(*) from inventory_deltas", Integer.class));
+	}
+
+	@Test
+	void journalLeftByACrashIsAppliedOnStartup() {
+		Long productId = productRepository.save(new Product("crashed", new BigDecimal("1.00"), 50)).getId();
+		jdbcTemplate.update("update products set hot = true where id = ?", productId);
+		jdbcTemplate.update("insert into inventory_deltas (product_id, quantity, created_at) values (?, 7, current_timestamp)", productId);
+
+		inventoryLedger.init();
+
+		assertEquals(43, productRepository.findById(productId).orElseThrow().getStock());
+		assertEquals(43, inventoryLedger.getAvailable(productId));
+	}
+}
@@ -0,0 +1,187 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.LowStockAlert;
+import com.example.demo.dto.OrderItemRequest;
+import com.example.demo.model.Product;
+import com.example.demo.model.User;
+import com.example.demo.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {"inventory.low-stock.subscriber-buffer=3", "inventory.low-stock.heartbeat-ms=600000"})
+class LowStockMonitorTests {
+
+	@Autowired
+	private LowStockMonitor lowStockMonitor;
+
+	@Autowired
+	private ProductService productService;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Test
+	void listingFollowsOrdersAndEditsWithoutTheDatabase() {
+		Product product = productService.addProduct(new Product("Low " + System.nanoTime(), new BigDecimal("1.00"), 7));
+		assertFalse(ids(productService.getLowStockProducts(5)).contains(product.getId()));
+
+		order(product, 3);
+		Product listed = productService.getLowStockProducts(5).stream()
+				.filter(p -> p.getId().equals(product.getId())).findFirst().orElseThrow();
+		assertEquals(4, listed.getStock());
+		assertEquals(product.getName(), listed.getName());
+
+		product.setStock(20);
+		productService.editProduct(product.getId(), product);
+		assertFalse(ids(productService.getLowStockProducts(5)).contains(product.getId()));
+		assertTrue(ids(productService.getLowStockProducts(21)).contains(product.getId()));
+
+		// products with orders cannot be deleted, so use a fresh one
+		Product unsold = productService.addProduct(new Product("Unsold " + System.nanoTime(), new BigDecimal("1.00"), 2));
+		assertTrue(ids(productService.getLowStockProducts(5)).contains(unsold.getId()));
+		productService.deleteProduct(unsold.getId());
+		assertFalse(ids(productService.getLowStockProducts(5)).contains(unsold.getId()));
+	}
+
+	@Test
+	void repeatAlertsForOneProductAreCoalesced() throws Exception {
+		RecordingEmitter emitter = new RecordingEmitter();
+		lowStockMonitor.subscribe(emitter);
+		// the push thread is stuck sending the initial snapshot, so alerts pile up
+		emitter.awaitFirstSend();
+
+		Product product = productService.addProduct(new Product("Selling " + System.nanoTime(), new BigDecimal("1.00"), 6));
+		order(product, 2);
+		order(product, 1);
+		order(product, 3);
+		emitter.release.countDown();
+
+		LowStockAlert alert = emitter.awaitAlert(product.getId());
+		assertEquals(0, alert.getStock());
+		assertEquals(LowStockAlert.Level.OUT_OF_STOCK, alert.getLevel());
+		Thread.sleep(100);
+		assertEquals(1, emitter.alertsFor(product.getId()));
+		emitter.complete();
+	}
+
+	@Test
+	void overflowReplacesLostAlertsWithASnapshot() throws Exception {
+		RecordingEmitter emitter = new RecordingEmitter();
+		lowStockMonitor.subscribe(emitter);
+		emitter.awaitFirstSend();
+		long dropped = (Long) lowStockMonitor.getStats().get("dropped");
+
+		List<Product> products = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			products.add(productService.addProduct(new Product("Flood " + System.nanoTime(), new BigDecimal("1.00"), 2)));
+		}
+		emitter.release.countDown();
+
+		emitter.awaitSnapshots(2);
+		assertTrue((Long) lowStockMonitor.getStats().get("dropped") >= dropped + 2);
+		for (Product product : products) {
+			assertEquals(0, emitter.alertsFor(product.getId()));
+		}
+		emitter.complete();
+	}
+
+	private void order(Product product, int quantity) {
+		User user = userRepository.save(new User("low-" + System.nanoTime() + "@example.com", "x", User.ROLE_USER));
+		OrderItemRequest item = new OrderItemRequest();
+		item.setProductId(product.getId());
+		item.setQuantity(quantity);
+		orderService.createOrder(user.getId(), List.of(item));
+	}
+
+	private static List<Long> ids(List<Product> products) {
+		return products.stream().map(Product::getId).toList();
+	}
+
+	/** Keeps what was sent; the first send blocks until released. */
+	private static final class RecordingEmitter extends SseEmitter {
+		final CountDownLatch entered = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final List<Object> payloads = Collections.synchronizedList(new ArrayList<>());
+		private volatile boolean closed;
+
+		@Override
+		public void send(SseEventBuilder builder) throws IOException {
+			if (closed) {
+				// lets the monitor drop this subscriber, as it would for a client that disconnected
+				throw new IOException("closed");
+			}
+			if (entered.getCount() > 0) {
+				entered.countDown();
+				try {
+					release.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			for (DataWithMediaType data : builder.build()) {
+				if (data.getData() instanceof LowStockAlert || data.getData() instanceof List) {
+					payloads.add(data.getData());
+				}
+			}
+		}
+
+		@Override
+		public void complete() {
+			closed = true;
+			super.complete();
+		}
+
+		void awaitFirstSend() throws InterruptedException {
+			assertTrue(entered.await(10, TimeUnit.SECONDS));
+		}
+
+		long alertsFor(Long productId) {
+			synchronized (payloads) {
+				return payloads.stream()
+						.filter(p -> p instanceof LowStockAlert alert && alert.getProductId().equals(productId))
+						.count();
+			}
+		}
+
+		LowStockAlert awaitAlert(Long productId) throws InterruptedException {
+			for (int i = 0; i < 100; i++) {
+				synchronized (payloads) {
+					for (Object payload : payloads) {
+						if (payload instanceof LowStockAlert alert && alert.getProductId().equals(productId)) {
+							return alert;
+						}
+					}
+				}
+				Thread.sleep(50);
+			}
+			throw new AssertionError("no alert for product " + productId);
+		}
+
+		void awaitSnapshots(int count) throws InterruptedException {
+			for (int i = 0; i < 100; i++) {
+				synchronized (payloads) {
+					if (payloads.stream().filter(p -> p instanceof List).count() >= count) {
+						return;
+					}
+				}
+				Thread.sleep(50);
+			}
+			throw new AssertionError("fewer than " + count + " snapshots");
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.OrderItemRequest;
+import com.example.demo.model.Product;
+import com.example.demo.model.User;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.repository.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class OrderExportServiceTests {
+
+	// far in the past, and a different day per test, so each range only holds that test's orders
+	private static final AtomicInteger days = new AtomicInteger();
+	private LocalDateTime day;
+
+	@Autowired
+	private OrderExportService orderExportService;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	private final List<Long> orderIds = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		Long userId = userRepository.save(new User("export-" + System.nanoTime() + "@example.com", "x", User.ROLE_USER)).getId();
+		List<OrderItemRequest> lines = new ArrayList<>();
+		for (String name : List.of("plain", "with, comma")) {
+			OrderItemRequest line = new OrderItemRequest();
+			line.setProductId(productRepository.save(new Product(name, new BigDecimal("4.00"), 100)).getId());
+			line.setQuantity(2);
+			lines.add(line);
+		}
+		day = LocalDateTime.of(2001, 1, 1, 0, 0).plusDays(days.incrementAndGet());
+		orderIds.clear();
+		for (int i = 0; i < 5; i++) {
+			Long id = orderService.createOrder(userId, lines).getId();
+			jdbcTemplate.update("update orders set order_date = ? where id = ?", Timestamp.valueOf(day.plusHours(i)), id);
+			orderIds.add(id);
+		}
+	}
+
+	@Test
+	void ndjsonHasOneOrderPerLine() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		long rows = orderExportService.export(OrderExportService.Format.NDJSON, day, day.plusHours(3), out);
+
+		String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+		assertEquals(6, rows);
+		assertEquals(3, lines.length);
+		for (int i = 0; i < lines.length; i++) {
+			JsonNode order = objectMapper.readTree(lines[i]);
+			assertEquals(orderIds.get(i).longValue(), order.get("id").asLong());
+			assertEquals(2, order.get("items").size());
+		}
+	}
+
+	@Test
+	void csvHasOneRowPerOrderLine() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		long rows = orderExportService.export(OrderExportService.Format.CSV, day, day.plusDays(1), out);
+
+		String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+		assertEquals(10, rows);
+		assertEquals(11, lines.length);
+		assertTrue(lines[0].startsWith("order_id,"));
+		assertTrue(lines[2].contains(",\"with, comma\","), lines[2]);
+	}
+}
@@ -0,0 +1,160 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.OrderItemRequest;
+import com.example.demo.model.Product;
+import com.example.demo.model.User;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.repository.UserRepository;
+import com.example.demo.util.BoundedTtlCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Queued orders are written in group commits; a sold-out order fails on its
+ * own savepoint without taking the rest of its batch down.
+ */
+@SpringBootTest(properties = "orders.async.enabled=true")
+class OrderIngestionServiceTests {
+
+	private static final int ORDERS = 50;
+	private static final int STOCK = 30;
+
+	@Autowired
+	private OrderIngestionService orderIngestionService;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	void queuedOrdersAreWrittenInBatchesWithoutOverselling() throws Exception {
+		Long userId = userRepository.save(new User("async-" + System.nanoTime() + "@example.com", "x", User.ROLE_USER)).getId();
+		Long productId = productRepository.save(new Product("async", new BigDecimal("5.00"), STOCK)).getId();
+
+		List<OrderTicket> tickets = new ArrayList<>();
+		for (int i = 0; i < ORDERS; i++) {
+			OrderItemRequest item = new OrderItemRequest();
+			item.setProductId(productId);
+			item.setQuantity(1);
+			tickets.add(orderIngestionService.submit(userId, List.of(item)));
+		}
+
+		int created = 0;
+		for (OrderTicket ticket : tickets) {
+			OrderTicket done = ticket.getCompletion().get(10, TimeUnit.SECONDS);
+			if (done.getStatus() == OrderTicket.Status.CREATED) {
+				assertNotNull(done.getOrder().getId());
+				created++;
+			} else {
+				assertEquals(OrderTicket.Status.FAILED, done.getStatus());
+				assertTrue(done.getError().startsWith("Insufficient stock"), done.getError());
+			}
+		}
+
+		assertEquals(STOCK, created);
+		assertEquals(0, productRepository.findById(productId).orElseThrow().getStock());
+		assertSame(tickets.get(0), orderIngestionService.getTicket(tickets.get(0).getId()));
+	}
+
+	@Test
+	void queuedTicketsAreNeverEvicted() throws Exception {
+		Long userId = userRepository.save(new User("async-" + System.nanoTime() + "@example.com", "x", User.ROLE_USER)).getId();
+		Long productId = productRepository.save(new Product("async", new BigDecimal("5.00"), STOCK)).getId();
+		Object completedTickets = ReflectionTestUtils.getField(orderIngestionService, "tickets");
+		// room for a single finished ticket
+		ReflectionTestUtils.setField(orderIngestionService, "tickets", new BoundedTtlCache<String, OrderTicket>(1, 3_600_000));
+		try {
+			List<OrderTicket> tickets = new ArrayList<>();
+			for (int i = 0; i < 20; i++) {
+				tickets.add(orderIngestionService.submit(userId, List.of(item(productId))));
+			}
+			for (OrderTicket ticket : tickets) {
+				boolean done = ticket.getCompletion().isDone();
+				OrderTicket found = orderIngestionService.getTicket(ticket.getId());
+				if (!done) {
+					assertSame(ticket, found);
+				}
+			}
+			for (OrderTicket ticket : tickets) {
+				ticket.getCompletion().get(10, TimeUnit.SECONDS);
+			}
+		} finally {
+			ReflectionTestUtils.setField(orderIngestionService, "tickets", completedTickets);
+		}
+	}
+
+	@Test
+	void ordersOfACommitThatFailedAfterWritingAreNotPlacedAgain() throws Exception {
+		Long userId = userRepository.save(new User("async-" + System.nanoTime() + "@example.com", "x", User.ROLE_USER)).getId();
+		Long productId = productRepository.save(new Product("async", new BigDecimal("5.00"), STOCK)).getId();
+		AtomicBoolean failNextCommit = new AtomicBoolean(true);
+		// commits, then reports a failure, as when the connection drops after COMMIT
+		PlatformTransactionManager lostCommit = new PlatformTransactionManager() {
+			@Override
+			public TransactionStatus getTransaction(TransactionDefinition definition) {
+				return transactionManager.getTransaction(definition);
+			}
+
+			@Override
+			public void commit(TransactionStatus status) {
+				transactionManager.commit(status);
+				if (failNextCommit.getAndSet(false)) {
+					throw new TransactionSystemException("Connection lost after commit");
+				}
+			}
+
+			@Override
+			public void rollback(TransactionStatus status) {
+				transactionManager.rollback(status);
+			}
+		};
+		Object batchTransaction = ReflectionTestUtils.getField(orderIngestionService, "batchTransaction");
+		ReflectionTestUtils.setField(orderIngestionService, "batchTransaction", new TransactionTemplate(lostCommit));
+		try {
+			List<OrderTicket> tickets = new ArrayList<>();
+			for (int i = 0; i < 5; i++) {
+				tickets.add(orderIngestionService.submit(userId, List.of(item(productId))));
+			}
+			for (OrderTicket ticket : tickets) {
+				assertEquals(OrderTicket.Status.CREATED, ticket.getCompletion().get(10, TimeUnit.SECONDS).getStatus());
+			}
+		} finally {
+			ReflectionTestUtils.setField(orderIngestionService, "batchTransaction", batchTransaction);
+		}
+
+		assertFalse(failNextCommit.get());
+		assertEquals(STOCK - 5, productRepository.findById(productId).orElseThrow().getStock());
+	}
+
+	@Test
+	void invalidOrdersAreRejectedBeforeQueueing() {
+		assertThrows(RuntimeException.class, () -> orderIngestionService.submit(1L, List.of()));
+	}
+
+	private static OrderItemRequest item(Long productId) {
+		OrderItemRequest item = new OrderItemRequest();
+		item.setProductId(productId);
+		item.setQuantity(1);
+		return item;
+	}
+}
@@ -0,0 +1,76 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.CursorPage;
+import com.example.demo.dto.OrderDTO;
+import com.example.demo.dto.OrderItemRequest;
+import com.example.demo.model.Product;
+import com.example.demo.model.User;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class OrderPaginationTests {
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void cursorWalksEveryOrderOnceEvenWithEqualDates() {
+		Long userId = userRepository.save(new User("pages-" + System.nanoTime() + "@example.com", "x", User.ROLE_USER)).getId();
+		Long productId = productRepository.save(new Product("paged", new BigDecimal("1.00"), 100)).getId();
+		OrderItemRequest item = new OrderItemRequest();
+		item.setProductId(productId);
+		item.setQuantity(1);
+
+		List<Long> created = new ArrayList<>();
+		for (int i = 0; i < 25; i++) {
+			created.add(orderService.createOrder(userId, List.of(item)).getId());
+		}
+		// same timestamp for all of them, so only the id breaks ties
+		LocalDateTime date = LocalDateTime.of(2024, 1, 1, 12, 0);
+		jdbcTemplate.update("update orders set order_date = ? where user_id = ?", Timestamp.valueOf(date), userId);
+		jdbcTemplate.update("update orders set status = 'SHIPPED' where id in (?, ?)", created.get(3), created.get(17));
+
+		List<Long> seen = new ArrayList<>();
+		String cursor = null;
+		int pages = 0;
+		do {
+			CursorPage<OrderDTO> page = orderService.findOrders(userId, null, null, null, cursor, 10);
+			page.getItems().forEach(order -> seen.add(order.getId()));
+			cursor = page.getNextCursor();
+			pages++;
+		} while (cursor != null);
+
+		assertEquals(3, pages);
+		List<Long> expected = new ArrayList<>(created);
+		expected.sort((a, b) -> Long.compare(b, a));
+		assertEquals(expected, seen);
+
+		CursorPage<OrderDTO> shipped = orderService.findOrders(userId, "shipped", date, date.plusSeconds(1), null, 10);
+		assertEquals(List.of(created.get(17), created.get(3)), shipped.getItems().stream().map(OrderDTO::getId).toList());
+		assertNull(shipped.getNextCursor());
+
+		assertThrows(RuntimeException.class, () -> orderService.findOrders(userId, null, null, null, "not-a-cursor", 10));
+	}
+}
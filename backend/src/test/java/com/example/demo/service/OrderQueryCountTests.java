@@ -0,0 +1,136 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.CursorPage;
+import com.example.demo.dto.OrderDTO;
+import com.example.demo.dto.OrderItemRequest;
+import com.example.demo.model.Order;
+import com.example.demo.model.OrderItem;
+import com.example.demo.model.Product;
+import com.example.demo.model.User;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.repository.SequenceIdAllocator;
+import com.example.demo.repository.UserRepository;
+import com.example.demo.util.RoundTripCountingDataSource;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Order reads must run a fixed number of SQL statements however many orders,
+ * items and products are involved, and order creation a fixed number of round trips.
+ * <p>
+ * Hibernate's statistics are global, so the catalog rebuild that order stock
+ * changes schedule is pushed out of the test's way.
+ */
+@SpringBootTest(properties = {
+		"spring.jpa.properties.hibernate.generate_statistics=true",
+		"catalog.stock-refresh-ms=600000"})
+class OrderQueryCountTests {
+
+	private static final int ORDERS = 30;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Statistics statistics;
+	private Long userId;
+	private Long lastOrderId;
+
+	@BeforeEach
+	void setUp() {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		userId = userRepository.save(new User("queries-" + System.nanoTime() + "@example.com", "x", User.ROLE_USER)).getId();
+		List<OrderItemRequest> lines = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			OrderItemRequest line = new OrderItemRequest();
+			line.setProductId(productRepository.save(new Product("counted-" + i, new BigDecimal("2.50"), 1000)).getId());
+			line.setQuantity(1);
+			lines.add(line);
+		}
+		for (int i = 0; i < ORDERS; i++) {
+			lastOrderId = orderService.createOrder(userId, lines).getId();
+		}
+	}
+
+	@Test
+	void orderListsTakeTwoStatements() {
+		statistics.clear();
+		CursorPage<OrderDTO> mine = orderService.findOrders(userId, null, null, null, null, ORDERS);
+		assertEquals(2, statistics.getPrepareStatementCount());
+		assertEquals(ORDERS, mine.getItems().size());
+		mine.getItems().forEach(order -> {
+			assertEquals(3, order.getItems().size());
+			assertNotNull(order.getUserEmail());
+		});
+
+		statistics.clear();
+		CursorPage<OrderDTO> all = orderService.findOrders(null, null, null, null, null, 100);
+		assertEquals(2, statistics.getPrepareStatementCount());
+		assertFalse(all.getItems().isEmpty());
+	}
+
+	@Test
+	void orderCreationRoundTripsDoNotGrowWithTheCart() {
+		for (int lines : new int[]{1, 10}) {
+			List<OrderItemRequest> cart = new ArrayList<>();
+			for (int i = 0; i < lines; i++) {
+				OrderItemRequest line = new OrderItemRequest();
+				line.setProductId(productRepository.save(new Product("cart-" + i, new BigDecimal("1.25"), 1000)).getId());
+				line.setQuantity(2);
+				cart.add(line);
+			}
+			int orders = 20;
+			long statsBefore = (long) orderService.getStats().get("createOrderRoundTrips");
+			long before = RoundTripCountingDataSource.current();
+			for (int i = 0; i < orders; i++) {
+				orderService.createOrder(userId, cart);
+			}
+			long roundTrips = RoundTripCountingDataSource.current() - before;
+			assertEquals(roundTrips, (long) orderService.getStats().get("createOrderRoundTrips") - statsBefore);
+
+			// product load, stock batch, order insert, item batch, commit;
+			// plus a sequence call whenever a block of ids runs out
+			long sequenceCalls = (orders + SequenceIdAllocator.BLOCK_SIZE - 1) / SequenceIdAllocator.BLOCK_SIZE
+					+ ((long) orders * lines + SequenceIdAllocator.BLOCK_SIZE - 1) / SequenceIdAllocator.BLOCK_SIZE;
+			assertTrue(roundTrips >= 5L * orders, roundTrips + " round trips for " + orders + " orders");
+			assertTrue(roundTrips <= 5L * orders + sequenceCalls, roundTrips + " round trips for " + orders + " orders of " + lines + " lines");
+		}
+	}
+
+	@Test
+	void orderDetailsTakeOneStatement() {
+		statistics.clear();
+		// same session scope as a request with open-in-view: lazy loads would show up here
+		transactionTemplate.executeWithoutResult(status -> {
+			Order order = orderService.getOrderById(lastOrderId).orElseThrow();
+			assertNotNull(order.getUser().getEmail());
+			for (OrderItem item : order.getItems()) {
+				assertNotNull(item.getProduct().getName());
+			}
+		});
+		assertEquals(1, statistics.getPrepareStatementCount());
+	}
+}
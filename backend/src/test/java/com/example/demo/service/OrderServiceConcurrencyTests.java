@@ -0,0 +1,144 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.OrderItemRequest;
+import com.example.demo.model.Product;
+import com.example.demo.model.User;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.repository.UserRepository;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Fires thousands of parallel orders at a few SKUs and checks that stock is
+ * never oversold and that every unit taken shows up in an order.
+ */
+@SpringBootTest
+class OrderServiceConcurrencyTests {
+
+	private static final Log logger = LogFactory.getLog(OrderServiceConcurrencyTests.class);
+
+	private static final int SKUS = 3;
+	private static final int STOCK_PER_SKU = 500;
+	private static final int ORDERS = 3000;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private Long userId;
+	private final List<Long> productIds = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		User user = userRepository.save(new User("stress-" + System.nanoTime() + "@example.com", "x", User.ROLE_USER));
+		userId = user.getId();
+		productIds.clear();
+		for (int i = 0; i < SKUS; i++) {
+			productIds.add(productRepository.save(new Product("hot-" + i, new BigDecimal("9.99"), STOCK_PER_SKU)).getId());
+		}
+	}
+
+	@Test
+	void parallelOrdersNeverOversell() throws Exception {
+		int succeeded = placeOrders(16, ORDERS);
+
+		int remaining = 0;
+		for (Long productId : productIds) {
+			int stock = productRepository.findById(productId).orElseThrow().getStock();
+			assertTrue(stock >= 0, "stock went negative: " + stock);
+			remaining += stock;
+		}
+
+		Integer sold = jdbcTemplate.queryForObject(
+				"select coalesce(sum(quantity), 0) from order_items where product_id in (?, ?, ?)",
+				Integer.class, productIds.toArray());
+		assertEquals(SKUS * STOCK_PER_SKU - remaining, sold);
+		// every order asks for 1 unit of one SKU plus 1 of another
+		assertEquals(sold, succeeded * 2);
+		assertTrue(succeeded <= SKUS * STOCK_PER_SKU / 2);
+	}
+
+	@Test
+	void contendedOrdersAllSucceedWhileStockLasts() throws Exception {
+		// 700 orders x 2 lines spread over 3 SKUs of 500 each: there is stock for all, so none may lose a race
+		int orders = SKUS * STOCK_PER_SKU / 2 - 50;
+		assertEquals(orders, placeOrders(8, orders));
+		int remaining = 0;
+		for (Long productId : productIds) {
+			remaining += productRepository.findById(productId).orElseThrow().getStock();
+		}
+		assertEquals(SKUS * STOCK_PER_SKU - orders * 2, remaining);
+	}
+
+	// mvn test -Pbenchmark
+	@Test
+	@Tag("benchmark")
+	void benchmarkThroughputByThreads() throws Exception {
+		double single = throughput(1, 400);
+		setUp();
+		double parallel = throughput(8, 400);
+		logger.info(String.format("createOrder throughput: 1 thread %.0f orders/s, 8 threads %.0f orders/s", single, parallel));
+	}
+
+	private double throughput(int threads, int orders) throws Exception {
+		long start = System.nanoTime();
+		placeOrders(threads, orders);
+		return orders / ((System.nanoTime() - start) / 1e9);
+	}
+
+	private int placeOrders(int threads, int orders) throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		AtomicInteger succeeded = new AtomicInteger();
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < orders; i++) {
+				int n = i;
+				futures.add(pool.submit(() -> {
+					try {
+						orderService.createOrder(userId, List.of(
+								item(productIds.get(n % SKUS)),
+								item(productIds.get((n + 1) % SKUS))));
+						succeeded.incrementAndGet();
+					} catch (RuntimeException e) {
+						// sold out or lost the race: the order is rejected as a whole
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get(60, TimeUnit.SECONDS);
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+		return succeeded.get();
+	}
+
+	private static OrderItemRequest item(Long productId) {
+		OrderItemRequest request = new OrderItemRequest();
+		request.setProductId(productId);
+		request.setQuantity(1);
+		return request;
+	}
+}
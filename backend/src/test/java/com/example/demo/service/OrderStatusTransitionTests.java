@@ -0,0 +1,187 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.OrderItemRequest;
+import com.example.demo.dto.StatusChangeResult;
+import com.example.demo.model.OrderStatus;
+import com.example.demo.model.Product;
+import com.example.demo.model.User;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.repository.UserRepository;
+import com.example.demo.util.JwtTokenUtil;
+import com.example.demo.util.RoundTripCountingDataSource;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class OrderStatusTransitionTests {
+
+	private static final Log logger = LogFactory.getLog(OrderStatusTransitionTests.class);
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JwtTokenUtil jwtTokenUtil;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	private Long userId;
+	private Long productId;
+
+	@BeforeEach
+	void setUp() {
+		userId = userRepository.save(new User("status-" + System.nanoTime() + "@example.com", "x", User.ROLE_USER)).getId();
+		productId = productRepository.save(new Product("lifecycle", new BigDecimal("1.00"), 10_000)).getId();
+	}
+
+	@Test
+	void lifecycleIsEnforcedAndCancelGivesStockBack() {
+		Long orderId = order(3);
+		assertEquals(10_000 - 3, stock());
+
+		assertThrows(IllegalStatusTransitionException.class, () -> orderService.updateOrderStatus(orderId, "SHIPPED"));
+		assertThrows(RuntimeException.class, () -> orderService.updateOrderStatus(orderId, "LOST"));
+		assertEquals("PAID", orderService.updateOrderStatus(orderId, "paid").getStatus());
+		assertEquals("CANCELLED", orderService.updateOrderStatus(orderId, "CANCELLED").getStatus());
+		assertEquals(10_000, stock());
+		// final: no way back, and repeating the cancel does not give the stock back twice
+		assertEquals("CANCELLED", orderService.updateOrderStatus(orderId, "CANCELLED").getStatus());
+		assertThrows(IllegalStatusTransitionException.class, () -> orderService.updateOrderStatus(orderId, "PAID"));
+		assertEquals(10_000, stock());
+	}
+
+	@Test
+	void bulkTransitionReportsEveryId() {
+		Long pending = order(1);
+		Long paid = order(1);
+		Long shipped = order(1);
+		orderService.updateOrderStatus(paid, "PAID");
+		orderService.updateOrderStatus(shipped, "PAID");
+		orderService.updateOrderStatus(shipped, "SHIPPED");
+
+		List<StatusChangeResult> results = orderService.changeStatus(
+				List.of(pending, paid, shipped, -1L, pending), OrderStatus.PAID);
+
+		assertEquals(4, results.size());
+		assertEquals(StatusChangeResult.Outcome.UPDATED, results.get(0).getOutcome());
+		assertEquals("PENDING", results.get(0).getPreviousStatus());
+		assertEquals(StatusChangeResult.Outcome.UNCHANGED, results.get(1).getOutcome());
+		assertEquals(StatusChangeResult.Outcome.ILLEGAL_TRANSITION, results.get(2).getOutcome());
+		assertEquals(StatusChangeResult.Outcome.NOT_FOUND, results.get(3).getOutcome());
+
+		int before = stock();
+		List<StatusChangeResult> cancelled = orderService.changeStatus(List.of(pending, paid, shipped), OrderStatus.CANCELLED);
+		assertEquals(List.of(StatusChangeResult.Outcome.UPDATED, StatusChangeResult.Outcome.UPDATED,
+						StatusChangeResult.Outcome.ILLEGAL_TRANSITION),
+				cancelled.stream().map(StatusChangeResult::getOutcome).toList());
+		assertEquals(before + 2, stock());
+	}
+
+	@Test
+	void bulkTakesTheSameRoundTripsForAnyNumberOfOrders() {
+		List<Long> few = new ArrayList<>();
+		List<Long> many = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			few.add(order(1));
+		}
+		for (int i = 0; i < 300; i++) {
+			many.add(order(1));
+		}
+		long fewRoundTrips = roundTrips(() -> orderService.changeStatus(few, OrderStatus.PAID));
+		long manyRoundTrips = roundTrips(() -> orderService.changeStatus(many, OrderStatus.PAID));
+		// status read, batched update, commit
+		assertEquals(3, fewRoundTrips);
+		assertEquals(fewRoundTrips, manyRoundTrips);
+		assertTrue(many.stream().allMatch(id -> "PAID".equals(orderService.getOrderById(id).orElseThrow().getStatus())));
+
+		assertThrows(OrderNotFoundException.class, () -> orderService.updateOrderStatus(-1L, "PAID"));
+	}
+
+	@Test
+	void onlyAdminsChangeAStatusOverHttp() throws Exception {
+		Long orderId = order(2);
+		mockMvc.perform(put("/api/orders/" + orderId + "/status").param("status", "CANCELLED")
+						.header("Authorization", "Bearer " + token(userId, User.ROLE_USER)))
+				.andExpect(status().isForbidden());
+		assertEquals("PENDING", orderService.getOrderById(orderId).orElseThrow().getStatus());
+		assertEquals(10_000 - 2, stock());
+
+		Long adminId = userRepository.save(new User("status-admin-" + System.nanoTime() + "@example.com", "x", User.ROLE_ADMIN)).getId();
+		mockMvc.perform(put("/api/orders/" + orderId + "/status").param("status", "CANCELLED")
+						.header("Authorization", "Bearer " + token(adminId, User.ROLE_ADMIN)))
+				.andExpect(status().isOk());
+		assertEquals(10_000, stock());
+	}
+
+	// mvn test -Pbenchmark
+	@Test
+	@Tag("benchmark")
+	void benchmarkBulkAgainstOneCallPerOrder() {
+		int orders = 300;
+		List<Long> single = new ArrayList<>();
+		List<Long> bulk = new ArrayList<>();
+		for (int i = 0; i < orders; i++) {
+			single.add(order(1));
+			bulk.add(order(1));
+		}
+
+		long start = System.nanoTime();
+		for (Long id : single) {
+			orderService.updateOrderStatus(id, "PAID");
+		}
+		double singleRate = orders / ((System.nanoTime() - start) / 1e9);
+
+		start = System.nanoTime();
+		orderService.changeStatus(bulk, OrderStatus.PAID);
+		double bulkRate = orders / ((System.nanoTime() - start) / 1e9);
+
+		logger.info(String.format("status updates: single %.0f orders/s, bulk %.0f orders/s", singleRate, bulkRate));
+	}
+
+	private String token(Long id, String role) {
+		User user = userRepository.findById(id).orElseThrow();
+		return jwtTokenUtil.generateToken(new org.springframework.security.core.userdetails.User(user.getEmail(), "x",
+				List.of(new SimpleGrantedAuthority(role))), id, user.getTokenVersion());
+	}
+
+	private static long roundTrips(Runnable work) {
+		long before = RoundTripCountingDataSource.current();
+		work.run();
+		return RoundTripCountingDataSource.current() - before;
+	}
+
+	private Long order(int quantity) {
+		OrderItemRequest item = new OrderItemRequest();
+		item.setProductId(productId);
+		item.setQuantity(quantity);
+		return orderService.createOrder(userId, List.of(item)).getId();
+	}
+
+	private int stock() {
+		return productRepository.findById(productId).orElseThrow().getStock();
+	}
+}
@@ -0,0 +1,130 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.OrderItemRequest;
+import com.example.demo.model.Product;
+import com.example.demo.model.User;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.repository.SequenceIdAllocator;
+import com.example.demo.repository.UserRepository;
+import com.example.demo.util.RoundTripCountingDataSource;
+import jakarta.persistence.EntityManagerFactory;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Statement counts on the write paths: JPA inserts (products) and order creation.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class PersistenceBatchingTests {
+
+	private static final Log logger = LogFactory.getLog(PersistenceBatchingTests.class);
+
+	private static final int PRODUCTS = 2000;
+	private static final int ORDERS = 100;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Test
+	void jpaInsertsAreBatched() {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		List<Product> products = new ArrayList<>();
+		for (int i = 0; i < PRODUCTS; i++) {
+			products.add(new Product("batched-" + i, new BigDecimal("1.00"), 10));
+		}
+
+		statistics.clear();
+		transactionTemplate.executeWithoutResult(status -> productRepository.saveAll(products));
+
+		long statements = statistics.getPrepareStatementCount();
+		assertEquals(PRODUCTS, statistics.getEntityInsertCount());
+		// one statement per batch of 50 plus one sequence call per 50 ids
+		assertTrue(statements <= PRODUCTS / 10, statements + " statements for " + PRODUCTS + " inserts");
+	}
+
+	@Test
+	void orderCreationStatements() {
+		Long userId = userId();
+		List<OrderItemRequest> lines = lines(5);
+
+		// counted on this thread, so JdbcTemplate statements (order rows, sequences) are included
+		long before = RoundTripCountingDataSource.current();
+		for (int i = 0; i < ORDERS; i++) {
+			orderService.createOrder(userId, lines);
+		}
+		long roundTrips = RoundTripCountingDataSource.current() - before;
+
+		// product load, stock batch, order insert, item batch and commit per order,
+		// plus one sequence call per 50 order ids and per 50 item ids
+		long sequenceCalls = (ORDERS + SequenceIdAllocator.BLOCK_SIZE - 1) / SequenceIdAllocator.BLOCK_SIZE
+				+ (ORDERS * 5L + SequenceIdAllocator.BLOCK_SIZE - 1) / SequenceIdAllocator.BLOCK_SIZE;
+		assertTrue(roundTrips <= 5L * ORDERS + sequenceCalls, roundTrips + " round trips for " + ORDERS + " orders");
+	}
+
+	// mvn test -Pbenchmark
+	@Test
+	@Tag("benchmark")
+	void benchmarkWritePaths() {
+		List<Product> products = new ArrayList<>();
+		for (int i = 0; i < PRODUCTS; i++) {
+			products.add(new Product("batched-" + i, new BigDecimal("1.00"), 10));
+		}
+		long start = System.nanoTime();
+		transactionTemplate.executeWithoutResult(status -> productRepository.saveAll(products));
+		double productRate = PRODUCTS / ((System.nanoTime() - start) / 1e9);
+
+		Long userId = userId();
+		List<OrderItemRequest> lines = lines(5);
+		int orders = 300;
+		long before = RoundTripCountingDataSource.current();
+		start = System.nanoTime();
+		for (int i = 0; i < orders; i++) {
+			orderService.createOrder(userId, lines);
+		}
+		double orderRate = orders / ((System.nanoTime() - start) / 1e9);
+		long roundTrips = RoundTripCountingDataSource.current() - before;
+
+		logger.info(String.format("product inserts: %.0f rows/s; orders x 5 lines: %.2f round trips per order, %.0f orders/s",
+				productRate, (double) roundTrips / orders, orderRate));
+	}
+
+	private Long userId() {
+		return userRepository.save(new User("batching-" + System.nanoTime() + "@example.com", "x", User.ROLE_USER)).getId();
+	}
+
+	private List<OrderItemRequest> lines(int count) {
+		List<OrderItemRequest> lines = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			OrderItemRequest line = new OrderItemRequest();
+			line.setProductId(productRepository.save(new Product("line-" + i, new BigDecimal("1.00"), 100_000)).getId());
+			line.setQuantity(1);
+			lines.add(line);
+		}
+		return lines;
+	}
+}
@@ -0,0 +1,159 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.OrderItemRequest;
+import com.example.demo.dto.ProductChanges;
+import com.example.demo.model.Product;
+import com.example.demo.model.User;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ProductChangeLogTests {
+
+	@Autowired
+	private ProductChangeLog productChangeLog;
+
+	@Autowired
+	private ProductService productService;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Test
+	void writesSinceAVersionComeBackOnceInTheirCurrentState() {
+		long since = productChangeLog.getSafeVersion();
+		Product kept = productService.addProduct(new Product("Delta " + System.nanoTime(), new BigDecimal("2.00"), 10));
+		Product gone = productService.addProduct(new Product("Gone " + System.nanoTime(), new BigDecimal("3.00"), 1));
+
+		kept.setPrice(new BigDecimal("2.50"));
+		productService.editProduct(kept.getId(), kept);
+		order(kept, 4);
+		productService.deleteProduct(gone.getId());
+
+		ProductChanges changes = drain(since);
+		List<Product> mine = changes.getChanged().stream().filter(p -> p.getId().equals(kept.getId())).toList();
+		assertEquals(1, mine.size());
+		assertEquals(0, new BigDecimal("2.50").compareTo(mine.get(0).getPrice()));
+		assertEquals(6, mine.get(0).getStock());
+		assertTrue(changes.getChanged().stream().noneMatch(p -> p.getId().equals(gone.getId())));
+		assertTrue(changes.getDeleted().contains(gone.getId()));
+
+		ProductChanges caughtUp = productChangeLog.getChangesSince(changes.getVersion(), 500);
+		assertTrue(caughtUp.getChanged().isEmpty());
+		assertTrue(caughtUp.getDeleted().isEmpty());
+		assertFalse(caughtUp.isHasMore());
+	}
+
+	@Test
+	void pagesFollowVersionOrder() {
+		long since = productChangeLog.getSafeVersion();
+		for (int i = 0; i < 5; i++) {
+			productService.addProduct(new Product("Page " + System.nanoTime(), new BigDecimal("1.00"), 1));
+		}
+		ProductChanges first = productChangeLog.getChangesSince(since, 2);
+		assertEquals(2, first.getChanged().size());
+		assertTrue(first.isHasMore());
+		assertEquals(first.getChanged().get(1).getModifiedVersion(), first.getVersion());
+		assertTrue(drain(first.getVersion()).getChanged().stream()
+				.allMatch(p -> p.getModifiedVersion() > first.getVersion()));
+	}
+
+	@Test
+	void aChangeCommittedLateIsNotSkipped() throws Exception {
+		Product slow = productService.addProduct(new Product("Slow " + System.nanoTime(), new BigDecimal("1.00"), 5));
+		Product fast = productService.addProduct(new Product("Fast " + System.nanoTime(), new BigDecimal("1.00"), 5));
+		long since = productChangeLog.getSafeVersion();
+
+		// takes the lower version, then holds its transaction open
+		CountDownLatch written = new CountDownLatch(1);
+		CountDownLatch commit = new CountDownLatch(1);
+		CompletableFuture<Void> slowWrite = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status -> {
+			Product row = productRepository.findById(slow.getId()).orElseThrow();
+			row.setStock(4);
+			row.setModifiedVersion(productChangeLog.next());
+			productRepository.saveAndFlush(row);
+			written.countDown();
+			try {
+				commit.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}));
+		assertTrue(written.await(10, TimeUnit.SECONDS));
+
+		fast.setStock(3);
+		productService.editProduct(fast.getId(), fast);
+		ProductChanges early = productChangeLog.getChangesSince(since, 500);
+		assertTrue(early.getChanged().isEmpty());
+		assertEquals(since, early.getVersion());
+
+		commit.countDown();
+		slowWrite.get(10, TimeUnit.SECONDS);
+		List<Long> ids = drain(early.getVersion()).getChanged().stream().map(Product::getId).toList();
+		assertTrue(ids.contains(slow.getId()));
+		assertTrue(ids.contains(fast.getId()));
+	}
+
+	@Test
+	void catalogCarriesItsVersionAndUnknownVersionsAreGone() throws Exception {
+		String version = mockMvc.perform(get("/api/products"))
+				.andExpect(status().isOk())
+				.andExpect(header().exists("X-Catalog-Change-Version"))
+				.andReturn().getResponse().getHeader("X-Catalog-Change-Version");
+		mockMvc.perform(get("/api/products/changes").param("since", version))
+				.andExpect(status().isOk());
+		mockMvc.perform(get("/api/products/changes").param("since", String.valueOf(Long.MAX_VALUE)))
+				.andExpect(status().isGone());
+	}
+
+	private ProductChanges drain(long since) {
+		ProductChanges all = new ProductChanges(since, new ArrayList<>(), new ArrayList<>(), false);
+		ProductChanges page;
+		do {
+			page = productChangeLog.getChangesSince(all.getVersion(), 500);
+			all.getChanged().addAll(page.getChanged());
+			all.getDeleted().addAll(page.getDeleted());
+			all = new ProductChanges(page.getVersion(), all.getChanged(), all.getDeleted(), false);
+		} while (page.isHasMore());
+		return all;
+	}
+
+	private void order(Product product, int quantity) {
+		User user = userRepository.save(new User("delta-" + System.nanoTime() + "@example.com", "x", User.ROLE_USER));
+		OrderItemRequest item = new OrderItemRequest();
+		item.setProductId(product.getId());
+		item.setQuantity(quantity);
+		orderService.createOrder(user.getId(), List.of(item));
+	}
+}
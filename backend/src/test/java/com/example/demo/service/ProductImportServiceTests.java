@@ -0,0 +1,156 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ProductImportResult;
+import com.example.demo.model.Product;
+import com.example.demo.repository.ProductRepository;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class ProductImportServiceTests {
+
+	private static final Log logger = LogFactory.getLog(ProductImportServiceTests.class);
+
+	@Autowired
+	private ProductImportService productImportService;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private ProductSearchIndex productSearchIndex;
+
+	@Autowired
+	private CatalogService catalogService;
+
+	@Test
+	void csvUpsertsByIdOrNameAndReportsBadRows() {
+		String prefix = "import-" + System.nanoTime();
+		ProductImportResult first = importCsv("name,price,stock,image_url\n"
+				+ "\"" + prefix + " mug, large\",4.50,10,\n"
+				+ prefix + " lamp,12,3,http://img/lamp.png\n"
+				+ prefix + " broken,abc,1,\n"
+				+ ",1.00,1,\n");
+		assertEquals(4, first.getRows());
+		assertEquals(2, first.getInserted());
+		assertEquals(2, first.getFailed());
+		assertEquals(List.of(4L, 5L), first.getErrors().stream().map(ProductImportResult.RowError::getRow).toList());
+		assertTrue(first.isCompleted());
+
+		Long lampId = productSearchIndex.search(prefix + " lamp", 1).get(0).getProductId();
+		ProductImportResult second = importCsv("id,name,price,stock\n"
+				+ lampId + "," + prefix + " desk lamp,15.00,7\n"
+				+ ",\"" + prefix + " mug, large\",5.00,20\n"
+				+ "999999999," + prefix + " ghost,1,1\n");
+		assertEquals(0, second.getInserted());
+		assertEquals(2, second.getUpdated());
+		assertEquals("Product not found with id: 999999999", second.getErrors().get(0).getMessage());
+
+		Product lamp = productRepository.findById(lampId).orElseThrow();
+		assertEquals(prefix + " desk lamp", lamp.getName());
+		assertEquals(0, new BigDecimal("15.00").compareTo(lamp.getPrice()));
+		assertEquals(7, lamp.getStock());
+		assertEquals(List.of(lampId), productSearchIndex.search(prefix + " desk", 5).stream()
+				.map(ProductSearchIndex.Hit::getProductId).toList());
+	}
+
+	@Test
+	void updatedStockKeepsOrdersCommittedAfterTheRead() {
+		Product product = productRepository.save(new Product("stock-" + System.nanoTime(), new BigDecimal("1.00"), 10));
+		Map<Long, Integer> read = productRepository.findStockByIds(List.of(product.getId()));
+		// an order takes 3 between the batch's read and its update
+		assertEquals(1, productRepository.reserveStock(Map.of(product.getId(), 3), 0)[0]);
+
+		product.setStock(50);
+		productRepository.updateAll(List.of(product), read);
+		assertEquals(47, productRepository.findById(product.getId()).orElseThrow().getStock());
+	}
+
+	@Test
+	void jsonArraySkipsInvalidElements() {
+		String prefix = "json-" + System.nanoTime();
+		String body = "[{\"name\":\"" + prefix + " a\",\"price\":1.25,\"stock\":2},"
+				+ "42,"
+				+ "{\"name\":\"" + prefix + " b\",\"price\":2,\"stock\":-1},"
+				+ "{\"name\":\"" + prefix + " a\",\"price\":3,\"stock\":4}]";
+		ProductImportResult result = productImportService.importProducts(ProductImportService.Format.JSON, stream(body));
+
+		assertEquals(4, result.getRows());
+		// the repeat of "a" in the same upload updates the row inserted just before
+		assertEquals(1, result.getInserted());
+		assertEquals(1, result.getUpdated());
+		assertEquals(2, result.getFailed());
+		assertEquals(List.of(2L, 3L), result.getErrors().stream().map(ProductImportResult.RowError::getRow).toList());
+	}
+
+	@Test
+	void truncatedUploadKeepsEarlierRows() {
+		String prefix = "cut-" + System.nanoTime();
+		String body = "[{\"name\":\"" + prefix + "\",\"price\":1,\"stock\":1},{\"name\":";
+		ProductImportResult result = productImportService.importProducts(ProductImportService.Format.JSON, stream(body));
+
+		assertFalse(result.isCompleted());
+		assertNotNull(result.getError());
+		assertEquals(1, result.getInserted());
+	}
+
+	@Test
+	void catalogIsRebuiltOncePerImport() {
+		String prefix = "once-" + System.nanoTime() + "-";
+		long version = catalogService.getVersion();
+		// three batches of catalog.import.batch-size
+		ProductImportResult result = importCsv(csv(prefix, 2_500));
+
+		assertEquals(2_500, result.getInserted());
+		assertEquals(version + 1, catalogService.getVersion());
+	}
+
+	// mvn test -Pbenchmark
+	@Test
+	@Tag("benchmark")
+	void benchmarkCsvImport() {
+		int rows = 50_000;
+		ProductImportResult result = null;
+		// the first passes warm up the JIT (ours and H2's); the last is the steady state
+		for (int pass = 1; pass <= 3; pass++) {
+			// let the previous pass's catalog rebuild finish so it does not share the CPU with this one
+			catalogService.getCurrentSnapshot();
+			result = importCsv(csv("bulk-" + System.nanoTime() + "-", rows));
+			logger.info(String.format("product import pass %d: %d rows in %d ms (%.0f rows/s)",
+					pass, result.getInserted(), result.getDurationMillis(), result.getRowsPerSecond()));
+			assertEquals(rows, result.getInserted());
+			assertEquals(0, result.getFailed());
+		}
+		// about 14k rows/s steady on H2 in memory (6k on the cold first pass), nearly all of it inserts and commits
+		assertTrue(result.getRowsPerSecond() > 10_000, result.getRowsPerSecond() + " rows/s");
+	}
+
+	private static String csv(String prefix, int rows) {
+		StringBuilder csv = new StringBuilder(rows * 32).append("name,price,stock\n");
+		for (int i = 0; i < rows; i++) {
+			csv.append(prefix).append(i).append(',').append(1 + i % 100).append(".99,").append(i % 50).append('\n');
+		}
+		return csv.toString();
+	}
+
+	private ProductImportResult importCsv(String csv) {
+		return productImportService.importProducts(ProductImportService.Format.CSV, stream(csv));
+	}
+
+	private static InputStream stream(String body) {
+		return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+	}
+}
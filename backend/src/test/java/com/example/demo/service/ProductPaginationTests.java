@@ -0,0 +1,84 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.CursorPage;
+import com.example.demo.dto.ProductFilter;
+import com.example.demo.model.Product;
+import com.example.demo.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class ProductPaginationTests {
+
+	@Autowired
+	private ProductService productService;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Test
+	void cursorWalksEveryMatchInSortOrder() {
+		String prefix = "paged-" + System.nanoTime() + "-";
+		List<Product> products = new ArrayList<>();
+		for (int i = 0; i < 25; i++) {
+			// duplicate prices so the id tie-breaker matters
+			products.add(new Product(prefix + i, new BigDecimal(10 + i % 5), i % 4 == 0 ? 0 : i));
+		}
+		productRepository.saveAll(products);
+
+		List<Product> seen = new ArrayList<>();
+		String cursor = null;
+		do {
+			CursorPage<Product> page = productService.findProducts(new ProductFilter(null, null, false, prefix), "price", true, cursor, 7);
+			assertTrue(page.getItems().size() <= 7);
+			seen.addAll(page.getItems());
+			cursor = page.getNextCursor();
+		} while (cursor != null);
+
+		assertEquals(25, seen.size());
+		assertEquals(25, seen.stream().map(Product::getId).distinct().count());
+		for (int i = 1; i < seen.size(); i++) {
+			Product previous = seen.get(i - 1);
+			Product current = seen.get(i);
+			int byPrice = previous.getPrice().compareTo(current.getPrice());
+			assertTrue(byPrice > 0 || (byPrice == 0 && previous.getId() > current.getId()));
+		}
+	}
+
+	@Test
+	void filtersCombine() {
+		String prefix = "filtered-" + System.nanoTime() + "-";
+		productRepository.saveAll(List.of(
+				new Product(prefix + "a", new BigDecimal("5.00"), 3),
+				new Product(prefix + "b", new BigDecimal("15.00"), 0),
+				new Product(prefix + "c", new BigDecimal("15.00"), 8),
+				new Product(prefix + "d", new BigDecimal("25.00"), 1)));
+
+		ProductFilter filter = new ProductFilter(new BigDecimal("10"), new BigDecimal("20"), true, prefix);
+		CursorPage<Product> page = productService.findProducts(filter, "stock", false, null, 20);
+
+		assertEquals(List.of(prefix + "c"), page.getItems().stream().map(Product::getName).toList());
+		assertFalse(page.isHasMore());
+	}
+
+	@Test
+	void cursorFromAnotherSortIsRejected() {
+		String prefix = "rejected-" + System.nanoTime() + "-";
+		productRepository.saveAll(List.of(
+				new Product(prefix + "a", new BigDecimal("1.00"), 1),
+				new Product(prefix + "b", new BigDecimal("2.00"), 1)));
+		ProductFilter filter = new ProductFilter(null, null, false, prefix);
+		String cursor = productService.findProducts(filter, "price", false, null, 1).getNextCursor();
+		assertNotNull(cursor);
+
+		assertThrows(RuntimeException.class, () -> productService.findProducts(filter, "name", false, cursor, 1));
+		assertThrows(RuntimeException.class, () -> productService.findProducts(filter, "price", false, "not-a-cursor", 1));
+	}
+}
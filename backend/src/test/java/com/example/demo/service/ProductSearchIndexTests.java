@@ -0,0 +1,155 @@
+package com.example.demo.service;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Ranking and incremental updates, plus a benchmark over 100k generated names
+ * checking heap per indexed product and query latency.
+ */
+class ProductSearchIndexTests {
+
+	private static final Log logger = LogFactory.getLog(ProductSearchIndexTests.class);
+
+	private static final String[] ADJECTIVES = {"red", "blue", "green", "black", "white", "vintage", "classic", "modern",
+			"compact", "deluxe", "ultra", "smart", "wireless", "organic", "premium", "portable"};
+	private static final String[] MATERIALS = {"leather", "cotton", "steel", "wooden", "ceramic", "glass", "bamboo",
+			"wool", "silk", "plastic", "carbon", "copper"};
+	private static final String[] NOUNS = {"shoes", "jacket", "lamp", "chair", "mug", "bottle", "headphones", "backpack",
+			"watch", "keyboard", "blanket", "speaker", "table", "wallet", "scarf", "kettle", "charger", "notebook"};
+
+	@Test
+	void prefixTermsRankExactAndLeadingMatchesFirst() {
+		ProductSearchIndex index = new ProductSearchIndex();
+		index.index(1L, "Leather Shoes");
+		index.index(2L, "Shoes for leather care");
+		index.index(3L, "Leathercraft Shoe Polish");
+		index.index(4L, "Crème Brûlée Torch");
+
+		// "Leathercraft Shoe" leads with both terms, so it beats the reordered "Shoes for leather"
+		assertEquals(List.of(1L, 3L, 2L), ids(index.search("lea sho", 10)));
+		assertEquals(List.of(1L, 2L), ids(index.search("leather shoes", 10)));
+		assertEquals(List.of(4L), ids(index.search("CREME bru", 10)));
+		assertTrue(index.search("leather boots", 10).isEmpty());
+		assertTrue(index.search("  ,. ", 10).isEmpty());
+	}
+
+	@Test
+	void editsAndDeletesAreVisibleImmediately() {
+		ProductSearchIndex index = new ProductSearchIndex();
+		index.index(1L, "Wooden Chair");
+		index.index(2L, "Wooden Table");
+
+		index.index(1L, "Steel Chair");
+		assertEquals(List.of(2L), ids(index.search("wood", 10)));
+		assertEquals(List.of(1L), ids(index.search("steel", 10)));
+
+		index.remove(2L);
+		assertTrue(index.search("wood", 10).isEmpty());
+
+		// the freed slot is reused
+		index.index(3L, "Wooden Stool");
+		assertEquals(List.of(3L), ids(index.search("woo", 10)));
+		assertEquals(2, index.getStats().get("products"));
+	}
+
+	@Test
+	void manyEditsAndDeletesKeepEveryProductFindable() {
+		ProductSearchIndex index = new ProductSearchIndex();
+		int products = 5_000;
+		for (long id = 1; id <= products; id++) {
+			index.index(id, "sku" + id + "x");
+		}
+		for (long id = 3; id <= products; id += 3) {
+			index.remove(id);
+		}
+		for (long id = 5; id <= products; id += 5) {
+			index.index(id, "sku" + id + "y");
+		}
+
+		for (long id = 1; id <= products; id++) {
+			boolean removed = id % 3 == 0 && id % 5 != 0;
+			String suffix = id % 5 == 0 ? "y" : "x";
+			assertEquals(removed ? List.of() : List.of(id), ids(index.search("sku" + id + suffix, 10)), "product " + id);
+		}
+		assertEquals(products - products / 3 + products / 15, index.getStats().get("products"));
+	}
+
+	// mvn test -Pbenchmark
+	@Test
+	@Tag("benchmark")
+	void benchmarkHundredThousandProducts() {
+		int products = 100_000;
+		Random random = new Random(42);
+		String[] names = new String[products];
+		for (int i = 0; i < products; i++) {
+			names[i] = pick(random, ADJECTIVES) + " " + pick(random, MATERIALS) + " " + pick(random, NOUNS) + " " + (1000 + random.nextInt(9000));
+		}
+
+		ProductSearchIndex index = new ProductSearchIndex();
+		for (int i = 0; i < products; i++) {
+			index.index((long) i + 1, names[i]);
+		}
+
+		String[] queries = {"red", "lea", "wireless head", "vintage copper ket", "bamboo", "smart wat 12", "s", "deluxe silk scarf", "1234", "blue gl mug"};
+		for (int warm = 0; warm < 5_000; warm++) {
+			index.search(queries[warm % queries.length], 20);
+		}
+		int runs = 1_000;
+		long[] all = new long[runs * queries.length];
+		for (int q = 0; q < queries.length; q++) {
+			long[] nanos = new long[runs];
+			for (int i = 0; i < runs; i++) {
+				long start = System.nanoTime();
+				index.search(queries[q], 20);
+				nanos[i] = System.nanoTime() - start;
+			}
+			System.arraycopy(nanos, 0, all, q * runs, runs);
+			Arrays.sort(nanos);
+			logger.info(String.format("search \"%s\": median %.1f us, p99 %.1f us", queries[q], nanos[runs / 2] / 1_000.0, nanos[runs * 99 / 100] / 1_000.0));
+		}
+		Arrays.sort(all);
+		double medianMicros = all[all.length / 2] / 1_000.0;
+		double p99Micros = all[all.length * 99 / 100] / 1_000.0;
+		assertEquals(20, index.search("red", 20).size());
+
+		// the heap the index frees, measured back to back so other threads' garbage hardly enters
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		long withIndex = usedHeap(memory);
+		Object tokens = index.getStats().get("tokens");
+		assertEquals(products, index.getStats().get("products"));
+		index = null;
+		long bytesPerProduct = (withIndex - usedHeap(memory)) / products;
+		logger.info(String.format("search index: %d products, ~%d bytes/product, %s tokens, median %.1f us, p99 %.1f us",
+				products, bytesPerProduct, tokens, medianMicros, p99Micros));
+
+		assertTrue(bytesPerProduct < 200, bytesPerProduct + " bytes/product");
+		// the type-ahead target: well under a millisecond for nearly every query
+		assertTrue(p99Micros < 1_000, "p99 query " + p99Micros + " us");
+	}
+
+	private static List<Long> ids(List<ProductSearchIndex.Hit> hits) {
+		return hits.stream().map(ProductSearchIndex.Hit::getProductId).toList();
+	}
+
+	private static String pick(Random random, String[] words) {
+		return words[random.nextInt(words.length)];
+	}
+
+	private static long usedHeap(MemoryMXBean memory) {
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return memory.getHeapMemoryUsage().getUsed();
+	}
+}
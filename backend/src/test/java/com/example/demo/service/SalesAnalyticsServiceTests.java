@@ -0,0 +1,87 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.OrderItemRequest;
+import com.example.demo.model.Order;
+import com.example.demo.model.Product;
+import com.example.demo.model.User;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class SalesAnalyticsServiceTests {
+
+	@Autowired
+	private SalesAnalyticsService salesAnalyticsService;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void aggregatesFollowCommitsAndMatchARebuild() {
+		Long userId = userRepository.save(new User("stats-" + System.nanoTime() + "@example.com", "x", User.ROLE_USER)).getId();
+		Long productId = productRepository.save(new Product("stats", new BigDecimal("2.50"), 100)).getId();
+		OrderItemRequest item = new OrderItemRequest();
+		item.setProductId(productId);
+		item.setQuantity(4);
+
+		// other test contexts share the database: start from what is in it now
+		salesAnalyticsService.rebuild();
+		Map<String, Object> before = salesAnalyticsService.getSummary();
+		Order kept = orderService.createOrder(userId, List.of(item));
+		Order cancelled = orderService.createOrder(userId, List.of(item));
+
+		Map<String, Object> afterCreate = salesAnalyticsService.getSummary();
+		assertEquals((long) before.get("orders") + 2, afterCreate.get("orders"));
+		assertEquals((long) before.get("units") + 8, afterCreate.get("units"));
+		assertEquals(((BigDecimal) before.get("revenue")).add(new BigDecimal("20.00")), afterCreate.get("revenue"));
+
+		orderService.updateOrderStatus(cancelled.getId(), SalesAnalyticsService.CANCELLED);
+		Map<String, Object> afterCancel = salesAnalyticsService.getSummary();
+		assertEquals((long) before.get("orders") + 1, afterCancel.get("orders"));
+		assertEquals(((BigDecimal) before.get("revenue")).add(new BigDecimal("10.00")), afterCancel.get("revenue"));
+
+		// the ranking is refreshed by the flush
+		salesAnalyticsService.flush();
+		Map<String, Object> top = salesAnalyticsService.getTopProducts(100).stream()
+				.filter(p -> productId.equals(p.get("productId")))
+				.findFirst().orElseThrow();
+		assertEquals(4L, top.get("units"));
+
+		LocalDate today = kept.getOrderDate().toLocalDate();
+		Map<String, Object> day = salesAnalyticsService.getDaily(today, today).get(0);
+
+		// the incremental figures must equal what a rebuild from the order tables finds
+		salesAnalyticsService.rebuild();
+		Map<String, Object> rebuilt = salesAnalyticsService.getSummary();
+		assertEquals(afterCancel.get("orders"), rebuilt.get("orders"));
+		assertEquals(afterCancel.get("units"), rebuilt.get("units"));
+		assertEquals(0, ((BigDecimal) afterCancel.get("revenue")).compareTo((BigDecimal) rebuilt.get("revenue")));
+		assertEquals(afterCancel.get("ordersByStatus"), rebuilt.get("ordersByStatus"));
+		assertEquals(day.get("orders"), salesAnalyticsService.getDaily(today, today).get(0).get("orders"));
+
+		// and the summary table holds the same row
+		Long storedOrders = jdbcTemplate.queryForObject(
+				"select orders from sales_daily where sales_day = ?", Long.class, java.sql.Date.valueOf(today));
+		assertEquals(day.get("orders"), storedOrders);
+	}
+}
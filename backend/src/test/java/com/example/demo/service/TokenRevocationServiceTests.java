@@ -0,0 +1,59 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class TokenRevocationServiceTests {
+
+	@Autowired
+	private TokenRevocationService tokenRevocationService;
+
+	@Test
+	void aTokenIsRevokedOnceEvenWhileTheSnapshotIsReplaced() throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		try {
+			for (int round = 0; round < 20; round++) {
+				String tokenId = UUID.randomUUID().toString();
+				Instant expiresAt = Instant.now().plusSeconds(600);
+				CountDownLatch start = new CountDownLatch(1);
+				AtomicInteger accepted = new AtomicInteger();
+				List<Future<?>> futures = new ArrayList<>();
+				for (int i = 0; i < 8; i++) {
+					int thread = i;
+					futures.add(pool.submit(() -> {
+						start.await();
+						if (thread == 0) {
+							tokenRevocationService.reload();
+						} else if (tokenRevocationService.revoke(tokenId, expiresAt)) {
+							accepted.incrementAndGet();
+						}
+						return null;
+					}));
+				}
+				start.countDown();
+				for (Future<?> future : futures) {
+					future.get(10, TimeUnit.SECONDS);
+				}
+				assertEquals(1, accepted.get());
+				assertTrue(tokenRevocationService.isRevoked(tokenId));
+				// a later reload keeps it and a second use is still refused
+				tokenRevocationService.reload();
+				assertTrue(tokenRevocationService.isRevoked(tokenId));
+				assertFalse(tokenRevocationService.revoke(tokenId, expiresAt));
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+}
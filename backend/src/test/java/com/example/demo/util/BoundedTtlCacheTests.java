@@ -0,0 +1,98 @@
+package com.example.demo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedTtlCacheTests {
+
+	@Test
+	void concurrentMissesShareOneLoad() throws Exception {
+		BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(10, 60_000);
+		AtomicInteger loads = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(16);
+		try {
+			List<Future<String>> results = new ArrayList<>();
+			for (int i = 0; i < 16; i++) {
+				results.add(pool.submit(() -> {
+					start.await();
+					return cache.get("cold@example.com", key -> {
+						loads.incrementAndGet();
+						sleep(100);
+						return "loaded";
+					});
+				}));
+			}
+			start.countDown();
+			for (Future<String> result : results) {
+				assertEquals("loaded", result.get(5, TimeUnit.SECONDS));
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+		assertEquals(1, loads.get());
+		assertEquals(1, cache.getLoads());
+	}
+
+	@Test
+	void expiredAndOverflowingEntriesAreEvicted() {
+		BoundedTtlCache<Integer, String> cache = new BoundedTtlCache<>(2, 60_000);
+		cache.put(1, "expired", System.currentTimeMillis() - 1);
+		assertNull(cache.get(1));
+
+		cache.put(1, "a");
+		cache.put(2, "b");
+		cache.put(3, "c");
+		assertEquals(2, cache.size());
+		assertEquals("c", cache.get(3));
+		assertEquals(2, cache.getEvictions());
+	}
+
+	@Test
+	void aFullCacheSweepsOncePerTenthOfItsBound() {
+		BoundedTtlCache<Integer, String> cache = new BoundedTtlCache<>(100, 60_000);
+		for (int i = 0; i < 100; i++) {
+			cache.put(i, "live");
+		}
+		cache.put(100, "new");
+		assertEquals(10, cache.getEvictions());
+		assertEquals(91, cache.size());
+
+		// the next nine new keys fit without another sweep
+		for (int i = 101; i < 110; i++) {
+			cache.put(i, "new");
+		}
+		assertEquals(10, cache.getEvictions());
+		cache.put(110, "new");
+		assertEquals(20, cache.getEvictions());
+		assertEquals("new", cache.get(110));
+	}
+
+	@Test
+	void invalidateDropsEntry() {
+		BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(10, 60_000);
+		cache.put("a", "1");
+		cache.invalidate("a");
+		assertNull(cache.get("a"));
+		assertEquals("2", cache.get("a", key -> "2"));
+		assertEquals("2", cache.get("a"));
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
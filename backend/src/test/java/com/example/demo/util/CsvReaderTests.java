@@ -0,0 +1,39 @@
+package com.example.demo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvReaderTests {
+
+	@Test
+	void readsQuotedFieldsAcrossLines() throws IOException {
+		CsvReader csv = new CsvReader(new StringReader("name,price\r\n\"Mug, large\",4.50\n\n\"Say \"\"hi\"\"\nlamp\",\n"));
+
+		assertEquals(List.of("name", "price"), csv.next());
+		assertEquals(List.of("Mug, large", "4.50"), csv.next());
+		assertEquals(2, csv.getRecordLine());
+		assertEquals(List.of("Say \"hi\"\nlamp", ""), csv.next());
+		assertEquals(4, csv.getRecordLine());
+		assertNull(csv.next());
+	}
+
+	@Test
+	void lastRecordNeedsNoLineBreak() throws IOException {
+		CsvReader csv = new CsvReader(new StringReader("a,b\n1,2"));
+		csv.next();
+		assertEquals(List.of("1", "2"), csv.next());
+		assertNull(csv.next());
+	}
+
+	@Test
+	void unterminatedQuoteFails() throws IOException {
+		CsvReader csv = new CsvReader(new StringReader("a\n\"open"));
+		csv.next();
+		assertThrows(IOException.class, csv::next);
+	}
+}
@@ -0,0 +1,131 @@
+package com.example.demo.util;
+
+import com.example.demo.model.Order;
+import com.example.demo.model.OrderItem;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTests {
+
+	private static final Log logger = LogFactory.getLog(MoneyTests.class);
+
+	@Test
+	void amountsAreExactMinorUnits() {
+		assertEquals(1999, Money.of(new BigDecimal("19.99")).getMinorUnits());
+		assertEquals(1000, Money.of(new BigDecimal("10")).getMinorUnits());
+		// rounds like the two-place columns
+		assertEquals(1000, Money.of(new BigDecimal("9.995")).getMinorUnits());
+		assertEquals(Money.ofMinor(30), Money.of(new BigDecimal("0.1")).plus(Money.of(new BigDecimal("0.2"))));
+		assertEquals(new BigDecimal("0.30"), Money.ofMinor(30).toBigDecimal());
+		assertEquals(Money.ofMinor(3_000, Currency.getInstance("JPY")), Money.of(new BigDecimal("3000"), Currency.getInstance("JPY")));
+		assertEquals("-1.05 USD", Money.ofMinor(-105).toString());
+	}
+
+	@Test
+	void overflowAndMixedCurrenciesFailLoudly() {
+		assertThrows(ArithmeticException.class, () -> Money.ofMinor(Long.MAX_VALUE / 2).times(3));
+		assertThrows(ArithmeticException.class, () -> Money.plus(Long.MAX_VALUE, 1));
+		assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("1e30")));
+		Money euros = Money.ofMinor(100, Currency.getInstance("EUR"));
+		assertThrows(IllegalArgumentException.class, () -> Money.ofMinor(100).plus(euros));
+		assertThrows(IllegalArgumentException.class, () -> new MoneyConverter().convertToDatabaseColumn(euros));
+	}
+
+	@Test
+	void orderTotalIsTheSumOfLineSubtotals() throws Exception {
+		Order order = order(new long[]{1999, 5, 100_000_00}, new int[]{3, 7, 1});
+		order.calculateTotalAmount();
+		assertEquals(Money.ofMinor(1999 * 3 + 5 * 7 + 100_000_00), order.getTotalAmount());
+		// still a plain number on the wire
+		assertEquals("100060.32", new ObjectMapper().writeValueAsString(order.getTotalAmount()));
+
+		MoneyConverter converter = new MoneyConverter();
+		assertEquals(order.getTotalAmount(), converter.convertToEntityAttribute(converter.convertToDatabaseColumn(order.getTotalAmount())));
+	}
+
+	// mvn test -Pbenchmark
+	@Test
+	@Tag("benchmark")
+	void benchmarkOrderTotal() {
+		int lines = 20;
+		long[] prices = new long[lines];
+		int[] quantities = new int[lines];
+		for (int i = 0; i < lines; i++) {
+			prices[i] = 99 + i * 1_013L;
+			quantities[i] = 1 + i % 4;
+		}
+		Order order = order(prices, quantities);
+		// the same lines with the BigDecimal prices OrderItem used to hold
+		List<DecimalItem> decimalItems = new ArrayList<>();
+		for (OrderItem item : order.getItems()) {
+			decimalItems.add(new DecimalItem(item.getPrice().toBigDecimal(), item.getQuantity()));
+		}
+		int runs = 200_000;
+
+		// what Order.calculateTotalAmount did before
+		Cost decimalStream = measure(runs, () -> decimalItems.stream()
+				.map(item -> item.price().multiply(BigDecimal.valueOf(item.quantity())))
+				.reduce(BigDecimal.ZERO, BigDecimal::add).unscaledValue().longValue());
+		Cost decimal = measure(runs, () -> {
+			BigDecimal total = BigDecimal.ZERO;
+			for (DecimalItem item : decimalItems) {
+				total = total.add(item.price().multiply(BigDecimal.valueOf(item.quantity())));
+			}
+			return total.unscaledValue().longValue();
+		});
+		Cost minorUnits = measure(runs, () -> {
+			order.calculateTotalAmount();
+			return order.getTotalAmount().getMinorUnits();
+		});
+
+		logger.info(String.format("order total over %d lines, per call:", lines));
+		logger.info(String.format("  BigDecimal stream reduction: %,d bytes, %.0f ns cpu", decimalStream.bytes, decimalStream.cpuNanos));
+		logger.info(String.format("  BigDecimal loop:             %,d bytes, %.0f ns cpu", decimal.bytes, decimal.cpuNanos));
+		logger.info(String.format("  long minor units:            %,d bytes, %.0f ns cpu", minorUnits.bytes, minorUnits.cpuNanos));
+
+		// the result Money is the only allocation; the loop itself allocates nothing
+		assertTrue(minorUnits.bytes <= 64, "minor units allocated " + minorUnits.bytes + " bytes");
+		assertTrue(minorUnits.bytes * 10 < decimalStream.bytes);
+	}
+
+	private static Order order(long[] prices, int[] quantities) {
+		Order order = new Order();
+		for (int i = 0; i < prices.length; i++) {
+			order.addItem(new OrderItem(null, quantities[i], Money.ofMinor(prices[i])));
+		}
+		return order;
+	}
+
+	private record DecimalItem(BigDecimal price, Integer quantity) {}
+
+	private record Cost(long bytes, double cpuNanos) {}
+
+	// keeps the JIT from dropping the measured work
+	private static volatile long sink;
+
+	private static Cost measure(int runs, LongSupplier call) {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		for (int i = 0; i < runs; i++) {
+			sink += call.getAsLong();
+		}
+		long bytes = threads.getCurrentThreadAllocatedBytes();
+		long cpu = threads.getCurrentThreadCpuTime();
+		for (int i = 0; i < runs; i++) {
+			sink += call.getAsLong();
+		}
+		return new Cost((threads.getCurrentThreadAllocatedBytes() - bytes) / runs,
+				(double) (threads.getCurrentThreadCpuTime() - cpu) / runs);
+	}
+}
@@ -0,0 +1,41 @@
+package com.example.demo.util;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoundTripCountingDataSourceTests {
+
+	@Test
+	void countsExecutionsAndCommitsAndKeepsTheWrappedConnection() throws Exception {
+		JdbcDataSource h2 = new JdbcDataSource();
+		h2.setURL("jdbc:h2:mem:round-trips;DB_CLOSE_DELAY=-1");
+		RoundTripCountingDataSource dataSource = new RoundTripCountingDataSource(h2);
+
+		try (Connection connection = dataSource.getConnection()) {
+			connection.setAutoCommit(false);
+			long before = RoundTripCountingDataSource.current();
+			try (Statement statement = connection.createStatement()) {
+				statement.execute("create table t (id int)");
+				// a statement hands back the counted connection, not the one underneath
+				assertSame(connection, statement.getConnection());
+			}
+			try (PreparedStatement insert = connection.prepareStatement("insert into t values (?)")) {
+				for (int i = 0; i < 10; i++) {
+					insert.setInt(1, i);
+					insert.addBatch();
+				}
+				// a batch is one round trip
+				insert.executeBatch();
+			}
+			connection.commit();
+			assertEquals(3, RoundTripCountingDataSource.current() - before);
+		}
+		assertSame(h2, dataSource.unwrap(JdbcDataSource.class));
+	}
+}
@@ -49,6 +49,9 @@ class AuthProvider with ChangeNotifier {
       final token = response['token'];
 
       await prefs.setString('token', token);
+      if (response['refreshToken'] != null) {
+        await prefs.setString('refreshToken', response['refreshToken']);
+      }
       await prefs.setString('userEmail', email);
 
       // Enhanced role extraction
@@ -107,8 +110,10 @@ class AuthProvider with ChangeNotifier {
     }
   }
   Future<void> logout() async {
+    await ApiService.logout();
     final prefs = await SharedPreferences.getInstance();
     await prefs.remove('token');
+    await prefs.remove('refreshToken');
     await prefs.remove('userEmail');
     await prefs.remove('userId');
     await prefs.remove('userRole');
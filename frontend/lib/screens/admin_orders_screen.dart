@@ -10,6 +10,8 @@ class AdminOrdersScreen extends StatefulWidget {
 
 class _AdminOrdersScreenState extends State<AdminOrdersScreen> {
   List<dynamic> orders = [];
+  String? nextCursor;
+  bool isLoadingMore = false;
   bool isLoading = true;
   String errorMessage = '';
 
@@ -26,10 +28,11 @@ class _AdminOrdersScreenState extends State<AdminOrdersScreen> {
     });
 
     try {
-      final ordersList = await ApiService.getAllOrders();
+      final page = await ApiService.getAllOrders();
       if (!mounted) return;
       setState(() {
-        orders = ordersList;
+        orders = List.of(page['items']);
+        nextCursor = page['nextCursor'];
         isLoading = false;
       });
     } catch (e) {
@@ -41,6 +44,29 @@ class _AdminOrdersScreenState extends State<AdminOrdersScreen> {
     }
   }
 
+  // Fetches the next page when the list is scrolled to the end
+  Future<void> _loadMore() async {
+    if (isLoadingMore || nextCursor == null) return;
+    setState(() => isLoadingMore = true);
+
+    try {
+      final page = await ApiService.getAllOrders(cursor: nextCursor);
+      if (!mounted) return;
+      setState(() {
+        orders.addAll(page['items']);
+        nextCursor = page['nextCursor'];
+        isLoadingMore = false;
+      });
+    } catch (e) {
+      if (!mounted) return;
+      // stop paging instead of retrying on every rebuild; pull to refresh starts over
+      setState(() {
+        nextCursor = null;
+        isLoadingMore = false;
+      });
+    }
+  }
+
   String _formatDate(dynamic date) {
     if (date == null) return 'Unknown date';
     try {
@@ -70,8 +96,16 @@ class _AdminOrdersScreenState extends State<AdminOrdersScreen> {
           : RefreshIndicator(
         onRefresh: _loadOrders,
         child: ListView.builder(
-          itemCount: orders.length,
+          itemCount: orders.length + (nextCursor != null ? 1 : 0),
           itemBuilder: (context, index) {
+            if (index == orders.length) {
+              // reached the end of what is loaded: fetch the next page
+              Future.microtask(_loadMore);
+              return const Padding(
+                padding: EdgeInsets.all(16),
+                child: Center(child: CircularProgressIndicator()),
+              );
+            }
             final order = orders[index];
             final id = order['id'] ?? order['orderId'] ?? order['orderID'] ?? 'N/A';
             final total = order['totalAmount'] ?? order['total_amount'] ?? order['total'] ?? 0;
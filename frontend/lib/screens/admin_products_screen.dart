@@ -183,7 +183,7 @@ class _AdminProductsScreenState extends State<AdminProductsScreen> {
               child: ListTile(
                 leading: (p['imageUrl'] ?? p['image_url'] ?? '').toString().isNotEmpty
                     ? Image.network(
-                    p['imageUrl'] ?? p['image_url'],
+                    ApiService.imageUrl(p['imageUrl'] ?? p['image_url'], width: 56 * MediaQuery.of(context).devicePixelRatio),
                     width: 56,
                     height: 56,
                     fit: BoxFit.cover,
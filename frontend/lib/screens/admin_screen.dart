@@ -1,3 +1,4 @@
+import 'dart:async';
 import 'package:flutter/material.dart';
 import 'package:provider/provider.dart';
 import '../providers/auth_provider.dart';
@@ -17,19 +18,64 @@ class _AdminScreenState extends State<AdminScreen> with SingleTickerProviderStat
   bool isLoading = false;
   String? errorMessage;
   List<dynamic> lowStockProducts = [];
+  StreamSubscription<Map<String, dynamic>>? _alerts;
+  Timer? _reconnect;
 
   @override
   void initState() {
     super.initState();
     _tabController = TabController(length: 3, vsync: this); // Changed length to 3
     _loadLowStock(); // preload low-stock
+    _listenForAlerts();
     _tabController.addListener(() {
-      if (_tabController.index == 0) {
+      // the alert stream keeps the list current; poll only while it is down
+      if (_tabController.index == 0 && _alerts == null) {
         _loadLowStock();
       }
     });
   }
 
+  // the server sends a 'snapshot' of the whole list, then one 'alert' per product change
+  void _listenForAlerts() {
+    _alerts = ApiService.lowStockEvents().listen((event) {
+      if (!mounted) return;
+      setState(() {
+        if (event['event'] == 'snapshot') {
+          lowStockProducts = List<dynamic>.from(event['data'] as List);
+          isLoading = false;
+          errorMessage = null;
+        } else if (event['event'] == 'alert') {
+          _applyAlert(event['data'] as Map<String, dynamic>);
+        }
+      });
+    }, onError: (_) => _scheduleReconnect(), onDone: _scheduleReconnect, cancelOnError: true);
+  }
+
+  void _applyAlert(Map<String, dynamic> alert) {
+    final id = alert['productId'];
+    final index = lowStockProducts.indexWhere((p) => p['id'] == id);
+    final level = alert['level'];
+    if (level == 'RESTOCKED' || level == 'REMOVED') {
+      if (index >= 0) lowStockProducts.removeAt(index);
+      return;
+    }
+    if (index >= 0) {
+      lowStockProducts[index] = {...lowStockProducts[index] as Map<String, dynamic>, 'stock': alert['stock']};
+    } else {
+      lowStockProducts.add({'id': id, 'name': alert['name'], 'stock': alert['stock']});
+    }
+    lowStockProducts.sort((a, b) => (a['stock'] as int).compareTo(b['stock'] as int));
+  }
+
+  void _scheduleReconnect() {
+    _alerts = null;
+    if (!mounted) return;
+    _reconnect?.cancel();
+    _reconnect = Timer(const Duration(seconds: 5), () {
+      if (mounted) _listenForAlerts();
+    });
+  }
+
   Future<void> _loadLowStock({int threshold = 5}) async {
     setState(() {
       isLoading = true;
@@ -53,6 +99,8 @@ class _AdminScreenState extends State<AdminScreen> with SingleTickerProviderStat
 
   @override
   void dispose() {
+    _reconnect?.cancel();
+    _alerts?.cancel();
     _tabController.dispose();
     super.dispose();
   }
@@ -129,16 +177,16 @@ class _AdminScreenState extends State<AdminScreen> with SingleTickerProviderStat
         itemBuilder: (context, index) {
           final p = lowStockProducts[index];
           final stock = p['stock'] ?? p['stock']?.toString() ?? 'N/A';
-          final price = p['price'] ?? 0;
+          final price = p['price']; // absent for entries added from an alert
           return Card(
             margin: const EdgeInsets.symmetric(horizontal: 12, vertical: 8),
             child: ListTile(
               leading: (p['imageUrl'] ?? p['image_url'] ?? '').toString().isNotEmpty
-                  ? Image.network(p['imageUrl'] ?? p['image_url'], width: 56, height: 56, fit: BoxFit.cover, errorBuilder: (_, __, ___) => const Icon(Icons.shopping_bag))
+                  ? Image.network(ApiService.imageUrl(p['imageUrl'] ?? p['image_url'], width: 56 * MediaQuery.of(context).devicePixelRatio), width: 56, height: 56, fit: BoxFit.cover, errorBuilder: (_, __, ___) => const Icon(Icons.shopping_bag))
                   : const Icon(Icons.shopping_bag),
               title: Text(p['name'] ?? 'Unnamed'),
               subtitle: Text('Stock: $stock'),
-              trailing: Text('\$${(price is num ? price.toStringAsFixed(2) : price.toString())}'),
+              trailing: price == null ? null : Text('\$${(price is num ? price.toStringAsFixed(2) : price.toString())}'),
             ),
           );
         },
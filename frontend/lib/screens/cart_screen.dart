@@ -180,7 +180,7 @@ class _CartScreenState extends State<CartScreen> {
               ),
               child: imageUrl.isNotEmpty
                   ? Image.network(
-                imageUrl,
+                ApiService.imageUrl(imageUrl, width: 70 * MediaQuery.of(context).devicePixelRatio),
                 fit: BoxFit.cover,
                 errorBuilder: (_, __, ___) => const Icon(Icons.shopping_bag, size: 30),
               )
@@ -10,6 +10,8 @@ class OrdersScreen extends StatefulWidget {
 
 class _OrdersScreenState extends State<OrdersScreen> {
   List<dynamic> orders = [];
+  String? nextCursor;
+  bool isLoadingMore = false;
   bool isLoading = true;
   String errorMessage = '';
 
@@ -28,11 +30,12 @@ class _OrdersScreenState extends State<OrdersScreen> {
     });
 
     try {
-      final ordersList = await ApiService.getUserOrders();
+      final page = await ApiService.getUserOrders();
       if (!mounted) return;
 
       setState(() {
-        orders = ordersList ?? []; // Handle null case
+        orders = List.of(page['items']);
+        nextCursor = page['nextCursor'];
         isLoading = false;
       });
     } catch (e) {
@@ -54,6 +57,29 @@ class _OrdersScreenState extends State<OrdersScreen> {
     }
   }
 
+  // Fetches the next page when the list is scrolled to the end
+  Future<void> _loadMore() async {
+    if (isLoadingMore || nextCursor == null) return;
+    setState(() => isLoadingMore = true);
+
+    try {
+      final page = await ApiService.getUserOrders(cursor: nextCursor);
+      if (!mounted) return;
+      setState(() {
+        orders.addAll(page['items']);
+        nextCursor = page['nextCursor'];
+        isLoadingMore = false;
+      });
+    } catch (e) {
+      if (!mounted) return;
+      // stop paging instead of retrying on every rebuild; pull to refresh starts over
+      setState(() {
+        nextCursor = null;
+        isLoadingMore = false;
+      });
+    }
+  }
+
   String _formatDate(dynamic date) {
     if (date == null) return 'Unknown date';
     try {
@@ -223,9 +249,19 @@ class _OrdersScreenState extends State<OrdersScreen> {
           : RefreshIndicator(
         onRefresh: _loadOrders,
         child: ListView.separated(
-          itemCount: orders.length,
+          itemCount: orders.length + (nextCursor != null ? 1 : 0),
           separatorBuilder: (context, index) => const SizedBox(height: 8),
-          itemBuilder: (context, index) => _buildOrderCard(orders[index]),
+          itemBuilder: (context, index) {
+            if (index == orders.length) {
+              // reached the end of what is loaded: fetch the next page
+              Future.microtask(_loadMore);
+              return const Padding(
+                padding: EdgeInsets.all(16),
+                child: Center(child: CircularProgressIndicator()),
+              );
+            }
+            return _buildOrderCard(orders[index]);
+          },
         ),
       ),
     );
@@ -1,6 +1,7 @@
 import 'package:flutter/material.dart';
 import 'package:provider/provider.dart';
 import '../providers/cart_provider.dart';
+import '../services/api_service.dart';
 
 class ProductDetailScreen extends StatelessWidget {
   const ProductDetailScreen({super.key});
@@ -25,7 +26,7 @@ class ProductDetailScreen extends StatelessWidget {
               height: 300,
               color: Colors.grey.shade100,
               child: imageUrl.isNotEmpty
-                  ? Image.network(imageUrl, fit: BoxFit.contain, errorBuilder: (_, __, ___) => const Icon(Icons.shopping_bag, size: 100))
+                  ? Image.network(ApiService.imageUrl(imageUrl, width: MediaQuery.of(context).size.width * MediaQuery.of(context).devicePixelRatio), fit: BoxFit.contain, errorBuilder: (_, __, ___) => const Icon(Icons.shopping_bag, size: 100))
                   : const Icon(Icons.shopping_bag, size: 100),
             ),
             Padding(
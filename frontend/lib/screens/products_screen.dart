@@ -1,3 +1,4 @@
+import 'dart:async';
 import 'package:flutter/material.dart';
 import 'package:provider/provider.dart';
 import 'package:cached_network_image/cached_network_image.dart';
@@ -19,6 +20,8 @@ class _ProductsScreenState extends State<ProductsScreen> {
   bool hasError = false;
   String errorMessage = '';
   final TextEditingController _searchController = TextEditingController();
+  Timer? _searchDebounce;
+  int _searchSeq = 0;
 
   @override
   void initState() {
@@ -29,24 +32,35 @@ class _ProductsScreenState extends State<ProductsScreen> {
 
   @override
   void dispose() {
+    _searchDebounce?.cancel();
     _searchController.removeListener(_onSearchChanged);
     _searchController.dispose();
     super.dispose();
   }
 
   void _onSearchChanged() {
-    final q = _searchController.text.trim().toLowerCase();
+    final q = _searchController.text.trim();
+    _searchDebounce?.cancel();
     if (q.isEmpty) {
+      _searchSeq++;
       setState(() => filtered = List.from(products));
       return;
     }
-    setState(() {
-      filtered = products.where((p) {
-        final name = (p['name'] ?? '').toString().toLowerCase();
-        final desc = (p['description'] ?? '').toString().toLowerCase();
-        return name.contains(q) || desc.contains(q);
-      }).toList();
-    });
+    _searchDebounce = Timer(const Duration(milliseconds: 250), () => _search(q));
+  }
+
+  // Searches on the server; answers to older queries are dropped
+  Future<void> _search(String q) async {
+    final seq = ++_searchSeq;
+    List<dynamic> results;
+    try {
+      results = await ApiService.searchProducts(q);
+    } catch (_) {
+      final lower = q.toLowerCase();
+      results = products.where((p) => (p['name'] ?? '').toString().toLowerCase().contains(lower)).toList();
+    }
+    if (!mounted || seq != _searchSeq) return;
+    setState(() => filtered = results);
   }
 
   Future<void> _loadProducts() async {
@@ -369,6 +383,12 @@ class _ProductsScreenState extends State<ProductsScreen> {
     return 2;
   }
 
+  // physical pixels across one grid tile, so the smallest sufficient thumbnail is fetched
+  double _tileImageWidth() {
+    final media = MediaQuery.of(context);
+    return media.size.width / _adaptiveCrossAxisCount() * media.devicePixelRatio;
+  }
+
   Widget _buildProductCard(dynamic product) {
     final stock = int.tryParse(product['stock']?.toString() ?? '') ?? 0;
     final isOutOfStock = stock <= 0;
@@ -390,7 +410,7 @@ class _ProductsScreenState extends State<ProductsScreen> {
                 children: [
                   if (imageUrl.isNotEmpty)
                     CachedNetworkImage(
-                      imageUrl: imageUrl,
+                      imageUrl: ApiService.imageUrl(imageUrl, width: _tileImageWidth()),
                       fit: BoxFit.cover,
                       width: double.infinity,
                       height: double.infinity,
@@ -1,13 +1,58 @@
 import 'dart:convert';
 import 'package:http/http.dart' as http;
+import 'package:jwt_decoder/jwt_decoder.dart';
 import 'package:shared_preferences/shared_preferences.dart';
 
 class ApiService {
   static const String baseUrl = 'http://localhost:8080/api';
 
+  // widths the server keeps thumbnails in (images.thumbnail-widths)
+  static const List<int> thumbnailWidths = [160, 320, 640];
+
+  // Uploaded images are content-addressed (/api/images/<hash>.<ext>) and come in
+  // thumbnail widths via ?w=; pass the physical pixel width the image is shown at.
+  // Other URLs are returned unchanged.
+  static String imageUrl(String url, {double? width}) {
+    if (!url.startsWith('/api/images/')) return url;
+    final absolute = baseUrl.substring(0, baseUrl.length - '/api'.length) + url;
+    if (width == null) return absolute;
+    final w = thumbnailWidths.firstWhere((candidate) => candidate >= width, orElse: () => thumbnailWidths.last);
+    return '$absolute?w=$w';
+  }
+
+  // The refresh token is single-use: requests that find the access token
+  // expired at the same time all wait for one exchange instead of each
+  // spending it (the second would get 401 and log the user out).
+  static Future<String?>? _refreshing;
+
   static Future<String?> _getToken() async {
     final prefs = await SharedPreferences.getInstance();
-    return prefs.getString('token');
+    final token = prefs.getString('token');
+    if (token != null && token.isNotEmpty && JwtDecoder.isExpired(token)) {
+      return _refreshing ??= _refreshToken(prefs).whenComplete(() => _refreshing = null);
+    }
+    return token;
+  }
+
+  // Access tokens are short-lived: swap the stored refresh token for a new pair
+  static Future<String?> _refreshToken(SharedPreferences prefs) async {
+    final refreshToken = prefs.getString('refreshToken');
+    if (refreshToken == null) return null;
+
+    final response = await http.post(
+      Uri.parse('$baseUrl/auth/refresh'),
+      headers: {'Content-Type': 'application/json'},
+      body: json.encode({'refreshToken': refreshToken}),
+    );
+    if (response.statusCode != 200) {
+      await _clearToken();
+      return null;
+    }
+
+    final body = json.decode(response.body);
+    await prefs.setString('token', body['token']);
+    await prefs.setString('refreshToken', body['refreshToken']);
+    return body['token'];
   }
 
   static Future<Map<String, String>> _getHeaders({bool withAuth = true}) async {
@@ -66,9 +111,32 @@ class ApiService {
   static Future<void> _clearToken() async {
     final prefs = await SharedPreferences.getInstance();
     await prefs.remove('token');
+    await prefs.remove('refreshToken');
     await prefs.remove('userRole');
   }
 
+  // Forgets both tokens, then asks the server to revoke them so a copy of the
+  // refresh token cannot be redeemed later; signing out still works offline
+  static Future<void> logout() async {
+    final prefs = await SharedPreferences.getInstance();
+    final token = prefs.getString('token');
+    final refreshToken = prefs.getString('refreshToken');
+    await _clearToken();
+    if (token == null && refreshToken == null) return;
+    try {
+      await http.post(
+        Uri.parse('$baseUrl/auth/logout'),
+        headers: {
+          'Content-Type': 'application/json',
+          if (token != null && token.isNotEmpty) 'Authorization': 'Bearer $token',
+        },
+        body: json.encode({'refreshToken': refreshToken}),
+      );
+    } catch (_) {
+      // offline: the tokens still expire on their own
+    }
+  }
+
   static Future<dynamic> login(String email, String password )async {
     try {
       final uri = Uri.parse('$baseUrl/auth/login');
@@ -99,23 +167,119 @@ class ApiService {
     }
   }
 
+  // The last catalog is kept with its ETag and change version. Once there is one,
+  // only the products changed since are fetched and applied to it; an unknown
+  // version (410) falls back to loading the whole catalog again.
   static Future<List<dynamic>> getProducts() async {
     try {
+      final prefs = await SharedPreferences.getInstance();
+      final cachedEtag = prefs.getString('catalogEtag');
+      final cachedBody = prefs.getString('catalogBody');
+      final changeVersion = prefs.getString('catalogChangeVersion');
+
+      if (cachedBody != null && changeVersion != null) {
+        final synced = await _syncProducts(prefs, cachedBody, changeVersion);
+        if (synced != null) {
+          return synced;
+        }
+      }
+
       final headers = await _getHeaders();
+      if (cachedEtag != null && cachedBody != null) {
+        headers['If-None-Match'] = cachedEtag;
+      }
       final uri = Uri.parse('$baseUrl/products');
       final response = await http.get(uri, headers: headers);
 
+      if (response.statusCode == 304 && cachedBody != null) {
+        final cached = _parseBody(cachedBody);
+        return cached is List ? cached : [];
+      }
       final result = _handleResponse(response);
+      final etag = response.headers['etag'];
+      if (etag != null && result is List) {
+        await prefs.setString('catalogEtag', etag);
+        await prefs.setString('catalogBody', response.body);
+        final version = response.headers['x-catalog-change-version'];
+        if (version != null) {
+          await prefs.setString('catalogChangeVersion', version);
+        } else {
+          await prefs.remove('catalogChangeVersion');
+        }
+      }
       return result is List ? result : [];
     } catch (e) {
       rethrow;
     }
   }
 
-  static Future<List<dynamic>> getUserOrders() async {
+  // Applies /products/changes to the cached catalog; null means load it in full
+  static Future<List<dynamic>?> _syncProducts(
+      SharedPreferences prefs, String cachedBody, String since) async {
+    final cached = _parseBody(cachedBody);
+    if (cached is! List) {
+      return null;
+    }
+    final products = List<dynamic>.from(cached);
+    final positions = <dynamic, int>{};
+    for (var i = 0; i < products.length; i++) {
+      positions[products[i]['id']] = i;
+    }
+
+    var version = since;
+    var changed = false;
+    final headers = await _getHeaders();
+    while (true) {
+      final uri = Uri.parse('$baseUrl/products/changes')
+          .replace(queryParameters: {'since': version});
+      final response = await http.get(uri, headers: headers);
+      if (response.statusCode == 410) {
+        await prefs.remove('catalogChangeVersion');
+        return null;
+      }
+      final page = _handleResponse(response);
+      if (page is! Map<String, dynamic>) {
+        return null;
+      }
+      for (final product in (page['changed'] as List? ?? [])) {
+        final at = positions[product['id']];
+        if (at != null) {
+          products[at] = product;
+        } else {
+          positions[product['id']] = products.length;
+          products.add(product);
+        }
+        changed = true;
+      }
+      final deleted = (page['deleted'] as List? ?? []).toSet();
+      if (deleted.isNotEmpty) {
+        products.removeWhere((p) => deleted.contains(p['id']));
+        positions
+          ..clear()
+          ..addEntries(products.asMap().entries.map((e) => MapEntry(e.value['id'], e.key)));
+        changed = true;
+      }
+      version = '${page['version']}';
+      if (page['hasMore'] != true) {
+        break;
+      }
+    }
+
+    if (changed) {
+      // the body no longer matches the server's ETag for it
+      await prefs.remove('catalogEtag');
+      await prefs.setString('catalogBody', json.encode(products));
+    }
+    await prefs.setString('catalogChangeVersion', version);
+    return products;
+  }
+
+  // Ranked name search on the server, best match first
+  static Future<List<dynamic>> searchProducts(String query, {int limit = 20}) async {
     try {
       final headers = await _getHeaders();
-      final uri = Uri.parse('$baseUrl/orders/my-orders');
+      final uri = Uri.parse('$baseUrl/products/search')
+          .replace(queryParameters: {'q': query, 'limit': '$limit'});
       final response = await http.get(uri, headers: headers);
 
       final result = _handleResponse(response);
@@ -125,6 +289,20 @@ class ApiService {
     }
   }
 
+  // Returns one page: {'items': [...], 'nextCursor': String?}
+  static Future<Map<String, dynamic>> getUserOrders({String? cursor}) async {
+    try {
+      final headers = await _getHeaders();
+      final uri = Uri.parse('$baseUrl/orders/my-orders')
+          .replace(queryParameters: cursor == null ? null : {'cursor': cursor});
+      final response = await http.get(uri, headers: headers);
+
+      return _orderPage(_handleResponse(response));
+    } catch (e) {
+      rethrow;
+    }
+  }
+
   static Future<dynamic> createOrder(List<Map<String, dynamic>> items) async {
     try {
       final headers = await _getHeaders();
@@ -146,19 +324,31 @@ class ApiService {
     }
   }
 
-  static Future<List<dynamic>> getAllOrders() async {
+  // Returns one page: {'items': [...], 'nextCursor': String?}
+  static Future<Map<String, dynamic>> getAllOrders({String? cursor}) async {
     try {
       final headers = await _getHeaders();
-      final uri = Uri.parse('$baseUrl/admin/orders');
+      final uri = Uri.parse('$baseUrl/admin/orders')
+          .replace(queryParameters: cursor == null ? null : {'cursor': cursor});
       final response = await http.get(uri, headers: headers);
 
-      final result = _handleResponse(response);
-      return result is List ? result : [];
+      return _orderPage(_handleResponse(response));
     } catch (e) {
       rethrow;
     }
   }
 
+  static Map<String, dynamic> _orderPage(dynamic result) {
+    if (result is Map) {
+      final items = result['items'];
+      return {
+        'items': items is List ? items : [],
+        'nextCursor': result['nextCursor'],
+      };
+    }
+    return {'items': <dynamic>[], 'nextCursor': null};
+  }
+
   static Future<List<dynamic>> getLowStockProducts({int threshold = 5}) async {
     try {
       final headers = await _getHeaders();
@@ -172,6 +362,40 @@ class ApiService {
     }
   }
 
+  // Server-Sent Events from /admin/low-stock/stream: yields {'event': name, 'data': decoded JSON}.
+  // The stream ends when the connection drops; callers reconnect.
+  static Stream<Map<String, dynamic>> lowStockEvents() async* {
+    final headers = await _getHeaders();
+    headers['Accept'] = 'text/event-stream';
+    final client = http.Client();
+    try {
+      final request = http.Request('GET', Uri.parse('$baseUrl/admin/low-stock/stream'))..headers.addAll(headers);
+      final response = await client.send(request);
+      if (response.statusCode != 200) {
+        throw Exception('Low-stock stream failed (${response.statusCode})');
+      }
+      String event = 'message';
+      final data = StringBuffer();
+      await for (final line in response.stream.transform(utf8.decoder).transform(const LineSplitter())) {
+        if (line.isEmpty) {
+          if (data.isNotEmpty) {
+            yield {'event': event, 'data': json.decode(data.toString())};
+          }
+          event = 'message';
+          data.clear();
+        } else if (line.startsWith('event:')) {
+          event = line.substring(6).trim();
+        } else if (line.startsWith('data:')) {
+          if (data.isNotEmpty) data.write('\n');
+          data.write(line.substring(5).trimLeft());
+        }
+        // lines starting with ':' are heartbeats
+      }
+    } finally {
+      client.close();
+    }
+  }
+
   static Future<dynamic> addProduct(Map<String, dynamic> product) async {
     try {
       final headers = await _getHeaders();